@@ -13,18 +13,17 @@ package eu.ecodex.utils.monitor.activemq;
 import eu.ecodex.utils.monitor.activemq.config.ActiveMqEndpointConfigurationProperties;
 import eu.ecodex.utils.monitor.activemq.config.ActiveMqHealthChecksConfigurationProperties;
 import eu.ecodex.utils.monitor.activemq.config.ActiveMqMetricConfigurationProperties;
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqStreamConfigurationProperties;
 import eu.ecodex.utils.monitor.activemq.service.ActiveMqHealthService;
 import eu.ecodex.utils.monitor.activemq.service.ActiveMqMetricService;
 import eu.ecodex.utils.monitor.activemq.service.ActiveMqQueuesMonitorEndpoint;
-import eu.ecodex.utils.monitor.activemq.service.BrokerFacadeFactory;
-import eu.ecodex.utils.monitor.activemq.service.DestinationService;
+import eu.ecodex.utils.monitor.activemq.service.DestinationStreamService;
+import eu.ecodex.utils.monitor.activemq.service.MonitoredBrokers;
 import io.micrometer.core.instrument.util.StringUtils;
 import java.util.Optional;
-import org.apache.activemq.web.BrokerFacade;
-import org.apache.activemq.web.SingletonBrokerFacade;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.context.properties.bind.BindResult;
 import org.springframework.boot.context.properties.bind.Bindable;
@@ -43,6 +42,9 @@ import org.springframework.core.type.AnnotatedTypeMetadata;
  * <p>This class configures the necessary beans and settings for monitoring ActiveMQ brokers,
  * collecting metrics, and performing health checks. It reads configuration properties related to
  * ActiveMQ monitoring and conditionally enables or disables features based on these properties.
+ * Each monitored broker gets its own facade, destinations and snapshot, which are created by the
+ * {@link MonitoredBrokers}. A {@code BrokerFacade} bean provided by the application is still used
+ * for the single broker of the connection settings.
  */
 @Configuration
 @EnableConfigurationProperties(ActiveMqEndpointConfigurationProperties.class)
@@ -98,6 +100,28 @@ public class ActiveMqEndpointAutoConfiguration {
         }
     }
 
+    /**
+     * Configuration class for setting up the Server-Sent Events stream of the ActiveMQ
+     * destinations.
+     *
+     * <p>This class is conditionally loaded in a servlet web application when the property
+     * specified by ActiveMqStreamConfigurationProperties.PREFIX is enabled. It provides the
+     * DestinationStreamService used by the ActiveMqDestinationStreamController.
+     */
+    @Configuration
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @ConditionalOnProperty(
+        prefix = ActiveMqStreamConfigurationProperties.PREFIX, name = "enabled",
+        havingValue = "true"
+    )
+    @EnableConfigurationProperties(ActiveMqStreamConfigurationProperties.class)
+    public static class StreamConfiguration {
+        @Bean
+        DestinationStreamService destinationStreamService() {
+            return new DestinationStreamService();
+        }
+    }
+
     @Autowired
     ActiveMqEndpointConfigurationProperties configurationProperties;
 
@@ -107,19 +131,8 @@ public class ActiveMqEndpointAutoConfiguration {
     }
 
     @Bean
-    DestinationService destinationService() {
-        return new DestinationService();
-    }
-
-    @Bean
-    BrokerFacadeFactory brokerFacadeFactory() {
-        return new BrokerFacadeFactory();
-    }
-
-    @Bean
-    @ConditionalOnMissingBean
-    BrokerFacade localBrokerFacade() {
-        return new SingletonBrokerFacade();
+    MonitoredBrokers monitoredBrokers() {
+        return new MonitoredBrokers();
     }
 
     /**
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.remote.JMXServiceURL;
+import lombok.Data;
+
+/**
+ * Definition of one of several monitored brokers, configured by
+ * {@code monitor.activemq.brokers[n]}.
+ *
+ * <p>The connection settings have the same meaning as the ones of a single broker in
+ * {@link ActiveMqEndpointConfigurationProperties}, the polling settings are shared by all brokers.
+ */
+@Data
+public class ActiveMqBrokerProperties {
+    /**
+     * The name of the broker in the endpoint, health and metrics.
+     */
+    private String name;
+    private boolean localJmx = false;
+    private List<JMXServiceURL> jmxUrl = new ArrayList<>();
+    private String brokerName;
+    private String jmxUser;
+    private String jmxPassword;
+    /**
+     * How long a reader waits for the statistics of this broker before they are reported as not
+     * available.
+     */
+    private Duration timeout = Duration.ofSeconds(10);
+}
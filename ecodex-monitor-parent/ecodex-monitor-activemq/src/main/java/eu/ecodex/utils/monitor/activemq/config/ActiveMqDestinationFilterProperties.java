@@ -0,0 +1,44 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.config;
+
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo.DestinationType;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import lombok.Data;
+
+/**
+ * Properties selecting the destinations which are monitored.
+ *
+ * <p>Names are matched by glob patterns, where {@code *} matches any number of characters and
+ * {@code ?} a single character, or by a regular expression prefixed with {@code regex:}. The
+ * names are matched as ActiveMQ registers them in JMX, which replaces the characters
+ * {@code : , ' "} by {@code _}. Temporary destinations are never monitored.
+ */
+@Data
+public class ActiveMqDestinationFilterProperties {
+    public static final String REGEX_PREFIX = "regex:";
+    /**
+     * The types of the monitored destinations.
+     */
+    private Set<DestinationType> types = EnumSet.of(DestinationType.QUEUE, DestinationType.TOPIC);
+    /**
+     * Patterns of the names of the monitored destinations, all destinations are monitored if no
+     * pattern is given.
+     */
+    private List<String> include = new ArrayList<>();
+    /**
+     * Patterns of the names of destinations which are not monitored, even if they are included.
+     */
+    private List<String> exclude = new ArrayList<>(List.of("ActiveMQ.Advisory.*"));
+}
@@ -10,6 +10,7 @@
 
 package eu.ecodex.utils.monitor.activemq.config;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import javax.management.remote.JMXServiceURL;
@@ -21,7 +22,17 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  *
  * <p>This class holds the configuration settings for monitoring ActiveMQ brokers using JMX. It
  * provides options to enable or disable monitoring, configure the JMX connection details, and
- * specify the broker name.
+ * specify the broker name. The destinations of the broker are looked up again every
+ * {@code rediscoveryInterval}, a zero or negative interval disables the rediscovery. The
+ * statistics of the destinations are read as configured by {@code snapshot}. If several
+ * {@code jmxUrl}s are configured, for example of a master/slave pair, the connections are kept
+ * open and checked as configured by {@code jmxConnection} and the broker is read through the
+ * first url serving the master broker. Only the destinations selected by {@code destinations}
+ * are monitored.
+ *
+ * <p>Several brokers, for example a network of brokers, are monitored by defining them in
+ * {@code brokers}, the connection settings above are then ignored. A reader waits at most
+ * {@code timeout} for the statistics of a broker.
  */
 @ConfigurationProperties(prefix = ActiveMqEndpointConfigurationProperties.ACTIVEMQ_MONITOR_PREFIX)
 @Data
@@ -33,4 +44,34 @@ public class ActiveMqEndpointConfigurationProperties {
     private String brokerName;
     private String jmxUser;
     private String jmxPassword;
+    private Duration rediscoveryInterval = Duration.ofMinutes(1);
+    private ActiveMqSnapshotProperties snapshot = new ActiveMqSnapshotProperties();
+    private ActiveMqJmxConnectionProperties jmxConnection = new ActiveMqJmxConnectionProperties();
+    private ActiveMqDestinationFilterProperties destinations =
+        new ActiveMqDestinationFilterProperties();
+    private Duration timeout = Duration.ofSeconds(10);
+    private List<ActiveMqBrokerProperties> brokers = new ArrayList<>();
+
+    /**
+     * Creates the properties of one of the configured {@code brokers}: the connection settings
+     * are taken from the broker definition, all other settings from these properties.
+     *
+     * @param broker the definition of the broker
+     * @return the properties to monitor the broker with
+     */
+    public ActiveMqEndpointConfigurationProperties forBroker(ActiveMqBrokerProperties broker) {
+        var props = new ActiveMqEndpointConfigurationProperties();
+        props.setEnabled(enabled);
+        props.setRediscoveryInterval(rediscoveryInterval);
+        props.setSnapshot(snapshot);
+        props.setJmxConnection(jmxConnection);
+        props.setDestinations(destinations);
+        props.setLocalJmx(broker.isLocalJmx());
+        props.setJmxUrl(broker.getJmxUrl());
+        props.setBrokerName(broker.getBrokerName());
+        props.setJmxUser(broker.getJmxUser());
+        props.setJmxPassword(broker.getJmxPassword());
+        props.setTimeout(broker.getTimeout());
+        return props;
+    }
 }
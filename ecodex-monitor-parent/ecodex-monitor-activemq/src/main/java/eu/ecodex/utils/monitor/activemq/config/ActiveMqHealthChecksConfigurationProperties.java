@@ -10,6 +10,7 @@
 
 package eu.ecodex.utils.monitor.activemq.config;
 
+import java.time.Duration;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
@@ -18,7 +19,10 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  *
  * <p>This class holds the configuration settings for monitoring the health of ActiveMQ queues. It
  * provides options to enable or disable the health check feature and to configure the thresholds
- * for warning and error states based on queue size usage.
+ * for warning and error states based on queue size usage. A destination is down if no message was
+ * dequeued for {@code dequeueStallThreshold} while messages are waiting, and a warning is reported
+ * if its estimated time to drain exceeds {@code timeToDrainWarnThreshold}. Both checks are opt-in,
+ * a {@code null} threshold, the default, disables the check.
  */
 @Data
 @ConfigurationProperties(prefix = ActiveMqHealthChecksConfigurationProperties.PREFIX)
@@ -28,4 +32,6 @@ public class ActiveMqHealthChecksConfigurationProperties {
     private boolean enabled = true;
     private float queueSizeWarnThreshold = 0.6f;
     private float queueSizeErrorThreshold = 0.8f;
+    private Duration dequeueStallThreshold;
+    private Duration timeToDrainWarnThreshold;
 }
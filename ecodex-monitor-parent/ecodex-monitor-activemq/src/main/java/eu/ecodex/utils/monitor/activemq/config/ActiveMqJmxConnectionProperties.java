@@ -0,0 +1,40 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.config;
+
+import java.time.Duration;
+import lombok.Data;
+
+/**
+ * Properties for the connections to the remote JMX servers configured by
+ * {@code monitor.activemq.jmx-url}.
+ */
+@Data
+public class ActiveMqJmxConnectionProperties {
+    /**
+     * How often the connections are checked in the background.
+     */
+    private Duration checkInterval = Duration.ofSeconds(10);
+    /**
+     * The delay before the first reconnect of a failed connection, doubled with every failed
+     * attempt.
+     */
+    private Duration initialBackoff = Duration.ofSeconds(1);
+    /**
+     * The maximum delay between two reconnects of a failed connection.
+     */
+    private Duration maxBackoff = Duration.ofMinutes(1);
+    /**
+     * How long a connect or a check of a connection may take, a connection exceeding it is
+     * closed and counts as failed.
+     */
+    private Duration timeout = Duration.ofSeconds(10);
+}
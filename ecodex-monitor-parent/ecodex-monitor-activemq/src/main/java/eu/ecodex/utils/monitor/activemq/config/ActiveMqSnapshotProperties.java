@@ -0,0 +1,37 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.config;
+
+import java.time.Duration;
+import lombok.Data;
+
+/**
+ * Properties for the snapshot of the destination statistics shared by the endpoint, the health
+ * check and the metrics.
+ */
+@Data
+public class ActiveMqSnapshotProperties {
+    /**
+     * How often the statistics are read from the broker, a zero or negative interval disables the
+     * polling, the statistics are then read on demand.
+     */
+    private Duration interval = Duration.ofSeconds(15);
+    /**
+     * How long a snapshot is served. An older snapshot is read again on access, if the broker
+     * cannot be reached it is reported as stale.
+     */
+    private Duration ttl = Duration.ofSeconds(60);
+    /**
+     * The time constant of the exponentially weighted moving average of the enqueue and dequeue
+     * rates, older samples fade out over this time span.
+     */
+    private Duration rateWindow = Duration.ofMinutes(5);
+}
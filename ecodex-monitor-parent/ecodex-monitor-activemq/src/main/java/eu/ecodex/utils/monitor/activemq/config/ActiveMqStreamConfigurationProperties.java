@@ -0,0 +1,46 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for the Server-Sent Events stream of the ActiveMQ destinations.
+ *
+ * <p>Every client receives the destinations of all brokers once and afterwards only the
+ * destinations whose counters changed, at most once per {@code interval}.
+ */
+@Data
+@ConfigurationProperties(prefix = ActiveMqStreamConfigurationProperties.PREFIX)
+public class ActiveMqStreamConfigurationProperties {
+    public static final String PREFIX =
+        ActiveMqEndpointConfigurationProperties.ACTIVEMQ_MONITOR_PREFIX + ".stream";
+    /**
+     * Enables the stream of the destinations, disabled by default as every connected client holds
+     * a request open.
+     */
+    private boolean enabled = false;
+    /**
+     * The minimum time between two events sent to a client, the changes in between are combined.
+     */
+    private Duration interval = Duration.ofSeconds(2);
+    /**
+     * How many clients may be connected at the same time.
+     */
+    private int maxClients = 20;
+    /**
+     * After which time a connection is closed, the client reconnects and receives all
+     * destinations again.
+     */
+    private Duration timeout = Duration.ofMinutes(30);
+}
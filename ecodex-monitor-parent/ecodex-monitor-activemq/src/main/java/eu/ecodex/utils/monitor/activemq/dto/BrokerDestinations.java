@@ -0,0 +1,41 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.dto;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+
+/**
+ * The destinations of one monitored broker together with the state of its snapshot, so a broker
+ * which could not be read is not mistaken for a broker without destinations.
+ */
+@Data
+public class BrokerDestinations {
+    /**
+     * The name of the monitored broker.
+     */
+    private String broker;
+    /**
+     * When the statistics were read, {@code null} if no statistics could be read yet.
+     */
+    private Instant createdAt;
+    /**
+     * Whether the statistics are older than the snapshot ttl.
+     */
+    private boolean stale;
+    /**
+     * Why the current statistics could not be read, {@code null} if they were read.
+     */
+    private String error;
+    private List<DestinationInfo> destinations = new ArrayList<>();
+}
@@ -10,13 +10,29 @@
 
 package eu.ecodex.utils.monitor.activemq.dto;
 
-import lombok.Data;
+import java.time.Instant;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
 
 /**
  * Represents information about a destination, such as a queue or topic, in a messaging system.
+ *
+ * <p>Besides the statistics read from the broker it carries the estimated rates of the
+ * destination in messages per second, which are {@code null} until two snapshots were read.
+ *
+ * <p>The same instances are shared by the snapshot, the endpoint, the stream, the health check and
+ * the gauges, so they are immutable. Derived values are added to a copy created by
+ * {@code toBuilder()}.
  */
-@Data
+@Value
+@Builder(toBuilder = true)
+@Jacksonized
 public class DestinationInfo {
+    /**
+     * The name of the monitored broker the destination belongs to.
+     */
+    private String broker;
     private String name;
     private long queueSize;
     private DestinationType type;
@@ -28,6 +44,20 @@ public class DestinationInfo {
     private long maxEnqueueTime;
     private long tempUsageLimit;
     private long maxPageSize;
+    private long consumerCount;
+    private int memoryPercentUsage;
+    private Double enqueueRate;
+    private Double dequeueRate;
+    private Double netGrowthRate;
+    /**
+     * Estimated seconds until the destination is empty, {@code null} if it is not draining.
+     */
+    private Double timeToDrainSeconds;
+    /**
+     * Since when no message was dequeued while messages are waiting, {@code null} if the
+     * destination is empty or messages are dequeued.
+     */
+    private Instant dequeueStalledSince;
 
     /**
      * Enum representing the type of the destination in a messaging system. This can be a QUEUE, a
@@ -38,4 +68,10 @@ public class DestinationInfo {
         TOPIC,
         NOT_KNOWN
     }
+
+    /**
+     * Builder of {@link DestinationInfo}, generated by Lombok.
+     */
+    public static class DestinationInfoBuilder {
+    }
 }
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.dto;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+
+/**
+ * The destinations which changed since the previous event sent to a stream client.
+ */
+@Data
+public class DestinationsDelta {
+    private Instant time;
+    /**
+     * The destinations which were added or whose counters changed.
+     */
+    private List<DestinationInfo> changed = new ArrayList<>();
+    /**
+     * The last known state of the destinations which were removed.
+     */
+    private List<DestinationInfo> removed = new ArrayList<>();
+}
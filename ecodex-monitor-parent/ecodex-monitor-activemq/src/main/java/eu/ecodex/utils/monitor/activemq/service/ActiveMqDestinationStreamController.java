@@ -0,0 +1,62 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.service;
+
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqEndpointConfigurationProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Streams the ActiveMQ destinations as Server-Sent Events next to the
+ * {@value ActiveMqQueuesMonitorEndpoint#ENDPOINT_ID} endpoint.
+ *
+ * <p>Actuator endpoints cannot stream, so the stream is served by a controller below the actuator
+ * base path, where it is secured like the endpoints. If the actuator is served on a separate
+ * management port, the stream stays on the application port.
+ *
+ * @see DestinationStreamService
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(
+    prefix = ActiveMqEndpointConfigurationProperties.ACTIVEMQ_MONITOR_PREFIX,
+    name = {"enabled", "stream.enabled"}, havingValue = "true"
+)
+public class ActiveMqDestinationStreamController {
+    public static final String STREAM_PATH =
+        "/" + ActiveMqQueuesMonitorEndpoint.ENDPOINT_ID + "/stream";
+    @Autowired
+    DestinationStreamService streamService;
+
+    /**
+     * Connects a client to the stream of the destinations.
+     *
+     * @return the emitter of the events sent to the client
+     */
+    @GetMapping(
+        path = "${management.endpoints.web.base-path:/actuator}" + STREAM_PATH,
+        produces = MediaType.TEXT_EVENT_STREAM_VALUE
+    )
+    public SseEmitter streamDestinations() {
+        try {
+            return streamService.subscribe();
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage(), e);
+        }
+    }
+}
@@ -11,20 +11,33 @@
 package eu.ecodex.utils.monitor.activemq.service;
 
 import eu.ecodex.utils.monitor.activemq.config.ActiveMqHealthChecksConfigurationProperties;
-import org.apache.activemq.broker.jmx.DestinationViewMBean;
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
+import java.time.Duration;
+import java.time.Instant;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.health.AbstractHealthIndicator;
 import org.springframework.boot.actuate.health.Health;
 
 /**
  * Service that extends the AbstractHealthIndicator to check the health status of ActiveMQ
- * destinations (queues and topics). It uses DestinationService to retrieve the list of destinations
- * and performs health checks on them, updating the health status accordingly.
+ * destinations (queues and topics). It uses the latest {@link BrokerSnapshot} to retrieve the
+ * statistics of the destinations and performs health checks on them, updating the health status
+ * accordingly. A stale snapshot, read before the broker became unreachable, is reported as down,
+ * as is a broker without any snapshot. If brokers are defined in
+ * {@code monitor.activemq.brokers}, all details are prefixed with the name of the broker.
+ *
+ * <p>Besides the usage, the drain of each destination is checked with the rates estimated by the
+ * {@link DestinationRateEstimator}: a destination is down if no message was dequeued for the
+ * configured stall threshold while messages are waiting, and a warning is reported if it is not
+ * expected to be empty within the configured time to drain.
  */
 public class ActiveMqHealthService extends AbstractHealthIndicator {
     public static final String STATE_SUFFIX = "_state";
+    public static final String SNAPSHOT_TIME_DETAIL = "snapshot_time";
+    public static final String SNAPSHOT_STALE_DETAIL = "snapshot_stale";
+    public static final String SNAPSHOT_ERROR_DETAIL = "snapshot_error";
     @Autowired
-    DestinationService destinationService;
+    MonitoredBrokers monitoredBrokers;
     @Autowired
     ActiveMqHealthChecksConfigurationProperties config;
 
@@ -32,13 +45,75 @@ public class ActiveMqHealthService extends AbstractHealthIndicator {
     protected void doHealthCheck(Health.Builder builder) {
         builder.up();
 
-        destinationService
-            .getDestinations()
-            .forEach(dst -> this.checkDestinationHealth(builder, dst));
+        var prefixed = monitoredBrokers.hasBrokerDefinitions();
+        for (MonitoredBrokers.BrokerSnapshotResult result : monitoredBrokers.getSnapshots()) {
+            var prefix = prefixed ? result.broker().name() + "_" : "";
+            checkBroker(builder, prefix, result);
+        }
+    }
+
+    private void checkBroker(
+        Health.Builder builder, String prefix, MonitoredBrokers.BrokerSnapshotResult result) {
+        if (result.error() != null) {
+            builder.withDetail(prefix + SNAPSHOT_ERROR_DETAIL, result.error());
+        }
+        var snapshot = result.snapshot();
+        if (snapshot == null) {
+            builder.down();
+            return;
+        }
+
+        builder.withDetail(prefix + SNAPSHOT_TIME_DETAIL, snapshot.createdAt());
+        if (result.broker().snapshotService().isStale(snapshot)) {
+            builder.down();
+            builder.withDetail(prefix + SNAPSHOT_STALE_DETAIL, true);
+        }
+
+        snapshot
+            .destinations()
+            .forEach(dst -> {
+                this.checkDestinationHealth(builder, prefix, dst);
+                this.checkDestinationDrain(builder, prefix, dst, snapshot.createdAt());
+            });
+    }
+
+    private void checkDestinationDrain(
+        Health.Builder builder, String prefix, DestinationInfo dst, Instant now) {
+        String checkName = prefix + dst.getName() + "_drain";
+
+        if (dst.getEnqueueRate() != null) {
+            builder.withDetail(checkName + "_enqueueRate", dst.getEnqueueRate());
+            builder.withDetail(checkName + "_dequeueRate", dst.getDequeueRate());
+        }
+        if (dst.getTimeToDrainSeconds() != null) {
+            builder.withDetail(checkName + "_timeToDrainSeconds", dst.getTimeToDrainSeconds());
+        }
+        if (dst.getDequeueStalledSince() != null) {
+            builder.withDetail(checkName + "_stalledSince", dst.getDequeueStalledSince());
+        }
+
+        var stallThreshold = config.getDequeueStallThreshold();
+        if (stallThreshold != null && dst.getDequeueStalledSince() != null
+            && Duration.between(dst.getDequeueStalledSince(), now).compareTo(stallThreshold) >= 0) {
+            builder.down();
+            builder.withDetail(checkName + STATE_SUFFIX, "DOWN");
+            return;
+        }
+
+        var drainThreshold = config.getTimeToDrainWarnThreshold();
+        if (drainThreshold != null && dst.getQueueSize() > 0 && dst.getNetGrowthRate() != null
+            && (dst.getTimeToDrainSeconds() == null
+            || dst.getTimeToDrainSeconds() > drainThreshold.toSeconds())) {
+            builder.withDetail(checkName + STATE_SUFFIX, "WARN");
+            return;
+        }
+
+        builder.withDetail(checkName + STATE_SUFFIX, "OK");
     }
 
-    private void checkDestinationHealth(Health.Builder builder, DestinationViewMBean dst) {
-        String checkName = dst.getName() + "_usage";
+    private void checkDestinationHealth(
+        Health.Builder builder, String prefix, DestinationInfo dst) {
+        String checkName = prefix + dst.getName() + "_usage";
 
         long queueSize = dst.getQueueSize();
         long maxPageSize = dst.getMaxPageSize();
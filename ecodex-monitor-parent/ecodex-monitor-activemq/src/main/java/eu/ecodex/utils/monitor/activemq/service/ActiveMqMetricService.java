@@ -10,57 +10,213 @@
 
 package eu.ecodex.utils.monitor.activemq.service;
 
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
+import io.micrometer.core.instrument.FunctionCounter;
 import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.BaseUnits;
 import jakarta.annotation.PostConstruct;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
 import org.apache.activemq.broker.jmx.DestinationViewMBean;
 import org.springframework.beans.factory.annotation.Autowired;
 
 /**
  * Service for monitoring ActiveMQ metrics.
  *
- * <p>This service retrieves ActiveMQ destinations from the {@link DestinationService} and
- * registers various metrics associated with these destinations using a {@link MeterRegistry}.
- * Metrics include queue size and maximum page size for each destination.
+ * <p>This service retrieves the ActiveMQ destinations from the {@link DestinationService} of each
+ * of the {@link MonitoredBrokers} and registers various metrics associated with these destinations
+ * using a {@link MeterRegistry}. All meters share the name prefix {@code activemq.destination} and
+ * are tagged with the name of the {@code broker}, the {@code destination} name and its
+ * {@code type}. The sizes, consumer count and memory usage are
+ * gauges, the enqueued, dequeued and dispatched totals are function counters, so rates are
+ * computed by the monitoring backend. The enqueue, dequeue and growth rates and the time to drain
+ * estimated by the {@link DestinationRateEstimator} are gauges as well. The meters of
+ * destinations found by a later rediscovery are registered, the meters of removed destinations
+ * are removed from the registry. The meters report the values of the latest
+ * {@link BrokerSnapshot}, so a scrape does not query the broker.
  */
 public class ActiveMqMetricService {
+    public static final String METRIC_PREFIX = "activemq.destination";
+    public static final String BROKER_TAG = "broker";
+    public static final String DESTINATION_TAG = "destination";
+    public static final String TYPE_TAG = "type";
+    private static final String MESSAGES_UNIT = "messages";
+    private static final String RATE_UNIT = "messages.per.second";
     @Autowired
-    DestinationService destinationService;
+    MonitoredBrokers monitoredBrokers;
     @Autowired
     MeterRegistry meterRegistry;
-    List<DestinationViewMBean> destinations = new ArrayList<>();
+    final Map<String, List<Meter>> meters = new ConcurrentHashMap<>();
 
     /**
-     * Initializes the ActiveMqMetricService by retrieving a list of ActiveMQ destinations from the
-     * DestinationService and registering various metrics for each destination using the
-     * MeterRegistry.
+     * Initializes the ActiveMqMetricService by registering a listener at the DestinationService of
+     * every monitored broker, which registers the metrics of all currently known destinations.
      */
     @PostConstruct
     public void init() {
-        destinationService
-            .getDestinations()
-            .forEach(this::addMetric);
+        monitoredBrokers.getBrokers().forEach(
+            broker -> broker.destinationService().addDestinationListener(new BrokerMeters(broker)));
     }
 
-    private void addMetric(DestinationViewMBean dst) {
-        Gauge.Builder<DestinationViewMBean> builder =
-            Gauge.builder("activemq.destinations." + dst.getName() + ".queueSize", dst,
-                          DestinationViewMBean::getQueueSize
-            );
-        builder.description(
-            "Number of messages on this destination, including any that have been dispatched but "
-                + "not acknowledged"
-        );
-        builder.baseUnit("message");
-        builder.register(meterRegistry);
-
-        Gauge.Builder<DestinationViewMBean> builder1 =
-            Gauge.builder("activemq.destinations." + dst.getName() + ".maxPageSize", dst,
-                          DestinationViewMBean::getMaxPageSize
+    static String meterKey(MonitoredBroker broker, String destinationKey) {
+        return broker.name() + ":" + destinationKey;
+    }
+
+    private static double orNaN(Double value) {
+        return value == null ? Double.NaN : value;
+    }
+
+    /**
+     * Reads a value of the destination from the latest snapshot without accessing the broker.
+     *
+     * @param snapshotService the service holding the snapshot
+     * @param key             the key of the destination
+     * @param attribute       the value to read from the statistics of the destination
+     * @return the value or NaN if the destination is not part of the snapshot or no snapshot was
+     *      read yet
+     */
+    static double value(
+        BrokerSnapshotService snapshotService, String key,
+        ToDoubleFunction<DestinationInfo> attribute) {
+        // the current snapshot is kept up to date by the polling, a scrape never reads the broker
+        return snapshotService.getCurrentSnapshot()
+                              .map(snapshot -> snapshot.getDestination(key))
+                              .map(attribute::applyAsDouble)
+                              .orElse(Double.NaN);
+    }
+
+    /**
+     * Registers and removes the meters of the destinations of one broker.
+     */
+    private class BrokerMeters implements DestinationListener {
+        private final MonitoredBroker broker;
+
+        BrokerMeters(MonitoredBroker broker) {
+            this.broker = broker;
+        }
+
+        @Override
+        public void destinationsAdded(Collection<DestinationViewMBean> added) {
+            added.forEach(dst -> meters.computeIfAbsent(
+                meterKey(broker, DestinationService.destinationKey(dst)),
+                key -> addMetric(dst)
+            ));
+        }
+
+        @Override
+        public void destinationsRemoved(Collection<String> removedKeys) {
+            removedKeys.forEach(key -> {
+                var destinationMeters = meters.remove(meterKey(broker, key));
+                if (destinationMeters != null) {
+                    destinationMeters.forEach(meterRegistry::remove);
+                }
+            });
+        }
+
+        private List<Meter> addMetric(DestinationViewMBean dst) {
+            var key = DestinationService.destinationKey(dst);
+            var tags = Tags.of(
+                BROKER_TAG, broker.name(),
+                DESTINATION_TAG, dst.getName(),
+                TYPE_TAG, DestinationService.destinationType(dst).name().toLowerCase(Locale.ROOT)
             );
-        builder1.description("Maximum number of messages to be paged in");
-        builder1.register(meterRegistry);
+            List<Meter> destinationMeters = new ArrayList<>();
+
+            destinationMeters.add(
+                gauge(METRIC_PREFIX + ".size", key, tags, DestinationInfo::getQueueSize)
+                    .description(
+                        "Number of messages on this destination, including any that have been "
+                            + "dispatched but not acknowledged")
+                    .baseUnit(MESSAGES_UNIT)
+                    .register(meterRegistry));
+            destinationMeters.add(
+                gauge(METRIC_PREFIX + ".max.page.size", key, tags,
+                      DestinationInfo::getMaxPageSize)
+                    .description("Maximum number of messages to be paged in")
+                    .baseUnit(MESSAGES_UNIT)
+                    .register(meterRegistry));
+            destinationMeters.add(
+                gauge(METRIC_PREFIX + ".consumers", key, tags, DestinationInfo::getConsumerCount)
+                    .description("Number of consumers subscribed to this destination")
+                    .register(meterRegistry));
+            destinationMeters.add(
+                gauge(METRIC_PREFIX + ".memory.usage", key, tags,
+                      DestinationInfo::getMemoryPercentUsage)
+                    .description("Percentage of the memory limit used by this destination")
+                    .baseUnit("percent")
+                    .register(meterRegistry));
+            destinationMeters.add(
+                gauge(METRIC_PREFIX + ".store.size", key, tags,
+                      DestinationInfo::getStoreMessageSize)
+                    .description("Size of the messages of this destination in the store")
+                    .baseUnit(BaseUnits.BYTES)
+                    .register(meterRegistry));
+            destinationMeters.add(
+                gauge(METRIC_PREFIX + ".enqueue.rate", key, tags,
+                      info -> orNaN(info.getEnqueueRate()))
+                    .description(
+                        "Estimated number of messages sent to this destination per second")
+                    .baseUnit(RATE_UNIT)
+                    .register(meterRegistry));
+            destinationMeters.add(
+                gauge(METRIC_PREFIX + ".dequeue.rate", key, tags,
+                      info -> orNaN(info.getDequeueRate()))
+                    .description(
+                        "Estimated number of messages removed from this destination per second")
+                    .baseUnit(RATE_UNIT)
+                    .register(meterRegistry));
+            destinationMeters.add(
+                gauge(METRIC_PREFIX + ".net.growth.rate", key, tags,
+                      info -> orNaN(info.getNetGrowthRate()))
+                    .description("Estimated growth of this destination in messages per second")
+                    .baseUnit(RATE_UNIT)
+                    .register(meterRegistry));
+            destinationMeters.add(
+                gauge(METRIC_PREFIX + ".time.to.drain", key, tags,
+                      info -> orNaN(info.getTimeToDrainSeconds()))
+                    .description("Estimated time until this destination is empty, NaN if it is not "
+                                     + "draining")
+                    .baseUnit("seconds")
+                    .register(meterRegistry));
+
+            destinationMeters.add(
+                counter(METRIC_PREFIX + ".enqueued", key, tags, DestinationInfo::getEnqueueCount)
+                    .description("Number of messages sent to this destination")
+                    .register(meterRegistry));
+            destinationMeters.add(
+                counter(METRIC_PREFIX + ".dequeued", key, tags, DestinationInfo::getDequeueCount)
+                    .description(
+                        "Number of messages acknowledged and removed from this destination")
+                    .register(meterRegistry));
+            destinationMeters.add(
+                counter(METRIC_PREFIX + ".dispatched", key, tags,
+                        DestinationInfo::getDispatchCount)
+                    .description("Number of messages dispatched to consumers of this destination")
+                    .register(meterRegistry));
+
+            return destinationMeters;
+        }
+
+        private Gauge.Builder<BrokerSnapshotService> gauge(
+            String name, String key, Tags tags, ToDoubleFunction<DestinationInfo> attribute) {
+            return Gauge.builder(name, broker.snapshotService(), s -> value(s, key, attribute))
+                        .tags(tags);
+        }
+
+        private FunctionCounter.Builder<BrokerSnapshotService> counter(
+            String name, String key, Tags tags, ToDoubleFunction<DestinationInfo> attribute) {
+            return FunctionCounter
+                .builder(name, broker.snapshotService(), s -> value(s, key, attribute))
+                .tags(tags)
+                .baseUnit(MESSAGES_UNIT);
+        }
     }
 }
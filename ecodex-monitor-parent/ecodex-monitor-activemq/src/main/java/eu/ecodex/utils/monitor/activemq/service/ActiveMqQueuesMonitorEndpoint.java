@@ -10,68 +10,48 @@
 
 package eu.ecodex.utils.monitor.activemq.service;
 
-import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
-import java.util.ArrayList;
+import eu.ecodex.utils.monitor.activemq.dto.BrokerDestinations;
 import java.util.List;
-import org.apache.activemq.broker.jmx.DestinationViewMBean;
-import org.apache.activemq.broker.jmx.QueueViewMBean;
-import org.apache.activemq.broker.jmx.TopicViewMBean;
-import org.apache.activemq.web.BrokerFacade;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
 import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
 
 /**
  * Exposes an Actuator endpoint to monitor ActiveMQ destinations such as queues and topics. It
- * provides operations to retrieve information about these destinations.
+ * provides operations to retrieve information about these destinations of all monitored brokers.
  */
 @Endpoint(id = ActiveMqQueuesMonitorEndpoint.ENDPOINT_ID)
 public class ActiveMqQueuesMonitorEndpoint {
     public static final String ENDPOINT_ID = "activemqdestinations";
     @Autowired
-    BrokerFacade activeMqBrokerFacade;
+    MonitoredBrokers monitoredBrokers;
 
     /**
-     * Retrieves and maps the information about ActiveMQ destinations (queues and topics).
+     * Retrieves the information about ActiveMQ destinations (queues and topics) from the latest
+     * snapshots of all monitored brokers.
      *
-     * @return a list of {@link DestinationInfo} objects containing the details of each destination.
-     * @throws Exception if an error occurs while fetching the destination information.
+     * <p>Every broker is reported, including a broker whose statistics could not be read: its
+     * entry carries the error, and the time and staleness of its last snapshot, if any.
+     *
+     * @return the destinations of each monitored broker in the configured order
      */
     @ReadOperation
-    public List<DestinationInfo> getDestinationInfos() throws Exception {
-        List<DestinationViewMBean> destinations = new ArrayList<>();
-
-        destinations.addAll(activeMqBrokerFacade.getQueues());
-        destinations.addAll(activeMqBrokerFacade.getTopics());
-
-        return destinations.stream()
-                           .map(this::mapToQueueInfo)
-                           .toList();
+    public List<BrokerDestinations> getBrokerDestinations() {
+        return monitoredBrokers.getSnapshots().stream()
+                               .map(this::toBrokerDestinations)
+                               .toList();
     }
 
-    private DestinationInfo mapToQueueInfo(DestinationViewMBean dst) {
-        var info = new DestinationInfo();
-        info.setName(dst.getName());
-
-        info.setQueueSize(dst.getQueueSize());
-
-        if (dst instanceof TopicViewMBean) {
-            info.setType(DestinationInfo.DestinationType.TOPIC);
-        } else if (dst instanceof QueueViewMBean) {
-            info.setType(DestinationInfo.DestinationType.QUEUE);
-        } else {
-            info.setType(DestinationInfo.DestinationType.NOT_KNOWN);
+    private BrokerDestinations toBrokerDestinations(MonitoredBrokers.BrokerSnapshotResult result) {
+        var brokerDestinations = new BrokerDestinations();
+        brokerDestinations.setBroker(result.broker().name());
+        brokerDestinations.setError(result.error());
+        var snapshot = result.snapshot();
+        if (snapshot != null) {
+            brokerDestinations.setCreatedAt(snapshot.createdAt());
+            brokerDestinations.setStale(result.broker().snapshotService().isStale(snapshot));
+            brokerDestinations.setDestinations(snapshot.destinations());
         }
-
-        info.setDequeueCount(dst.getDequeueCount());
-        info.setDispatchCount(dst.getDispatchCount());
-        info.setEnqueueCount(dst.getEnqueueCount());
-        info.setMaxEnqueueTime(dst.getMaxEnqueueTime());
-        info.setStoreMessageSize(dst.getStoreMessageSize());
-        info.setMemoryLimit(dst.getMemoryLimit());
-        info.setTempUsageLimit(dst.getTempUsageLimit());
-        info.setMaxPageSize(dst.getMaxPageSize());
-
-        return info;
+        return brokerDestinations;
     }
 }
@@ -11,56 +11,62 @@
 package eu.ecodex.utils.monitor.activemq.service;
 
 import eu.ecodex.utils.monitor.activemq.config.ActiveMqEndpointConfigurationProperties;
-import jakarta.jms.ConnectionFactory;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import javax.management.MBeanServerConnection;
 import javax.management.MBeanServerInvocationHandler;
 import javax.management.ObjectName;
 import javax.management.QueryExp;
-import javax.management.remote.JMXServiceURL;
 import org.apache.activemq.broker.jmx.BrokerViewMBean;
 import org.apache.activemq.web.BrokerFacade;
 import org.apache.activemq.web.RemoteJMXBrokerFacade;
 import org.apache.activemq.web.SingletonBrokerFacade;
-import org.apache.activemq.web.config.WebConsoleConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.FactoryBean;
-import org.springframework.beans.factory.annotation.Autowired;
 
 /**
  * Factory class to create instances of {@link BrokerFacade}.
  *
- * <p>This class implements the {@link FactoryBean} interface to provide custom creation logic for
- * the BrokerFacade instances. It uses the {@link ActiveMqEndpointConfigurationProperties} to
- * determine the type of BrokerFacade to create and configure.
+ * <p>It uses the {@link ActiveMqEndpointConfigurationProperties} of a broker to determine the
+ * type of BrokerFacade to create and configure.
  */
-public class BrokerFacadeFactory implements FactoryBean<BrokerFacade> {
+public class BrokerFacadeFactory {
     private static final Logger LOGGER = LoggerFactory.getLogger(BrokerFacadeFactory.class);
-    @Autowired
-    ActiveMqEndpointConfigurationProperties configurationProperties;
+    final ActiveMqEndpointConfigurationProperties configurationProperties;
+    final JmxConnectionPool jmxConnectionPool;
     BrokerFacade facade;
 
-    @Override
-    public BrokerFacade getObject() {
+    /**
+     * Creates the factory of a broker.
+     *
+     * @param configurationProperties the connection settings of the broker
+     * @param jmxConnectionPool       the pooled connections used if JMX urls are configured
+     */
+    public BrokerFacadeFactory(ActiveMqEndpointConfigurationProperties configurationProperties,
+                               JmxConnectionPool jmxConnectionPool) {
+        this.configurationProperties = configurationProperties;
+        this.jmxConnectionPool = jmxConnectionPool;
+    }
+
+    /**
+     * Returns the facade of the broker, it is created on the first call.
+     *
+     * @return the facade matching the connection settings
+     */
+    public BrokerFacade getBrokerFacade() {
         if (facade == null) {
             initFacade();
         }
         return facade;
     }
 
-    @Override
-    public Class<?> getObjectType() {
-        return BrokerFacade.class;
-    }
-
     private void initFacade() {
         if (!configurationProperties.getJmxUrl().isEmpty()) {
-            LOGGER.info("jmx url is present, creating RemoteJMXBrokerFacade");
+            LOGGER.info("jmx url is present, creating pooled RemoteJMXBrokerFacade");
             var brokerFacade = jmxBrokerFacade();
             brokerFacade.setBrokerName(configurationProperties.getBrokerName());
             facade = brokerFacade;
@@ -80,37 +86,29 @@ public class BrokerFacadeFactory implements FactoryBean<BrokerFacade> {
     }
 
     private RemoteJMXBrokerFacade jmxBrokerFacade() {
-
-        var remoteJMXBrokerFacade = new RemoteJMXBrokerFacade();
-        remoteJMXBrokerFacade.setBrokerName("broker");
-        remoteJMXBrokerFacade.setConfiguration(getWebConsoleConfiguration());
-
-        return remoteJMXBrokerFacade;
+        return new PooledJmxBrokerFacade(jmxConnectionPool);
     }
 
-    private WebConsoleConfiguration getWebConsoleConfiguration() {
-
-        return new WebConsoleConfiguration() {
-            @Override
-            public ConnectionFactory getConnectionFactory() {
-                return null;
-            }
+    /**
+     * Reads the broker through the connection of the {@link JmxConnectionPool}, which fails over
+     * between the configured urls and reconnects in the background.
+     */
+    private static class PooledJmxBrokerFacade extends RemoteJMXBrokerFacade {
+        private final JmxConnectionPool jmxConnectionPool;
 
-            @Override
-            public Collection<JMXServiceURL> getJmxUrls() {
-                return configurationProperties.getJmxUrl();
-            }
+        PooledJmxBrokerFacade(JmxConnectionPool jmxConnectionPool) {
+            this.jmxConnectionPool = jmxConnectionPool;
+        }
 
-            @Override
-            public String getJmxUser() {
-                return configurationProperties.getJmxUser();
-            }
+        @Override
+        protected MBeanServerConnection getMBeanServerConnection() throws IOException {
+            return jmxConnectionPool.getConnection();
+        }
 
-            @Override
-            public String getJmxPassword() {
-                return configurationProperties.getJmxPassword();
-            }
-        };
+        @Override
+        public void shutdown() {
+            // the connections are owned by the pool
+        }
     }
 
     private static class JmxLocalBrokerFacade extends RemoteJMXBrokerFacade {
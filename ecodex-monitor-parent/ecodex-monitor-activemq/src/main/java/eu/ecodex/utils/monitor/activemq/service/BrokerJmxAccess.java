@@ -0,0 +1,57 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.service;
+
+import java.lang.reflect.Proxy;
+import javax.management.MBeanServerConnection;
+import javax.management.MBeanServerInvocationHandler;
+import javax.management.ObjectName;
+import org.apache.activemq.broker.jmx.BrokerMBeanSupport;
+import org.apache.activemq.web.BrokerFacade;
+import org.apache.activemq.web.LocalBrokerFacade;
+
+/**
+ * The MBean server connection and the object name of the broker behind a {@link BrokerFacade}.
+ *
+ * @param connection       the connection to the MBean server of the broker
+ * @param brokerObjectName the object name of the broker
+ */
+record BrokerJmxAccess(MBeanServerConnection connection, ObjectName brokerObjectName) {
+
+    /**
+     * Looks up the MBean server connection and the object name of the broker. The remote and the
+     * local JMX facades hand out proxies, which carry both. An embedded broker is reached through
+     * its management context.
+     *
+     * @param brokerFacade the facade of the broker
+     * @return the access or {@code null} if the facade does not expose its MBean server connection
+     * @throws Exception if the broker cannot be queried
+     */
+    static BrokerJmxAccess of(BrokerFacade brokerFacade) throws Exception {
+        if (brokerFacade instanceof LocalBrokerFacade local) {
+            var managementContext = local.getManagementContext();
+            if (managementContext == null || managementContext.getMBeanServer() == null) {
+                return null;
+            }
+            return new BrokerJmxAccess(
+                managementContext.getMBeanServer(),
+                BrokerMBeanSupport.createBrokerObjectName(
+                    managementContext.getJmxDomainName(), local.getBrokerName())
+            );
+        }
+        var brokerAdmin = brokerFacade.getBrokerAdmin();
+        if (brokerAdmin != null && Proxy.isProxyClass(brokerAdmin.getClass())
+            && Proxy.getInvocationHandler(brokerAdmin) instanceof MBeanServerInvocationHandler h) {
+            return new BrokerJmxAccess(h.getMBeanServerConnection(), h.getObjectName());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.service;
+
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The statistics of all destinations of the broker, read at one point in time.
+ *
+ * @param createdAt         when the statistics were read
+ * @param destinations      the statistics of the destinations
+ * @param destinationsByKey the statistics by {@link DestinationService#destinationKey key}
+ */
+public record BrokerSnapshot(
+    Instant createdAt, List<DestinationInfo> destinations,
+    Map<String, DestinationInfo> destinationsByKey) {
+
+    /**
+     * Creates a snapshot of the given statistics.
+     *
+     * @param createdAt    when the statistics were read
+     * @param destinations the statistics of the destinations
+     * @return the snapshot
+     */
+    public static BrokerSnapshot of(Instant createdAt, List<DestinationInfo> destinations) {
+        Map<String, DestinationInfo> byKey = new LinkedHashMap<>();
+        destinations.forEach(info -> byKey.put(
+            DestinationService.destinationKey(info.getType(), info.getName()), info));
+        return new BrokerSnapshot(
+            createdAt, List.copyOf(destinations), Collections.unmodifiableMap(byKey));
+    }
+
+    /**
+     * Returns the statistics of the destination with the given key.
+     *
+     * @param key the key of the destination
+     * @return the statistics or {@code null} if the destination was not present
+     */
+    public DestinationInfo getDestination(String key) {
+        return destinationsByKey.get(key);
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.service;
+
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqEndpointConfigurationProperties;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the statistics of all destinations of the broker periodically and publishes them as an
+ * immutable {@link BrokerSnapshot}.
+ *
+ * <p>The endpoint, the health check and the gauges are all served from the latest snapshot, so
+ * scrapes and health polls do not add load to the broker. The statistics are read every
+ * {@code monitor.activemq.snapshot.interval}. A snapshot older than
+ * {@code monitor.activemq.snapshot.ttl} is read again on access. At most one read is running at a
+ * time, concurrent callers wait for the running read instead of starting another one, so a hung
+ * broker ties up a single thread. No monitor is held during the JMX calls, which would pin the
+ * carrier of a virtual thread. If the broker cannot be reached, the previous snapshot is kept and
+ * reported as stale.
+ * Before a snapshot is published, the {@link DestinationRateEstimator} adds the estimated rates
+ * and every destination is marked with the name of the monitored broker.
+ */
+public class BrokerSnapshotService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BrokerSnapshotService.class);
+    final String brokerName;
+    final DestinationStatisticsReader statisticsReader;
+    final DestinationRateEstimator rateEstimator;
+    final ActiveMqEndpointConfigurationProperties configurationProperties;
+    Clock clock = Clock.systemUTC();
+    private volatile BrokerSnapshot snapshot;
+    private volatile Exception lastFailure;
+    private ScheduledExecutorService scheduler;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final AtomicReference<CompletableFuture<BrokerSnapshot>> inFlight =
+        new AtomicReference<>();
+
+    /**
+     * Creates the snapshot service of a broker.
+     *
+     * @param brokerName              the name of the monitored broker, stored in every destination
+     * @param statisticsReader        reads the statistics of the destinations
+     * @param rateEstimator           adds the estimated rates to the statistics
+     * @param configurationProperties the settings of the broker
+     */
+    public BrokerSnapshotService(String brokerName, DestinationStatisticsReader statisticsReader,
+                                 DestinationRateEstimator rateEstimator,
+                                 ActiveMqEndpointConfigurationProperties configurationProperties) {
+        this.brokerName = brokerName;
+        this.statisticsReader = statisticsReader;
+        this.rateEstimator = rateEstimator;
+        this.configurationProperties = configurationProperties;
+    }
+
+    /**
+     * Starts the periodic reading of the statistics if it is enabled.
+     */
+    public void init() {
+        var interval = configurationProperties.getSnapshot().getInterval();
+        if (interval == null || interval.isZero() || interval.isNegative()) {
+            LOGGER.debug("Polling of the ActiveMQ statistics is disabled, reading on demand");
+            return;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("activemq-snapshot").daemon().factory());
+        this.scheduler.scheduleWithFixedDelay(
+            this::refreshQuietly, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+        LOGGER.info("Reading the ActiveMQ statistics every [{}]", interval);
+    }
+
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the latest snapshot, reading the statistics again if it has expired.
+     *
+     * @return the latest snapshot, which is stale if the broker could not be reached
+     * @throws IllegalStateException if no statistics could be read from the broker yet
+     */
+    public BrokerSnapshot getSnapshot() {
+        try {
+            return getSnapshotAsync(Runnable::run).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IllegalStateException illegalState) {
+                throw illegalState;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the latest snapshot, reading the statistics again if it has expired. If a read is
+     * already running, its result is awaited instead of starting another read.
+     *
+     * @param executor the executor running a new read
+     * @return the latest snapshot, which is stale if the broker could not be reached, or a future
+     *      failing with an {@link IllegalStateException} if no statistics could be read yet
+     */
+    public CompletableFuture<BrokerSnapshot> getSnapshotAsync(Executor executor) {
+        var current = snapshot;
+        if (current != null && !isStale(current)) {
+            return CompletableFuture.completedFuture(current);
+        }
+        return refreshAsync(executor).handle((refreshed, failure) -> {
+            if (refreshed != null) {
+                return refreshed;
+            }
+            var last = snapshot;
+            if (last == null) {
+                throw new CompletionException(new IllegalStateException(
+                    "No statistics could be read from the broker", lastFailure));
+            }
+            return last;
+        });
+    }
+
+    /**
+     * Returns the latest snapshot without accessing the broker.
+     *
+     * @return the latest snapshot or an empty optional if none was read yet
+     */
+    public Optional<BrokerSnapshot> getCurrentSnapshot() {
+        return Optional.ofNullable(snapshot);
+    }
+
+    /**
+     * Checks whether the snapshot is older than the configured ttl.
+     *
+     * @param brokerSnapshot the snapshot to check
+     * @return true if the snapshot has expired
+     */
+    public boolean isStale(BrokerSnapshot brokerSnapshot) {
+        var age = Duration.between(brokerSnapshot.createdAt(), clock.instant());
+        return age.compareTo(configurationProperties.getSnapshot().getTtl()) > 0;
+    }
+
+    /**
+     * Reads the statistics from the broker and publishes them as the latest snapshot.
+     *
+     * @return the new snapshot
+     * @throws Exception if the broker cannot be queried
+     */
+    public BrokerSnapshot refresh() throws Exception {
+        refreshLock.lock();
+        try {
+            var infos = statisticsReader.readDestinationInfos().stream()
+                                        .map(info -> info.toBuilder().broker(brokerName).build())
+                                        .toList();
+            var now = clock.instant();
+            var refreshed = BrokerSnapshot.of(now, rateEstimator.update(now, infos));
+            snapshot = refreshed;
+            lastFailure = null;
+            return refreshed;
+        } catch (Exception e) {
+            lastFailure = e;
+            throw e;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Starts a read of the statistics unless one is running already.
+     *
+     * @param executor the executor running a new read
+     * @return the running read
+     */
+    CompletableFuture<BrokerSnapshot> refreshAsync(Executor executor) {
+        while (true) {
+            var running = inFlight.get();
+            if (running != null) {
+                return running;
+            }
+            var started = new CompletableFuture<BrokerSnapshot>();
+            if (inFlight.compareAndSet(null, started)) {
+                executor.execute(() -> {
+                    try {
+                        started.complete(refresh());
+                    } catch (Exception e) {
+                        started.completeExceptionally(e);
+                    } finally {
+                        inFlight.compareAndSet(started, null);
+                    }
+                });
+                return started;
+            }
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refreshAsync(Runnable::run).join();
+        } catch (CompletionException e) {
+            // the next run must not be suppressed, so the exception is only logged
+            LOGGER.warn("Error while reading the statistics from the broker", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.service;
+
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqDestinationFilterProperties;
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo.DestinationType;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import org.apache.activemq.util.JMXSupport;
+
+/**
+ * Selects the monitored destinations as configured by {@link ActiveMqDestinationFilterProperties}.
+ *
+ * <p>The filter is pushed into the JMX query as far as {@link ObjectName} patterns allow: the
+ * destination types and the included glob patterns become patterns of the object name, so the
+ * MBean server only returns candidates. Regular expressions and the excluded patterns cannot be
+ * expressed by an object name, they are checked in memory before a destination is proxied or its
+ * statistics are read.
+ */
+public class DestinationFilter {
+    private static final Pattern ENCODED_CHARACTERS = Pattern.compile("[:,'\"]");
+    private static final String ANY_NAME = "*";
+    private final Set<DestinationType> types;
+    private final List<Pattern> include;
+    private final List<Pattern> exclude;
+    private final Set<String> queryNamePatterns = new LinkedHashSet<>();
+
+    /**
+     * Compiles the configured patterns.
+     *
+     * @param properties the configured types and patterns
+     * @throws java.util.regex.PatternSyntaxException if a regular expression is invalid
+     */
+    public DestinationFilter(ActiveMqDestinationFilterProperties properties) {
+        this.types = properties.getTypes().isEmpty()
+            ? EnumSet.noneOf(DestinationType.class)
+            : EnumSet.copyOf(properties.getTypes());
+        this.include = properties.getInclude().stream().map(DestinationFilter::compile).toList();
+        this.exclude = properties.getExclude().stream().map(DestinationFilter::compile).toList();
+
+        for (String pattern : properties.getInclude()) {
+            if (pattern.startsWith(ActiveMqDestinationFilterProperties.REGEX_PREFIX)) {
+                queryNamePatterns.clear();
+                break;
+            }
+            queryNamePatterns.add(toObjectNamePattern(pattern));
+        }
+        if (queryNamePatterns.isEmpty() || queryNamePatterns.contains(ANY_NAME)) {
+            queryNamePatterns.clear();
+            queryNamePatterns.add(ANY_NAME);
+        }
+    }
+
+    /**
+     * Queries the object names of the selected destinations of the broker.
+     *
+     * @param jmx the access to the MBean server of the broker
+     * @return the object names of the selected destinations
+     * @throws IOException                  if the MBean server cannot be queried
+     * @throws MalformedObjectNameException if a pattern cannot be used in an object name
+     */
+    Set<ObjectName> queryNames(BrokerJmxAccess jmx)
+        throws IOException, MalformedObjectNameException {
+        Set<ObjectName> names = new LinkedHashSet<>();
+        for (ObjectName pattern : queryPatterns(jmx.brokerObjectName())) {
+            for (ObjectName name : jmx.connection().queryNames(pattern, null)) {
+                if (matches(name)) {
+                    names.add(name);
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Creates the object name patterns selecting the candidates of the monitored destinations.
+     *
+     * @param brokerObjectName the object name of the broker
+     * @return one pattern per monitored type and included glob pattern
+     * @throws MalformedObjectNameException if a pattern cannot be used in an object name
+     */
+    List<ObjectName> queryPatterns(ObjectName brokerObjectName)
+        throws MalformedObjectNameException {
+        List<ObjectName> patterns = new ArrayList<>();
+        for (DestinationType type : types) {
+            var jmxType = jmxType(type);
+            if (jmxType == null) {
+                continue;
+            }
+            for (String namePattern : queryNamePatterns) {
+                patterns.add(new ObjectName(
+                    brokerObjectName + "," + DestinationStatisticsReader.DESTINATION_TYPE_KEY + "="
+                        + jmxType + "," + DestinationStatisticsReader.DESTINATION_NAME_KEY + "="
+                        + namePattern));
+            }
+        }
+        return patterns;
+    }
+
+    /**
+     * Checks whether the destination registered under the object name is monitored.
+     *
+     * @param name the object name of the destination
+     * @return true if the destination is monitored
+     */
+    boolean matches(ObjectName name) {
+        var jmxName = name.getKeyProperty(DestinationStatisticsReader.DESTINATION_NAME_KEY);
+        return jmxName != null && matches(
+            DestinationStatisticsReader.destinationType(name),
+            jmxName.replace("&qe;", "?").replace("&amp;", "=").replace("&ast;", "*")
+        );
+    }
+
+    /**
+     * Checks whether the destination is monitored.
+     *
+     * @param type the type of the destination
+     * @param name the name of the destination
+     * @return true if the destination is monitored
+     */
+    public boolean matches(DestinationType type, String name) {
+        if (!types.contains(type)) {
+            return false;
+        }
+        var jmxName = ENCODED_CHARACTERS.matcher(name).replaceAll("_");
+        return (include.isEmpty() || include.stream().anyMatch(p -> p.matcher(jmxName).matches()))
+            && exclude.stream().noneMatch(p -> p.matcher(jmxName).matches());
+    }
+
+    private static String jmxType(DestinationType type) {
+        return switch (type) {
+            case QUEUE -> "Queue";
+            case TOPIC -> "Topic";
+            case NOT_KNOWN -> null;
+        };
+    }
+
+    private static Pattern compile(String pattern) {
+        if (pattern.startsWith(ActiveMqDestinationFilterProperties.REGEX_PREFIX)) {
+            return Pattern.compile(
+                pattern.substring(ActiveMqDestinationFilterProperties.REGEX_PREFIX.length()));
+        }
+        var regex = new StringBuilder();
+        forEachGlobPart(
+            ENCODED_CHARACTERS.matcher(pattern).replaceAll("_"),
+            wildcard -> regex.append(wildcard == '*' ? ".*" : "."),
+            literal -> regex.append(Pattern.quote(literal))
+        );
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * Translates a glob pattern into a pattern of an object name value, the literal parts are
+     * encoded the same way ActiveMQ encodes destination names.
+     */
+    private static String toObjectNamePattern(String glob) {
+        var value = new StringBuilder();
+        forEachGlobPart(
+            glob, value::append, literal -> value.append(JMXSupport.encodeObjectNamePart(literal)));
+        return value.toString();
+    }
+
+    private static void forEachGlobPart(
+        String glob, Consumer<Character> wildcard, Consumer<String> literal) {
+        var start = 0;
+        for (var i = 0; i < glob.length(); i++) {
+            var c = glob.charAt(i);
+            if (c == '*' || c == '?') {
+                if (i > start) {
+                    literal.accept(glob.substring(start, i));
+                }
+                wildcard.accept(c);
+                start = i + 1;
+            }
+        }
+        if (start < glob.length()) {
+            literal.accept(glob.substring(start));
+        }
+    }
+}
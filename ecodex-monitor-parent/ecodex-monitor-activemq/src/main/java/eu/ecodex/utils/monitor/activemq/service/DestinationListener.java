@@ -0,0 +1,39 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.service;
+
+import java.util.Collection;
+import org.apache.activemq.broker.jmx.DestinationViewMBean;
+
+/**
+ * Callback informed by the {@link DestinationService} when destinations appear on or disappear
+ * from the monitored broker.
+ *
+ * <p>The callbacks are invoked on the thread running the rediscovery, after the list of
+ * destinations has been replaced. Removed destinations are identified by their
+ * {@link DestinationService#destinationKey key} only, as the MBean of a removed destination can no
+ * longer be queried.
+ */
+public interface DestinationListener {
+    /**
+     * Called with the destinations which were not known before.
+     *
+     * @param added the new destinations, never empty
+     */
+    void destinationsAdded(Collection<DestinationViewMBean> added);
+
+    /**
+     * Called with the keys of the destinations which are no longer present on the broker.
+     *
+     * @param removedKeys the keys of the removed destinations, never empty
+     */
+    void destinationsRemoved(Collection<String> removedKeys);
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.service;
+
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqEndpointConfigurationProperties;
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimates the enqueue and dequeue rates of the destinations from successive snapshots.
+ *
+ * <p>The cumulative enqueue and dequeue counts of each destination are compared with the counts
+ * of the previous snapshot. The resulting rates are smoothed by an exponentially weighted moving
+ * average with the time constant {@code monitor.activemq.snapshot.rate-window}, so the weight of
+ * a sample does not depend on how often the snapshots are read. From the rates the net growth and
+ * the time until the destination is empty are derived. A destination is stalled as long as
+ * messages are waiting and the dequeue count does not increase.
+ *
+ * <p>If a count decreases, the broker was restarted or the statistics were reset, the estimation
+ * of that destination starts again.
+ */
+public class DestinationRateEstimator {
+    final ActiveMqEndpointConfigurationProperties configurationProperties;
+    private final Map<String, DestinationRates> rates = new HashMap<>();
+
+    /**
+     * Creates the estimator of a broker.
+     *
+     * @param configurationProperties the settings of the broker, including the rate window
+     */
+    public DestinationRateEstimator(
+        ActiveMqEndpointConfigurationProperties configurationProperties) {
+        this.configurationProperties = configurationProperties;
+    }
+
+    /**
+     * Updates the estimation with the statistics read at the given time. Destinations missing in
+     * the statistics are forgotten.
+     *
+     * @param now          when the statistics were read
+     * @param destinations the statistics of all destinations
+     * @return copies of the statistics including the estimated values, in the same order
+     */
+    public synchronized List<DestinationInfo> update(Instant now,
+                                                     List<DestinationInfo> destinations) {
+        Map<String, DestinationRates> updated = new HashMap<>();
+        List<DestinationInfo> estimated = new ArrayList<>(destinations.size());
+        for (DestinationInfo info : destinations) {
+            var key = DestinationService.destinationKey(info.getType(), info.getName());
+            var previous = rates.get(key);
+            var current = previous == null || isReset(previous, info)
+                ? new DestinationRates(now, info)
+                : previous.next(now, info, configurationProperties.getSnapshot().getRateWindow());
+            estimated.add(current.applyTo(info));
+            updated.put(key, current);
+        }
+        rates.clear();
+        rates.putAll(updated);
+        return estimated;
+    }
+
+    private static boolean isReset(DestinationRates previous, DestinationInfo info) {
+        return info.getEnqueueCount() < previous.enqueueCount
+            || info.getDequeueCount() < previous.dequeueCount;
+    }
+
+    /**
+     * The estimation of one destination after a snapshot.
+     */
+    private static final class DestinationRates {
+        private final Instant time;
+        private final long enqueueCount;
+        private final long dequeueCount;
+        private final long queueSize;
+        private final Double enqueueRate;
+        private final Double dequeueRate;
+        private final Instant lastDequeueProgress;
+
+        DestinationRates(Instant time, DestinationInfo info) {
+            this(time, info, null, null, time);
+        }
+
+        private DestinationRates(
+            Instant time, DestinationInfo info, Double enqueueRate, Double dequeueRate,
+            Instant lastDequeueProgress) {
+            this.time = time;
+            this.enqueueCount = info.getEnqueueCount();
+            this.dequeueCount = info.getDequeueCount();
+            this.queueSize = info.getQueueSize();
+            this.enqueueRate = enqueueRate;
+            this.dequeueRate = dequeueRate;
+            this.lastDequeueProgress = lastDequeueProgress;
+        }
+
+        DestinationRates next(Instant now, DestinationInfo info, Duration window) {
+            double seconds = Duration.between(time, now).toNanos() / 1e9;
+            if (seconds <= 0) {
+                return this;
+            }
+            double timeConstant = window.toNanos() / 1e9;
+            double alpha = timeConstant > 0 ? 1 - Math.exp(-seconds / timeConstant) : 1;
+            var progress = info.getDequeueCount() > dequeueCount || info.getQueueSize() == 0
+                ? now
+                : lastDequeueProgress;
+            return new DestinationRates(
+                now, info,
+                average(enqueueRate, (info.getEnqueueCount() - enqueueCount) / seconds, alpha),
+                average(dequeueRate, (info.getDequeueCount() - dequeueCount) / seconds, alpha),
+                progress
+            );
+        }
+
+        private static double average(Double average, double sample, double alpha) {
+            return average == null ? sample : average + alpha * (sample - average);
+        }
+
+        DestinationInfo applyTo(DestinationInfo info) {
+            var estimated = info.toBuilder()
+                                .enqueueRate(enqueueRate)
+                                .dequeueRate(dequeueRate);
+            if (queueSize > 0 && lastDequeueProgress.isBefore(time)) {
+                estimated.dequeueStalledSince(lastDequeueProgress);
+            }
+            if (enqueueRate == null || dequeueRate == null) {
+                return estimated.build();
+            }
+            double netGrowthRate = enqueueRate - dequeueRate;
+            estimated.netGrowthRate(netGrowthRate);
+            if (queueSize == 0) {
+                estimated.timeToDrainSeconds(0.0);
+            } else if (netGrowthRate < 0) {
+                estimated.timeToDrainSeconds(queueSize / -netGrowthRate);
+            }
+            return estimated.build();
+        }
+    }
+}
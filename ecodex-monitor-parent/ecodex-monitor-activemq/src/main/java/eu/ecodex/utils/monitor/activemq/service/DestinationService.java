@@ -10,46 +10,203 @@
 
 package eu.ecodex.utils.monitor.activemq.service;
 
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqEndpointConfigurationProperties;
 import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
-import jakarta.annotation.PostConstruct;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServerInvocationHandler;
+import javax.management.ObjectName;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 import org.apache.activemq.broker.jmx.DestinationViewMBean;
 import org.apache.activemq.broker.jmx.QueueViewMBean;
 import org.apache.activemq.broker.jmx.TopicViewMBean;
 import org.apache.activemq.web.BrokerFacade;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
 
 /**
  * Service for managing and monitoring ActiveMQ destinations (queues and topics) through a
  * BrokerFacade.
+ *
+ * <p>The destinations are looked up again every {@code monitor.activemq.rediscovery-interval}.
+ * The current destinations are compared with the known ones by type and name, the list of
+ * destinations is replaced as a whole and the registered {@link DestinationListener}s are
+ * informed about the added and removed destinations. Readers always see a complete, unmodifiable
+ * list and are never blocked by a rediscovery.
+ *
+ * <p>Only the destinations selected by the {@link DestinationFilter} are looked up and proxied, the
+ * filter is passed to the MBean server as object name patterns where possible.
  */
 @Data
 public class DestinationService {
     private static final Logger LOGGER = LoggerFactory.getLogger(DestinationService.class);
-    @Autowired
-    BrokerFacade activeMqBrokerFacade;
-    List<DestinationViewMBean> destinations = new ArrayList<>();
+    final BrokerFacade activeMqBrokerFacade;
+    final DestinationFilter destinationFilter;
+    final ActiveMqEndpointConfigurationProperties configurationProperties;
+    final BrokerSnapshotService snapshotService;
+    volatile List<DestinationViewMBean> destinations = List.of();
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final List<DestinationListener> listeners = new CopyOnWriteArrayList<>();
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private ScheduledExecutorService scheduler;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Map<String, DestinationViewMBean> destinationsByKey = Map.of();
+
+    /**
+     * Creates the destination service of a broker.
+     *
+     * @param activeMqBrokerFacade    the facade to look up the destinations with
+     * @param destinationFilter       selects the monitored destinations
+     * @param configurationProperties the settings of the broker
+     * @param snapshotService         the snapshot service of the broker
+     */
+    public DestinationService(BrokerFacade activeMqBrokerFacade,
+                              DestinationFilter destinationFilter,
+                              ActiveMqEndpointConfigurationProperties configurationProperties,
+                              BrokerSnapshotService snapshotService) {
+        this.activeMqBrokerFacade = activeMqBrokerFacade;
+        this.destinationFilter = destinationFilter;
+        this.configurationProperties = configurationProperties;
+        this.snapshotService = snapshotService;
+    }
 
     /**
      * Initializes the DestinationService by retrieving and storing ActiveMQ destinations (queues
-     * and topics) from the activeMqBrokerFacade. If an exception occurs during the retrieval
-     * process, an error is logged and ActiveMQ Broker Monitoring will be disabled.
+     * and topics) from the activeMqBrokerFacade and starts the periodic rediscovery. If an
+     * exception occurs during the retrieval process, an error is logged and the destinations are
+     * looked up again with the next rediscovery.
      */
-    @PostConstruct
     public void init() {
+        rediscover();
+
+        var interval = configurationProperties.getRediscoveryInterval();
+        if (interval == null || interval.isZero() || interval.isNegative()) {
+            LOGGER.debug("Rediscovery of the ActiveMQ destinations is disabled");
+            return;
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("activemq-rediscovery").daemon().factory());
+        this.scheduler.scheduleWithFixedDelay(
+            this::rediscover, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        LOGGER.info("Looking up the ActiveMQ destinations every [{}]", interval);
+    }
+
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Registers a listener and informs it about the currently known destinations.
+     *
+     * @param listener the listener to inform about added and removed destinations
+     */
+    public synchronized void addDestinationListener(DestinationListener listener) {
+        listeners.add(listener);
+        var known = destinations;
+        if (!known.isEmpty()) {
+            listener.destinationsAdded(known);
+        }
+    }
+
+    /**
+     * Looks up the monitored queues and topics of the broker and replaces the known destinations.
+     *
+     * <p>The MBean proxies of all destinations are replaced by the ones just looked up, so after a
+     * reconnect or a failover to another broker the proxies use the current connection. Only
+     * destinations with a new key are reported as added. If the broker cannot be queried, the
+     * known destinations are kept.
+     */
+    public synchronized void rediscover() {
+        Map<String, DestinationViewMBean> current = new LinkedHashMap<>();
         try {
-            destinations.addAll(activeMqBrokerFacade.getQueues());
-            destinations.addAll(activeMqBrokerFacade.getTopics());
+            lookupDestinations().forEach(dst -> current.put(destinationKey(dst), dst));
         } catch (Exception e) {
+            // the next run must not be suppressed, so the exception is only logged
             LOGGER.error(
-                "Error while getting destinations from brokerFacade. ActiveMQ Broker Monitoring "
-                    + "will not work!",
-                e
+                "Error while getting destinations from brokerFacade. Keeping the [{}] known "
+                    + "destinations",
+                destinations.size(), e
             );
+            return;
+        }
+
+        Map<String, DestinationViewMBean> known = new LinkedHashMap<>(destinationsByKey);
+        List<DestinationViewMBean> added = new ArrayList<>();
+        Map<String, DestinationViewMBean> updated = new LinkedHashMap<>();
+        current.forEach((key, dst) -> {
+            if (known.remove(key) == null) {
+                added.add(dst);
+            }
+            updated.put(key, dst);
+        });
+        Set<String> removedKeys = Set.copyOf(known.keySet());
+
+        destinationsByKey = Collections.unmodifiableMap(updated);
+        destinations = List.copyOf(updated.values());
+
+        if (!added.isEmpty() || !removedKeys.isEmpty()) {
+            LOGGER.info(
+                "ActiveMQ destinations changed: [{}] added, [{}] removed, [{}] known",
+                added.size(), removedKeys.size(), updated.size()
+            );
+        }
+        for (DestinationListener listener : listeners) {
+            notifyListener(listener, added, removedKeys);
+        }
+    }
+
+    private List<DestinationViewMBean> lookupDestinations() throws Exception {
+        var jmx = BrokerJmxAccess.of(activeMqBrokerFacade);
+        if (jmx == null) {
+            List<DestinationViewMBean> all = new ArrayList<>();
+            all.addAll(activeMqBrokerFacade.getQueues());
+            all.addAll(activeMqBrokerFacade.getTopics());
+            return all.stream()
+                      .filter(dst -> destinationFilter.matches(destinationType(dst), dst.getName()))
+                      .toList();
+        }
+
+        List<DestinationViewMBean> found = new ArrayList<>();
+        for (ObjectName name : destinationFilter.queryNames(jmx)) {
+            var type =
+                DestinationStatisticsReader.destinationType(name)
+                    == DestinationInfo.DestinationType.QUEUE
+                    ? QueueViewMBean.class
+                    : TopicViewMBean.class;
+            found.add(MBeanServerInvocationHandler.newProxyInstance(
+                jmx.connection(), name, type, true));
+        }
+        return found;
+    }
+
+    private void notifyListener(
+        DestinationListener listener, List<DestinationViewMBean> added,
+        Set<String> removedKeys) {
+        try {
+            if (!removedKeys.isEmpty()) {
+                listener.destinationsRemoved(removedKeys);
+            }
+            if (!added.isEmpty()) {
+                listener.destinationsAdded(added);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Destination listener [{}] failed", listener, e);
         }
     }
 
@@ -59,36 +216,45 @@ public class DestinationService {
      *
      * @return a list of {@code DestinationInfo} objects containing detailed information about each
      *      destination.
+     * @see BrokerSnapshotService
      */
     public List<DestinationInfo> getDestinationInfos() {
-        return destinations.stream()
-                           .map(this::mapToQueueInfo)
-                           .toList();
+        return snapshotService.getSnapshot().destinations();
     }
 
-    private DestinationInfo mapToQueueInfo(DestinationViewMBean dst) {
-        var info = new DestinationInfo();
-        info.setName(dst.getName());
-
-        info.setQueueSize(dst.getQueueSize());
-
+    /**
+     * Returns the type of the destination.
+     *
+     * @param dst the destination
+     * @return the type of the destination
+     */
+    public static DestinationInfo.DestinationType destinationType(DestinationViewMBean dst) {
         if (dst instanceof TopicViewMBean) {
-            info.setType(DestinationInfo.DestinationType.TOPIC);
+            return DestinationInfo.DestinationType.TOPIC;
         } else if (dst instanceof QueueViewMBean) {
-            info.setType(DestinationInfo.DestinationType.QUEUE);
-        } else {
-            info.setType(DestinationInfo.DestinationType.NOT_KNOWN);
+            return DestinationInfo.DestinationType.QUEUE;
         }
+        return DestinationInfo.DestinationType.NOT_KNOWN;
+    }
 
-        info.setDequeueCount(dst.getDequeueCount());
-        info.setDispatchCount(dst.getDispatchCount());
-        info.setEnqueueCount(dst.getEnqueueCount());
-        info.setMaxEnqueueTime(dst.getMaxEnqueueTime());
-        info.setStoreMessageSize(dst.getStoreMessageSize());
-        info.setMemoryLimit(dst.getMemoryLimit());
-        info.setTempUsageLimit(dst.getTempUsageLimit());
-        info.setMaxPageSize(dst.getMaxPageSize());
+    /**
+     * Returns the key identifying the destination on the broker, made of its type and name.
+     *
+     * @param dst the destination
+     * @return the key of the destination
+     */
+    public static String destinationKey(DestinationViewMBean dst) {
+        return destinationKey(destinationType(dst), dst.getName());
+    }
 
-        return info;
+    /**
+     * Returns the key identifying the destination on the broker, made of its type and name.
+     *
+     * @param type the type of the destination
+     * @param name the name of the destination
+     * @return the key of the destination
+     */
+    public static String destinationKey(DestinationInfo.DestinationType type, String name) {
+        return type + ":" + name;
     }
 }
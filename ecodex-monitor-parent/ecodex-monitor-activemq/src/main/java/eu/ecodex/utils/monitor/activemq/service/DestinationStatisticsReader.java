@@ -0,0 +1,180 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.service;
+
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ObjLongConsumer;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import org.apache.activemq.broker.jmx.DestinationViewMBean;
+import org.apache.activemq.web.BrokerFacade;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the statistics of the monitored queues and topics of the broker with as few JMX calls as
+ * possible.
+ *
+ * <p>Calling the getters of a {@link DestinationViewMBean} proxy costs one round trip to the
+ * MBean server per attribute. Instead, the destinations of the broker are found with the
+ * {@link ObjectName} patterns of the {@link DestinationFilter} and all required attributes of a
+ * destination are fetched with one {@link MBeanServerConnection#getAttributes} call, so the
+ * statistics of n destinations cost n + 1 round trips, if no more than one name pattern is
+ * included. Destinations which are not monitored are never read. If the facade does not expose
+ * its MBean server connection, the statistics are read through the destination proxies.
+ */
+public class DestinationStatisticsReader {
+    private static final Logger LOGGER =
+        LoggerFactory.getLogger(DestinationStatisticsReader.class);
+    public static final String DESTINATION_TYPE_KEY = "destinationType";
+    public static final String DESTINATION_NAME_KEY = "destinationName";
+    static final String[] ATTRIBUTES = {
+        "Name", "QueueSize", "EnqueueCount", "DispatchCount", "DequeueCount", "StoreMessageSize",
+        "MemoryLimit", "MaxEnqueueTime", "TempUsageLimit", "MaxPageSize", "ConsumerCount",
+        "MemoryPercentUsage"
+    };
+    private static final Map<String, ObjLongConsumer<DestinationInfo.DestinationInfoBuilder>>
+        LONG_ATTRIBUTES = Map.ofEntries(
+            attribute("QueueSize", (info, value) -> info.queueSize(value)),
+            attribute("EnqueueCount", (info, value) -> info.enqueueCount(value)),
+            attribute("DispatchCount", (info, value) -> info.dispatchCount(value)),
+            attribute("DequeueCount", (info, value) -> info.dequeueCount(value)),
+            attribute("StoreMessageSize", (info, value) -> info.storeMessageSize(value)),
+            attribute("MemoryLimit", (info, value) -> info.memoryLimit(value)),
+            attribute("MaxEnqueueTime", (info, value) -> info.maxEnqueueTime(value)),
+            attribute("TempUsageLimit", (info, value) -> info.tempUsageLimit(value)),
+            attribute("MaxPageSize", (info, value) -> info.maxPageSize(value)),
+            attribute("ConsumerCount", (info, value) -> info.consumerCount(value)),
+            attribute("MemoryPercentUsage", (info, value) -> info.memoryPercentUsage((int) value))
+        );
+    final BrokerFacade activeMqBrokerFacade;
+    final DestinationFilter destinationFilter;
+
+    /**
+     * Creates the reader of a broker.
+     *
+     * @param activeMqBrokerFacade the facade to read the statistics through
+     * @param destinationFilter    selects the monitored destinations
+     */
+    public DestinationStatisticsReader(BrokerFacade activeMqBrokerFacade,
+                                       DestinationFilter destinationFilter) {
+        this.activeMqBrokerFacade = activeMqBrokerFacade;
+        this.destinationFilter = destinationFilter;
+    }
+
+    /**
+     * Reads the statistics of the monitored queues and topics of the broker.
+     *
+     * @return the statistics of the destinations, queues first, ordered by name
+     * @throws Exception if the broker cannot be queried
+     */
+    public List<DestinationInfo> readDestinationInfos() throws Exception {
+        var jmx = BrokerJmxAccess.of(activeMqBrokerFacade);
+        if (jmx == null) {
+            LOGGER.debug("No MBean server connection available, reading the destination proxies");
+            return readFromProxies();
+        }
+
+        var connection = jmx.connection();
+        List<DestinationInfo> infos = new ArrayList<>();
+        for (ObjectName name : destinationFilter.queryNames(jmx)) {
+            var type = destinationType(name);
+            try {
+                infos.add(toDestinationInfo(type, connection.getAttributes(name, ATTRIBUTES)));
+            } catch (InstanceNotFoundException e) {
+                LOGGER.debug("Destination [{}] was removed while reading", name);
+            }
+        }
+        infos.sort(Comparator.comparing(DestinationInfo::getType)
+                             .thenComparing(DestinationInfo::getName));
+        return infos;
+    }
+
+    /**
+     * Maps the attributes of one destination MBean to a {@link DestinationInfo}.
+     *
+     * @param type       the type of the destination
+     * @param attributes the attributes read from the MBean
+     * @return the destination info
+     */
+    static DestinationInfo toDestinationInfo(
+        DestinationInfo.DestinationType type, AttributeList attributes) {
+        var info = DestinationInfo.builder().type(type);
+        for (Attribute attribute : attributes.asList()) {
+            if ("Name".equals(attribute.getName())) {
+                info.name((String) attribute.getValue());
+                continue;
+            }
+            var setter = LONG_ATTRIBUTES.get(attribute.getName());
+            if (setter != null && attribute.getValue() instanceof Number value) {
+                setter.accept(info, value.longValue());
+            }
+        }
+        return info.build();
+    }
+
+    private static Map.Entry<String, ObjLongConsumer<DestinationInfo.DestinationInfoBuilder>>
+        attribute(String name, ObjLongConsumer<DestinationInfo.DestinationInfoBuilder> setter) {
+        return Map.entry(name, setter);
+    }
+
+    static DestinationInfo.DestinationType destinationType(ObjectName name) {
+        var type = name.getKeyProperty(DESTINATION_TYPE_KEY);
+        if ("Queue".equals(type)) {
+            return DestinationInfo.DestinationType.QUEUE;
+        } else if ("Topic".equals(type)) {
+            return DestinationInfo.DestinationType.TOPIC;
+        }
+        return DestinationInfo.DestinationType.NOT_KNOWN;
+    }
+
+    /**
+     * Maps a destination proxy to a {@link DestinationInfo}, one getter call per attribute.
+     *
+     * @param dst the destination proxy
+     * @return the destination info
+     */
+    static DestinationInfo toDestinationInfo(DestinationViewMBean dst) {
+        return DestinationInfo.builder()
+                              .name(dst.getName())
+                              .queueSize(dst.getQueueSize())
+                              .type(DestinationService.destinationType(dst))
+                              .dequeueCount(dst.getDequeueCount())
+                              .dispatchCount(dst.getDispatchCount())
+                              .enqueueCount(dst.getEnqueueCount())
+                              .maxEnqueueTime(dst.getMaxEnqueueTime())
+                              .storeMessageSize(dst.getStoreMessageSize())
+                              .memoryLimit(dst.getMemoryLimit())
+                              .tempUsageLimit(dst.getTempUsageLimit())
+                              .maxPageSize(dst.getMaxPageSize())
+                              .consumerCount(dst.getConsumerCount())
+                              .memoryPercentUsage(dst.getMemoryPercentUsage())
+                              .build();
+    }
+
+    private List<DestinationInfo> readFromProxies() throws Exception {
+        List<DestinationViewMBean> destinations = new ArrayList<>();
+        destinations.addAll(activeMqBrokerFacade.getQueues());
+        destinations.addAll(activeMqBrokerFacade.getTopics());
+        return destinations.stream()
+                           .filter(dst -> destinationFilter.matches(
+                               DestinationService.destinationType(dst), dst.getName()))
+                           .map(DestinationStatisticsReader::toDestinationInfo)
+                           .toList();
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.service;
+
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqStreamConfigurationProperties;
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
+import eu.ecodex.utils.monitor.activemq.dto.DestinationsDelta;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Clock;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Streams the destinations of all monitored brokers to the connected clients as Server-Sent
+ * Events.
+ *
+ * <p>A client first receives a {@value #SNAPSHOT_EVENT} event with all destinations and
+ * afterwards {@value #DELTA_EVENT} events with the {@link DestinationsDelta destinations} whose
+ * counters changed since the previous event sent to this client. Every
+ * {@code monitor.activemq.stream.interval} the latest {@link BrokerSnapshot}s are collected once
+ * for all clients, so the load on the brokers does not depend on the number of clients. A client
+ * receives at most one event per interval, if a client is still busy with the previous event, its
+ * changes are combined into the next one.
+ */
+public class DestinationStreamService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DestinationStreamService.class);
+    public static final String SNAPSHOT_EVENT = "snapshot";
+    public static final String DELTA_EVENT = "delta";
+    @Autowired
+    MonitoredBrokers monitoredBrokers;
+    @Autowired
+    ActiveMqStreamConfigurationProperties configurationProperties;
+    Clock clock = Clock.systemUTC();
+    final List<Client> clients = new CopyOnWriteArrayList<>();
+    /**
+     * Guards checking the number of clients and adding a new one, so concurrent subscribes cannot
+     * exceed the maximum number of clients.
+     */
+    private final ReentrantLock subscribeLock = new ReentrantLock();
+    private ScheduledExecutorService scheduler;
+    private ExecutorService sender;
+
+    /**
+     * Starts the periodic publishing of the changed destinations.
+     */
+    @PostConstruct
+    public void init() {
+        var interval = configurationProperties.getInterval();
+        this.sender = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("activemq-stream-", 0).factory());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("activemq-stream").daemon().factory());
+        this.scheduler.scheduleWithFixedDelay(
+            this::publishQuietly, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (sender != null) {
+            sender.shutdownNow();
+        }
+        clients.forEach(client -> client.emitter.complete());
+        clients.clear();
+    }
+
+    /**
+     * Connects a new client, which receives all destinations right away.
+     *
+     * @return the emitter of the events sent to the client
+     * @throws IllegalStateException if the maximum number of clients is connected
+     */
+    public SseEmitter subscribe() {
+        var client = new Client(newEmitter(configurationProperties.getTimeout().toMillis()));
+        subscribeLock.lock();
+        try {
+            if (clients.size() >= configurationProperties.getMaxClients()) {
+                throw new IllegalStateException(
+                    "Already " + clients.size() + " clients are streaming the destinations");
+            }
+            clients.add(client);
+        } finally {
+            subscribeLock.unlock();
+        }
+        client.emitter.onCompletion(() -> clients.remove(client));
+        client.emitter.onTimeout(() -> clients.remove(client));
+        client.emitter.onError(e -> clients.remove(client));
+        LOGGER.debug("Client connected to the destination stream, [{}] clients", clients.size());
+
+        client.busy.set(true);
+        sender.execute(() -> {
+            try {
+                send(client, destinations());
+            } catch (RuntimeException e) {
+                client.busy.set(false);
+                LOGGER.warn("Error while sending the ActiveMQ destinations to a new client", e);
+            }
+        });
+        return client.emitter;
+    }
+
+    SseEmitter newEmitter(long timeout) {
+        return new SseEmitter(timeout);
+    }
+
+    /**
+     * Sends the changed destinations to every client which is not busy with a previous event.
+     */
+    void publish() {
+        if (clients.isEmpty()) {
+            return;
+        }
+        var current = destinations();
+        for (Client client : clients) {
+            if (client.busy.compareAndSet(false, true)) {
+                sender.execute(() -> send(client, current));
+            }
+        }
+    }
+
+    private void publishQuietly() {
+        try {
+            publish();
+        } catch (RuntimeException e) {
+            // the next run must not be suppressed, so the exception is only logged
+            LOGGER.warn("Error while publishing the ActiveMQ destinations", e);
+        }
+    }
+
+    private Map<String, DestinationInfo> destinations() {
+        Map<String, DestinationInfo> destinations = new LinkedHashMap<>();
+        monitoredBrokers.getSnapshots().stream()
+                        .map(MonitoredBrokers.BrokerSnapshotResult::snapshot)
+                        .filter(Objects::nonNull)
+                        .flatMap(snapshot -> snapshot.destinations().stream())
+                        .forEach(info -> destinations.put(streamKey(info), info));
+        return destinations;
+    }
+
+    private void send(Client client, Map<String, DestinationInfo> current) {
+        try {
+            if (client.lastSent == null) {
+                client.emitter.send(SseEmitter.event()
+                                              .name(SNAPSHOT_EVENT)
+                                              .data(List.copyOf(current.values())));
+                client.lastSent = current;
+                return;
+            }
+            var delta = delta(client.lastSent, current);
+            if (delta.getChanged().isEmpty() && delta.getRemoved().isEmpty()) {
+                return;
+            }
+            delta.setTime(clock.instant());
+            client.emitter.send(SseEmitter.event().name(DELTA_EVENT).data(delta));
+            client.lastSent = current;
+        } catch (IOException | IllegalStateException e) {
+            LOGGER.debug("Client of the destination stream is gone", e);
+            clients.remove(client);
+            client.emitter.completeWithError(e);
+        } finally {
+            client.busy.set(false);
+        }
+    }
+
+    /**
+     * Compares the destinations sent before with the current ones.
+     *
+     * @param previous the destinations sent before by their stream key
+     * @param current  the current destinations by their stream key
+     * @return the added destinations and the ones whose counters changed, and the removed ones
+     */
+    static DestinationsDelta delta(
+        Map<String, DestinationInfo> previous, Map<String, DestinationInfo> current) {
+        var delta = new DestinationsDelta();
+        current.forEach((key, info) -> {
+            var sent = previous.get(key);
+            if (sent == null || countersChanged(sent, info)) {
+                delta.getChanged().add(info);
+            }
+        });
+        previous.forEach((key, info) -> {
+            if (!current.containsKey(key)) {
+                delta.getRemoved().add(info);
+            }
+        });
+        return delta;
+    }
+
+    private static boolean countersChanged(DestinationInfo sent, DestinationInfo info) {
+        return sent.getQueueSize() != info.getQueueSize()
+            || sent.getEnqueueCount() != info.getEnqueueCount()
+            || sent.getDequeueCount() != info.getDequeueCount()
+            || sent.getDispatchCount() != info.getDispatchCount()
+            || sent.getConsumerCount() != info.getConsumerCount();
+    }
+
+    static String streamKey(DestinationInfo info) {
+        return info.getBroker() + ":"
+            + DestinationService.destinationKey(info.getType(), info.getName());
+    }
+
+    static class Client {
+        final SseEmitter emitter;
+        final AtomicBoolean busy = new AtomicBoolean();
+        volatile Map<String, DestinationInfo> lastSent;
+
+        Client(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.service;
+
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqEndpointConfigurationProperties;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import javax.management.JMException;
+import javax.management.MBeanServerConnection;
+import javax.management.Notification;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnectionNotification;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import org.apache.activemq.broker.jmx.BrokerMBeanSupport;
+import org.apache.activemq.broker.jmx.ManagementContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds one connection per configured {@code monitor.activemq.jmx-url} and hands out the
+ * connection to the master broker.
+ *
+ * <p>The connections are opened and checked on a background thread every
+ * {@code monitor.activemq.jmx-connection.check-interval}: an open connection is alive if the
+ * broker MBean can be queried, a failed connection is closed and opened again after a backoff
+ * which doubles with every failed attempt up to {@code max-backoff}. The first url in the
+ * configured order serving a broker which is not a slave is the active one, so a master/slave pair
+ * fails over as soon as the check notices the new master. A connection reporting its failure is
+ * checked at once. Readers are never blocked by a connect, {@link #getConnection()} fails fast if
+ * no broker is reachable, including the time until the first check has finished.
+ *
+ * <p>Every connect and check is abandoned after {@code monitor.activemq.jmx-connection.timeout},
+ * so a hung JMX server only delays the check of the other urls by that timeout.
+ */
+public class JmxConnectionPool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JmxConnectionPool.class);
+    final ActiveMqEndpointConfigurationProperties configurationProperties;
+    Clock clock = Clock.systemUTC();
+    private List<PooledConnection> connections = List.of();
+    private volatile PooledConnection active;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService jmxCalls;
+
+    /**
+     * Creates the pool, the connections are opened by {@link #init()}.
+     *
+     * @param configurationProperties the urls and connection settings of the broker
+     */
+    public JmxConnectionPool(ActiveMqEndpointConfigurationProperties configurationProperties) {
+        this.configurationProperties = configurationProperties;
+    }
+
+    /**
+     * Starts the periodic check, which opens the connections to the configured urls in the
+     * background right away.
+     */
+    public void init() {
+        var urls = configurationProperties.getJmxUrl();
+        if (urls.isEmpty()) {
+            return;
+        }
+        connections = urls.stream().map(PooledConnection::new).toList();
+        this.jmxCalls = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("activemq-jmx-call-", 0).factory());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("activemq-jmx-check").daemon().factory());
+        // an unreachable broker must not delay the startup, so the first connect is done in the
+        // background as well
+        var interval = configurationProperties.getJmxConnection().getCheckInterval();
+        this.scheduler.scheduleWithFixedDelay(
+            this::checkConnections, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the checks and closes all connections.
+     */
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (jmxCalls != null) {
+            jmxCalls.shutdownNow();
+        }
+        active = null;
+        connections.forEach(PooledConnection::close);
+    }
+
+    /**
+     * Returns the connection to the master broker.
+     *
+     * @return the connection of the active url
+     * @throws IOException if no configured url serves a master broker at the moment
+     */
+    public MBeanServerConnection getConnection() throws IOException {
+        var current = active;
+        if (current == null || current.connection == null) {
+            throw new IOException(
+                "No connection to a master broker available on " + connectionUrls());
+        }
+        return current.connection;
+    }
+
+    /**
+     * Returns the url of the active connection.
+     *
+     * @return the url or {@code null} if no broker is reachable
+     */
+    public JMXServiceURL getActiveUrl() {
+        var current = active;
+        return current == null ? null : current.url;
+    }
+
+    /**
+     * Checks all connections, reconnects failed ones whose backoff has passed and chooses the
+     * active connection.
+     */
+    synchronized void checkConnections() {
+        PooledConnection master = null;
+        for (PooledConnection pooled : connections) {
+            check(pooled);
+            if (master == null && pooled.master) {
+                master = pooled;
+            }
+        }
+        var previous = active;
+        active = master;
+        if (master != previous) {
+            if (master == null) {
+                LOGGER.warn("No master broker reachable on {}", connectionUrls());
+            } else {
+                LOGGER.info("Reading the broker through [{}]", master.url);
+            }
+        }
+    }
+
+    private void check(PooledConnection pooled) {
+        var now = clock.instant();
+        if (pooled.connector == null && now.isBefore(pooled.nextAttempt)) {
+            return;
+        }
+        try {
+            if (pooled.connector == null) {
+                connect(pooled);
+            }
+            var connection = pooled.connection;
+            pooled.master = withTimeout(pooled, () -> hasMasterBroker(connection), null);
+            pooled.failures = 0;
+        } catch (IOException | JMException | SecurityException e) {
+            pooled.close();
+            pooled.failures++;
+            var backoff = backoff(pooled.failures);
+            pooled.nextAttempt = now.plus(backoff);
+            LOGGER.warn(
+                "JMX connection to [{}] failed, retrying in [{}]: {}", pooled.url, backoff,
+                e.toString()
+            );
+        }
+    }
+
+    private void connect(PooledConnection pooled) throws IOException {
+        Map<String, Object> env = new HashMap<>();
+        if (configurationProperties.getJmxUser() != null) {
+            env.put(
+                JMXConnector.CREDENTIALS,
+                new String[] {
+                    configurationProperties.getJmxUser(), configurationProperties.getJmxPassword()
+                }
+            );
+        }
+        final JMXConnector connector;
+        try {
+            connector = withTimeout(
+                pooled, () -> JMXConnectorFactory.connect(pooled.url, env),
+                PooledConnection::closeQuietly
+            );
+        } catch (JMException e) {
+            throw new IOException(e);
+        }
+        connector.addConnectionNotificationListener(
+            (notification, handback) -> onConnectionNotification(pooled, notification), null,
+            null
+        );
+        pooled.connector = connector;
+        pooled.connection = connector.getMBeanServerConnection();
+        LOGGER.debug("Connected to [{}]", pooled.url);
+    }
+
+    private void onConnectionNotification(PooledConnection pooled, Notification notification) {
+        if (JMXConnectionNotification.FAILED.equals(notification.getType())
+            || JMXConnectionNotification.CLOSED.equals(notification.getType())) {
+            pooled.master = false;
+            if (active == pooled && scheduler != null && !scheduler.isShutdown()) {
+                // look for another master without waiting for the next check
+                scheduler.execute(this::checkConnections);
+            }
+        }
+    }
+
+    /**
+     * Runs a JMX call on its own thread and waits for it at most the configured timeout.
+     *
+     * @param pooled    the connection the call is made on
+     * @param call      the JMX call
+     * @param abandoned cleans up the result of a call finishing after the timeout, may be null
+     * @return the result of the call
+     * @throws IOException if the call fails or does not finish within the timeout
+     * @throws JMException if the call fails with a JMX exception
+     */
+    private <T> T withTimeout(PooledConnection pooled, Callable<T> call, Consumer<T> abandoned)
+        throws IOException, JMException {
+        var timeout = configurationProperties.getJmxConnection().getTimeout();
+        var future = new CompletableFuture<T>();
+        jmxCalls.execute(() -> {
+            try {
+                future.complete(call.call());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        });
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (abandoned != null) {
+                future.thenAccept(abandoned);
+            }
+            throw new IOException(
+                "JMX call to [" + pooled.url + "] did not finish within " + timeout, e);
+        } catch (InterruptedException e) {
+            if (abandoned != null) {
+                future.thenAccept(abandoned);
+            }
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while calling [" + pooled.url + "]", e);
+        } catch (ExecutionException e) {
+            switch (e.getCause()) {
+                case IOException io -> throw io;
+                case JMException jmx -> throw jmx;
+                case RuntimeException runtime -> throw runtime;
+                default -> throw new IOException(e.getCause());
+            }
+        }
+    }
+
+    private boolean hasMasterBroker(MBeanServerConnection connection)
+        throws IOException, JMException {
+        var brokerName = configurationProperties.getBrokerName();
+        var pattern = brokerName == null || brokerName.isEmpty()
+            ? new ObjectName(ManagementContext.DEFAULT_DOMAIN + ":type=Broker,brokerName=*")
+            : BrokerMBeanSupport.createBrokerObjectName(
+                ManagementContext.DEFAULT_DOMAIN, brokerName);
+        for (ObjectName broker : connection.queryNames(pattern, null)) {
+            if (!Boolean.TRUE.equals(connection.getAttribute(broker, "Slave"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    Duration backoff(int failures) {
+        var jmxConnection = configurationProperties.getJmxConnection();
+        var maxBackoff = jmxConnection.getMaxBackoff();
+        var backoff = jmxConnection.getInitialBackoff();
+        for (var i = 1; i < failures && backoff.compareTo(maxBackoff) < 0; i++) {
+            backoff = backoff.multipliedBy(2);
+        }
+        return backoff.compareTo(maxBackoff) < 0 ? backoff : maxBackoff;
+    }
+
+    private List<JMXServiceURL> connectionUrls() {
+        return connections.stream().map(pooled -> pooled.url).toList();
+    }
+
+    /**
+     * The connection to one configured url, only modified by the checking thread.
+     */
+    private static final class PooledConnection {
+        private final JMXServiceURL url;
+        private volatile JMXConnector connector;
+        private volatile MBeanServerConnection connection;
+        private volatile boolean master;
+        private int failures;
+        private Instant nextAttempt = Instant.MIN;
+
+        PooledConnection(JMXServiceURL url) {
+            this.url = url;
+        }
+
+        void close() {
+            var current = connector;
+            connector = null;
+            connection = null;
+            master = false;
+            if (current != null) {
+                closeQuietly(current);
+            }
+        }
+
+        static void closeQuietly(JMXConnector connector) {
+            try {
+                connector.close();
+            } catch (IOException e) {
+                LOGGER.debug("Error while closing the JMX connection", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.service;
+
+import java.time.Duration;
+
+/**
+ * One monitored broker with its own connection, destinations and snapshot.
+ *
+ * @param name               the name of the broker in the endpoint, health and metrics
+ * @param timeout            how long a reader waits for the statistics of the broker
+ * @param destinationService the destinations of the broker
+ * @param snapshotService    the statistics of the broker
+ * @param jmxConnectionPool  the pooled JMX connections to the broker
+ */
+public record MonitoredBroker(
+    String name, Duration timeout, DestinationService destinationService,
+    BrokerSnapshotService snapshotService, JmxConnectionPool jmxConnectionPool) {
+
+    void shutdown() {
+        destinationService.shutdown();
+        snapshotService.shutdown();
+        jmxConnectionPool.shutdown();
+    }
+}
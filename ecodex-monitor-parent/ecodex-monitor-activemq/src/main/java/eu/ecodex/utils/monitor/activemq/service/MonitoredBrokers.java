@@ -0,0 +1,203 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.activemq.service;
+
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqBrokerProperties;
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqEndpointConfigurationProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.activemq.web.BrokerFacade;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Creates and holds the monitored brokers.
+ *
+ * <p>Every broker defined in {@code monitor.activemq.brokers} gets its own facade, JMX connections,
+ * destinations and snapshot, so the brokers are polled independently of each other. If no brokers
+ * are defined, the single broker configured by the connection settings of
+ * {@link ActiveMqEndpointConfigurationProperties} is monitored under the name of its
+ * {@code brokerName} or {@value #DEFAULT_BROKER_NAME}. If the application provides a
+ * {@link BrokerFacade} bean, this single broker is read through it instead of a facade created from
+ * the connection settings.
+ *
+ * <p>The snapshots of all brokers are collected concurrently. A broker which does not deliver its
+ * snapshot within its {@code timeout} does not delay the others, it is reported with its last
+ * snapshot, if any. While the statistics of a broker are read, no further read of this broker is
+ * started, so a hung broker ties up a single thread however often the snapshots are collected.
+ */
+public class MonitoredBrokers {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MonitoredBrokers.class);
+    public static final String DEFAULT_BROKER_NAME = "default";
+    @Autowired
+    ActiveMqEndpointConfigurationProperties configurationProperties;
+    @Autowired(required = false)
+    BrokerFacade applicationBrokerFacade;
+    private List<MonitoredBroker> brokers = List.of();
+    private ExecutorService executor;
+
+    /**
+     * Creates the monitored brokers and starts their polling.
+     */
+    @PostConstruct
+    public void init() {
+        List<ActiveMqBrokerProperties> definitions = configurationProperties.getBrokers();
+        if (definitions.isEmpty()) {
+            definitions = List.of(defaultBroker());
+        }
+        var names = new HashSet<String>();
+        for (ActiveMqBrokerProperties definition : definitions) {
+            if (definition.getName() == null || !names.add(definition.getName())) {
+                throw new IllegalArgumentException(
+                    "Every monitored broker needs a unique name, got [" + definition.getName()
+                        + "]");
+            }
+        }
+        this.executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("activemq-read-", 0).factory());
+        var facade = hasBrokerDefinitions() ? null : applicationBrokerFacade;
+        this.brokers = definitions.stream().map(d -> createBroker(d, facade)).toList();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        brokers.forEach(MonitoredBroker::shutdown);
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public List<MonitoredBroker> getBrokers() {
+        return brokers;
+    }
+
+    /**
+     * Checks whether the brokers are defined in {@code monitor.activemq.brokers}.
+     *
+     * @return true if the brokers are named by their definitions, false if the single broker of the
+     *      connection settings is monitored
+     */
+    public boolean hasBrokerDefinitions() {
+        return !configurationProperties.getBrokers().isEmpty();
+    }
+
+    /**
+     * Collects the snapshots of all brokers concurrently.
+     *
+     * @return the snapshot of each broker in the configured order, a broker which did not deliver
+     *      its snapshot within its timeout is reported with its last snapshot and an error
+     */
+    public List<BrokerSnapshotResult> getSnapshots() {
+        long start = System.nanoTime();
+        List<CompletableFuture<BrokerSnapshot>> futures = new ArrayList<>(brokers.size());
+        for (MonitoredBroker broker : brokers) {
+            futures.add(broker.snapshotService().getSnapshotAsync(executor));
+        }
+
+        List<BrokerSnapshotResult> results = new ArrayList<>(brokers.size());
+        for (var i = 0; i < brokers.size(); i++) {
+            var broker = brokers.get(i);
+            try {
+                long remaining =
+                    Math.max(0, start + broker.timeout().toNanos() - System.nanoTime());
+                results.add(new BrokerSnapshotResult(
+                    broker, futures.get(i).get(remaining, TimeUnit.NANOSECONDS), null));
+            } catch (TimeoutException e) {
+                // only the wait is cancelled, the running read serves the next caller
+                futures.get(i).cancel(false);
+                LOGGER.warn(
+                    "Broker [{}] did not deliver its statistics within [{}]", broker.name(),
+                    broker.timeout()
+                );
+                results.add(lastSnapshot(
+                    broker, "Statistics not read within " + broker.timeout()));
+            } catch (ExecutionException e) {
+                results.add(lastSnapshot(broker, String.valueOf(e.getCause().getMessage())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results.add(lastSnapshot(broker, "Reading the statistics has been interrupted"));
+            }
+        }
+        return results;
+    }
+
+    private BrokerSnapshotResult lastSnapshot(MonitoredBroker broker, String error) {
+        return new BrokerSnapshotResult(
+            broker, broker.snapshotService().getCurrentSnapshot().orElse(null), error);
+    }
+
+    private ActiveMqBrokerProperties defaultBroker() {
+        var broker = new ActiveMqBrokerProperties();
+        var brokerName = configurationProperties.getBrokerName();
+        broker.setName(
+            brokerName == null || brokerName.isEmpty() ? DEFAULT_BROKER_NAME : brokerName);
+        broker.setLocalJmx(configurationProperties.isLocalJmx());
+        broker.setJmxUrl(configurationProperties.getJmxUrl());
+        broker.setBrokerName(brokerName);
+        broker.setJmxUser(configurationProperties.getJmxUser());
+        broker.setJmxPassword(configurationProperties.getJmxPassword());
+        broker.setTimeout(configurationProperties.getTimeout());
+        return broker;
+    }
+
+    private MonitoredBroker createBroker(ActiveMqBrokerProperties definition,
+                                         BrokerFacade providedFacade) {
+        LOGGER.info("Monitoring ActiveMQ broker [{}]", definition.getName());
+        var props = configurationProperties.forBroker(definition);
+
+        var jmxConnectionPool = new JmxConnectionPool(props);
+        BrokerFacade brokerFacade;
+        if (providedFacade != null) {
+            LOGGER.info("Reading broker [{}] through the provided BrokerFacade",
+                        definition.getName());
+            brokerFacade = providedFacade;
+        } else {
+            jmxConnectionPool.init();
+            brokerFacade = new BrokerFacadeFactory(props, jmxConnectionPool).getBrokerFacade();
+        }
+
+        var destinationFilter = new DestinationFilter(props.getDestinations());
+        var snapshotService = new BrokerSnapshotService(
+            definition.getName(), new DestinationStatisticsReader(brokerFacade, destinationFilter),
+            new DestinationRateEstimator(props), props
+        );
+        var destinationService =
+            new DestinationService(brokerFacade, destinationFilter, props, snapshotService);
+
+        destinationService.init();
+        snapshotService.init();
+        return new MonitoredBroker(
+            definition.getName(), definition.getTimeout(), destinationService, snapshotService,
+            jmxConnectionPool
+        );
+    }
+
+    /**
+     * The snapshot of one broker collected by {@link #getSnapshots()}.
+     *
+     * @param broker   the broker
+     * @param snapshot the snapshot or {@code null} if none could be read yet
+     * @param error    why the current snapshot could not be read, {@code null} if it was read
+     */
+    public record BrokerSnapshotResult(
+        MonitoredBroker broker, BrokerSnapshot snapshot, String error) {
+    }
+}
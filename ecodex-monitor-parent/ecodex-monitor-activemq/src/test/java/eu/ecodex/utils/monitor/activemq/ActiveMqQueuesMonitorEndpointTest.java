@@ -1,6 +1,7 @@
 package eu.ecodex.utils.monitor.activemq;
 
 
+import eu.ecodex.utils.monitor.activemq.dto.BrokerDestinations;
 import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
 import eu.ecodex.utils.monitor.activemq.service.ActiveMqQueuesMonitorEndpoint;
 import org.apache.activemq.broker.BrokerRegistry;
@@ -48,6 +49,8 @@ class ActiveMqQueuesMonitorEndpointTest {
 
         broker.addConnector("vm://localhost?broker.persistent=false");
         broker.start();
+        // the advisory topics of the broker are not monitored by default
+        broker.getAdminView().addQueue("queue1");
 
 
 
@@ -75,15 +78,20 @@ class ActiveMqQueuesMonitorEndpointTest {
         ParameterizedTypeReference t = ParameterizedTypeReference.forType(Collection.class);
 
 
-        ResponseEntity<List<DestinationInfo>> exchange = restTemplate.exchange(url, HttpMethod.GET, entity, new ParameterizedTypeReference<List<DestinationInfo>>(){});
+        ResponseEntity<List<BrokerDestinations>> exchange = restTemplate.exchange(url, HttpMethod.GET, entity, new ParameterizedTypeReference<List<BrokerDestinations>>(){});
 
-        Collection dstCollection = exchange.getBody();
+        assertThat(exchange.getBody()).hasSize(1);
+        BrokerDestinations brokerDestinations = exchange.getBody().get(0);
+        assertThat(brokerDestinations.getError()).isNull();
+        assertThat(brokerDestinations.isStale()).isFalse();
+        Collection dstCollection = brokerDestinations.getDestinations();
 
         assertThat(dstCollection).hasSize(1);
         Iterator it = dstCollection.iterator();
         DestinationInfo next = (DestinationInfo) it.next();
 
         assertThat(next).isNotNull();
+        assertThat(next.getName()).isEqualTo("queue1");
         assertThat(next.getQueueSize()).isEqualTo(0);
 
 
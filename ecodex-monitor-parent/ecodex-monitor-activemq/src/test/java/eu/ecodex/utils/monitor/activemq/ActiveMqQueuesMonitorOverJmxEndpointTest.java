@@ -1,5 +1,6 @@
 package eu.ecodex.utils.monitor.activemq;
 
+import eu.ecodex.utils.monitor.activemq.dto.BrokerDestinations;
 import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
 import eu.ecodex.utils.monitor.activemq.service.ActiveMqQueuesMonitorEndpoint;
 import org.apache.activemq.broker.BrokerRegistry;
@@ -82,9 +83,9 @@ class ActiveMqQueuesMonitorOverJmxEndpointTest {
         ParameterizedTypeReference t = ParameterizedTypeReference.forType(Collection.class);
 
 
-        ResponseEntity<List<DestinationInfo>> exchange = restTemplate.exchange(url, HttpMethod.GET, entity, new ParameterizedTypeReference<List<DestinationInfo>>(){});
+        ResponseEntity<List<BrokerDestinations>> exchange = restTemplate.exchange(url, HttpMethod.GET, entity, new ParameterizedTypeReference<List<BrokerDestinations>>(){});
 
-        Collection dstCollection = exchange.getBody();
+        Collection dstCollection = exchange.getBody().get(0).getDestinations();
 
         assertThat(dstCollection).hasSize(1);
         Iterator it = dstCollection.iterator();
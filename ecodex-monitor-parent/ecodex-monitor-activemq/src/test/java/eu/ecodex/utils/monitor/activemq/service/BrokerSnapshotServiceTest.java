@@ -0,0 +1,126 @@
+package eu.ecodex.utils.monitor.activemq.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqEndpointConfigurationProperties;
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BrokerSnapshotServiceTest {
+    BrokerSnapshotService snapshotService;
+    AtomicInteger reads = new AtomicInteger();
+    Exception readFailure;
+    CountDownLatch readBlocker;
+
+    @BeforeEach
+    public void beforeEach() {
+        var config = new ActiveMqEndpointConfigurationProperties();
+        config.getSnapshot().setInterval(Duration.ZERO);
+        config.getSnapshot().setTtl(Duration.ofSeconds(30));
+
+        var statisticsReader = new DestinationStatisticsReader(null, null) {
+            @Override
+            public List<DestinationInfo> readDestinationInfos() throws Exception {
+                reads.incrementAndGet();
+                if (readBlocker != null) {
+                    readBlocker.await();
+                }
+                if (readFailure != null) {
+                    throw readFailure;
+                }
+                return List.of(DestinationInfo.builder()
+                                              .name("queue1")
+                                              .type(DestinationInfo.DestinationType.QUEUE)
+                                              .queueSize(reads.get())
+                                              .build());
+            }
+        };
+        snapshotService = new BrokerSnapshotService(
+            "broker1", statisticsReader, new DestinationRateEstimator(config), config);
+        snapshotService.clock = Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+        snapshotService.init();
+    }
+
+    @Test
+    void getSnapshot_isSharedUntilTtlExpires() {
+        var snapshot = snapshotService.getSnapshot();
+        advanceClock(30);
+
+        assertThat(snapshotService.getSnapshot()).isSameAs(snapshot);
+        assertThat(snapshot.getDestination("QUEUE:queue1").getQueueSize()).isEqualTo(1);
+        assertThat(reads).hasValue(1);
+
+        advanceClock(1);
+
+        assertThat(snapshotService.getSnapshot().getDestination("QUEUE:queue1").getQueueSize())
+            .isEqualTo(2);
+        assertThat(reads).hasValue(2);
+    }
+
+    @Test
+    void getSnapshot_brokerNotReachable_keepsStaleSnapshot() {
+        var snapshot = snapshotService.getSnapshot();
+        readFailure = new IOException("broker not reachable");
+        advanceClock(31);
+
+        assertThat(snapshotService.getSnapshot()).isSameAs(snapshot);
+        assertThat(snapshotService.isStale(snapshot)).isTrue();
+    }
+
+    @Test
+    void getSnapshot_noSnapshotYet_isThrown() {
+        readFailure = new IOException("broker not reachable");
+
+        assertThatThrownBy(() -> snapshotService.getSnapshot())
+            .isInstanceOf(IllegalStateException.class)
+            .hasCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    void getSnapshotAsync_hungBroker_startsOneRead() throws Exception {
+        readBlocker = new CountDownLatch(1);
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var first = snapshotService.getSnapshotAsync(executor);
+            var second = snapshotService.getSnapshotAsync(executor);
+            second.cancel(false);
+            var third = snapshotService.getSnapshotAsync(executor);
+
+            assertThat(first).isNotDone();
+            readBlocker.countDown();
+
+            assertThat(third.get(5, TimeUnit.SECONDS).getDestination("QUEUE:queue1")).isNotNull();
+            assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(third.get());
+            assertThat(reads).hasValue(1);
+        }
+    }
+
+    @Test
+    void meterValue_doesNotReadTheBroker() throws Exception {
+        assertThat(ActiveMqMetricService.value(
+            snapshotService, "QUEUE:queue1", DestinationInfo::getQueueSize)).isNaN();
+        assertThat(reads).hasValue(0);
+
+        snapshotService.refresh();
+        advanceClock(31);
+
+        assertThat(ActiveMqMetricService.value(
+            snapshotService, "QUEUE:queue1", DestinationInfo::getQueueSize)).isEqualTo(1);
+        assertThat(reads).hasValue(1);
+    }
+
+    private void advanceClock(long seconds) {
+        snapshotService.clock = Clock.offset(snapshotService.clock, Duration.ofSeconds(seconds));
+    }
+}
@@ -0,0 +1,67 @@
+package eu.ecodex.utils.monitor.activemq.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqDestinationFilterProperties;
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo.DestinationType;
+import java.util.List;
+import java.util.Set;
+import javax.management.ObjectName;
+import org.apache.activemq.web.LocalBrokerFacade;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+class DestinationFilterTest {
+    @RegisterExtension
+    EmbeddedBrokerExtension broker = new EmbeddedBrokerExtension("filter-test");
+
+    @Test
+    void queryPatterns_containTypesAndIncludedGlobs() throws Exception {
+        var properties = new ActiveMqDestinationFilterProperties();
+        properties.setTypes(Set.of(DestinationType.QUEUE));
+        properties.setInclude(List.of("orders.*", "a:b?"));
+        var filter = new DestinationFilter(properties);
+
+        assertThat(filter.queryPatterns(new ObjectName("org.apache.activemq:type=Broker")))
+            .extracting(name -> name.getKeyProperty("destinationType") + "/"
+                + name.getKeyProperty("destinationName"))
+            .containsExactly("Queue/orders.*", "Queue/a_b?");
+    }
+
+    @Test
+    void matches_checksTypesIncludesAndExcludes() {
+        var properties = new ActiveMqDestinationFilterProperties();
+        properties.setInclude(List.of("orders.*", "regex:audit\\.[0-9]+"));
+        properties.getExclude().add("*.dlq");
+        var filter = new DestinationFilter(properties);
+
+        assertThat(filter.matches(DestinationType.QUEUE, "orders.eu")).isTrue();
+        assertThat(filter.matches(DestinationType.TOPIC, "audit.42")).isTrue();
+        assertThat(filter.matches(DestinationType.QUEUE, "orders.eu.dlq")).isFalse();
+        assertThat(filter.matches(DestinationType.QUEUE, "audit.x")).isFalse();
+        assertThat(filter.matches(DestinationType.NOT_KNOWN, "orders.eu")).isFalse();
+        assertThat(new DestinationFilter(new ActiveMqDestinationFilterProperties())
+                       .matches(DestinationType.TOPIC, "ActiveMQ.Advisory.Queue"))
+            .isFalse();
+    }
+
+    @Test
+    void readDestinationInfos_readsOnlyMonitoredDestinations() throws Exception {
+        broker.addQueue("orders.eu");
+        broker.addQueue("orders.eu.dlq");
+        broker.addQueue("audit");
+        broker.addTopic("orders.events");
+
+        var properties = new ActiveMqDestinationFilterProperties();
+        properties.setTypes(Set.of(DestinationType.QUEUE));
+        properties.setInclude(List.of("orders.*"));
+        properties.getExclude().add("*.dlq");
+        var reader = new DestinationStatisticsReader(
+            new LocalBrokerFacade(broker.getBroker()), new DestinationFilter(properties));
+
+        assertThat(reader.readDestinationInfos())
+            .extracting(DestinationInfo::getName)
+            .containsExactly("orders.eu");
+    }
+}
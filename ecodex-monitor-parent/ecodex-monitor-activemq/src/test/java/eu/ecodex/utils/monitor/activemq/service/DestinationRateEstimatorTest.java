@@ -0,0 +1,78 @@
+package eu.ecodex.utils.monitor.activemq.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqEndpointConfigurationProperties;
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DestinationRateEstimatorTest {
+    static final Instant START = Instant.parse("2026-01-01T00:00:00Z");
+    DestinationRateEstimator estimator;
+
+    @BeforeEach
+    public void beforeEach() {
+        var config = new ActiveMqEndpointConfigurationProperties();
+        config.getSnapshot().setRateWindow(Duration.ofMinutes(1));
+        estimator = new DestinationRateEstimator(config);
+    }
+
+    @Test
+    void update_drainingQueue_estimatesRatesAndTimeToDrain() {
+        var first = update(0, 1000, 0, 1000);
+        assertThat(first.getEnqueueRate()).isNull();
+        assertThat(first.getTimeToDrainSeconds()).isNull();
+
+        // 10 messages/s in, 30 messages/s out
+        var info = update(15, 1150, 450, 700);
+        for (var seconds = 30; seconds <= 600; seconds += 15) {
+            info = update(seconds, 1000 + seconds * 10, seconds * 30, 1000 - seconds * 20);
+        }
+
+        assertThat(info.getEnqueueRate()).isCloseTo(10, within(0.01));
+        assertThat(info.getDequeueRate()).isCloseTo(30, within(0.01));
+        assertThat(info.getNetGrowthRate()).isCloseTo(-20, within(0.01));
+        assertThat(info.getTimeToDrainSeconds()).isCloseTo(info.getQueueSize() / 20.0,
+                                                           within(0.1));
+        assertThat(info.getDequeueStalledSince()).isNull();
+    }
+
+    @Test
+    void update_stalledConsumer_reportsStalledSince() {
+        update(0, 100, 50, 50);
+        update(15, 110, 60, 50);
+        var info = update(30, 120, 60, 60);
+        info = update(45, 130, 60, 70);
+
+        assertThat(info.getDequeueStalledSince()).isEqualTo(START.plusSeconds(15));
+        assertThat(info.getNetGrowthRate()).isPositive();
+        assertThat(info.getTimeToDrainSeconds()).isNull();
+    }
+
+    @Test
+    void update_countersReset_startsAgain() {
+        update(0, 100, 50, 50);
+        update(15, 110, 60, 50);
+
+        var info = update(30, 5, 0, 5);
+
+        assertThat(info.getEnqueueRate()).isNull();
+        assertThat(info.getDequeueStalledSince()).isNull();
+    }
+
+    private DestinationInfo update(long seconds, long enqueued, long dequeued, long size) {
+        var info = DestinationInfo.builder()
+                                  .name("queue1")
+                                  .type(DestinationInfo.DestinationType.QUEUE)
+                                  .enqueueCount(enqueued)
+                                  .dequeueCount(dequeued)
+                                  .queueSize(size)
+                                  .build();
+        return estimator.update(START.plusSeconds(seconds), List.of(info)).getFirst();
+    }
+}
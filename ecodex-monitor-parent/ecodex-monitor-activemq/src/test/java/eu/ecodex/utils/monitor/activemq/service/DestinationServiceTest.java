@@ -0,0 +1,108 @@
+package eu.ecodex.utils.monitor.activemq.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqDestinationFilterProperties;
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqEndpointConfigurationProperties;
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import org.apache.activemq.broker.jmx.DestinationViewMBean;
+import org.apache.activemq.web.LocalBrokerFacade;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+class DestinationServiceTest {
+    @RegisterExtension
+    EmbeddedBrokerExtension broker = new EmbeddedBrokerExtension("rediscovery-test");
+    DestinationService destinationService;
+    BrokerSnapshotService snapshotService;
+    ActiveMqMetricService metricService;
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    public void beforeEach() throws Exception {
+        broker.addQueue("queue1");
+
+        var config = new ActiveMqEndpointConfigurationProperties();
+        config.setRediscoveryInterval(Duration.ZERO);
+        config.getSnapshot().setInterval(Duration.ZERO);
+        var brokerFacade = new LocalBrokerFacade(broker.getBroker());
+        var destinationFilter = new DestinationFilter(new ActiveMqDestinationFilterProperties());
+        snapshotService = new BrokerSnapshotService(
+            "broker1", new DestinationStatisticsReader(brokerFacade, destinationFilter),
+            new DestinationRateEstimator(config), config
+        );
+        destinationService =
+            new DestinationService(brokerFacade, destinationFilter, config, snapshotService);
+        destinationService.init();
+        snapshotService.init();
+
+        var monitoredBroker = new MonitoredBroker(
+            "broker1", Duration.ofSeconds(1), destinationService, snapshotService,
+            new JmxConnectionPool(config)
+        );
+        metricService = new ActiveMqMetricService();
+        metricService.monitoredBrokers = new MonitoredBrokers() {
+            @Override
+            public List<MonitoredBroker> getBrokers() {
+                return List.of(monitoredBroker);
+            }
+        };
+        metricService.meterRegistry = meterRegistry;
+        metricService.init();
+    }
+
+    @AfterEach
+    public void afterEach() throws Exception {
+        destinationService.shutdown();
+        snapshotService.shutdown();
+    }
+
+    @Test
+    void rediscover_registersAndRemovesMeters() throws Exception {
+        var queue1 = destinationService.getDestinations().getFirst();
+        assertThat(destinationService.getDestinations())
+            .extracting(DestinationViewMBean::getName)
+            .containsExactly("queue1");
+        assertThat(meterRegistry.find("activemq.destination.size")
+                                .tags("broker", "broker1", "destination", "queue1", "type", "queue")
+                                .gauge())
+            .isNotNull();
+
+        broker.addQueue("queue2");
+        destinationService.rediscover();
+
+        assertThat(destinationService.getDestinations())
+            .extracting(DestinationViewMBean::getName)
+            .containsExactlyInAnyOrder("queue1", "queue2");
+        assertThat(destinationService.getDestinations()).contains(queue1);
+        snapshotService.refresh();
+        assertThat(meterRegistry.get("activemq.destination.size")
+                                .tag("destination", "queue2")
+                                .gauge()
+                                .value())
+            .isZero();
+        assertThat(meterRegistry.get("activemq.destination.enqueued")
+                                .tag("destination", "queue2")
+                                .functionCounter()
+                                .count())
+            .isZero();
+
+        broker.getBroker().getAdminView().removeQueue("queue1");
+        destinationService.rediscover();
+
+        assertThat(destinationService.getDestinations())
+            .extracting(DestinationViewMBean::getName)
+            .containsExactly("queue2");
+        assertThat(meterRegistry.getMeters())
+            .noneMatch(meter -> "queue1".equals(meter.getId().getTag("destination")));
+        assertThat(metricService.meters).containsOnlyKeys("broker1:QUEUE:queue2");
+        assertThat(snapshotService.getSnapshot().destinations())
+            .extracting(DestinationInfo::getBroker)
+            .containsOnly("broker1");
+    }
+}
@@ -0,0 +1,113 @@
+package eu.ecodex.utils.monitor.activemq.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqDestinationFilterProperties;
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
+import jakarta.jms.Session;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import javax.management.MBeanServerInvocationHandler;
+import javax.management.ObjectName;
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.broker.jmx.BrokerViewMBean;
+import org.apache.activemq.web.BrokerFacade;
+import org.apache.activemq.web.BrokerFacadeSupport;
+import org.apache.activemq.web.LocalBrokerFacade;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+class DestinationStatisticsReaderTest {
+    @RegisterExtension
+    EmbeddedBrokerExtension broker = new EmbeddedBrokerExtension("statistics-test");
+
+    @BeforeEach
+    public void beforeEach() throws Exception {
+        broker.addQueue("queue2");
+        broker.addTopic("topic1");
+
+        var connectionFactory =
+            new ActiveMQConnectionFactory("vm://statistics-test?create=false");
+        try (var connection = connectionFactory.createConnection();
+             var session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+             var producer = session.createProducer(session.createQueue("queue1"))) {
+            for (var i = 0; i < 3; i++) {
+                producer.send(session.createTextMessage("message " + i));
+            }
+        }
+    }
+
+    @Test
+    void readDestinationInfos_localBroker() throws Exception {
+        var reader = reader(new LocalBrokerFacade(broker.getBroker()));
+
+        assertStatistics(reader.readDestinationInfos());
+    }
+
+    @Test
+    void readDestinationInfos_jmxProxies_matchesProxyGetters() throws Exception {
+        var facade = new PlatformMBeanServerBrokerFacade();
+        var reader = reader(facade);
+
+        var infos = reader.readDestinationInfos();
+
+        assertStatistics(infos);
+        List<DestinationInfo> expected = new ArrayList<>();
+        facade.getQueues()
+              .forEach(dst -> expected.add(DestinationStatisticsReader.toDestinationInfo(dst)));
+        facade.getTopics()
+              .forEach(dst -> expected.add(DestinationStatisticsReader.toDestinationInfo(dst)));
+        assertThat(infos).containsExactlyInAnyOrderElementsOf(expected);
+    }
+
+    private static DestinationStatisticsReader reader(BrokerFacade brokerFacade) {
+        return new DestinationStatisticsReader(
+            brokerFacade, new DestinationFilter(new ActiveMqDestinationFilterProperties()));
+    }
+
+    private void assertStatistics(List<DestinationInfo> infos) {
+        assertThat(infos)
+            .extracting(DestinationInfo::getType, DestinationInfo::getName)
+            .containsExactly(
+                tuple(DestinationInfo.DestinationType.QUEUE, "queue1"),
+                tuple(DestinationInfo.DestinationType.QUEUE, "queue2"),
+                tuple(DestinationInfo.DestinationType.TOPIC, "topic1")
+            );
+        var queue1 = infos.getFirst();
+        assertThat(queue1.getQueueSize()).isEqualTo(3);
+        assertThat(queue1.getEnqueueCount()).isEqualTo(3);
+        assertThat(queue1.getMemoryLimit()).isPositive();
+    }
+
+    /**
+     * Hands out proxies of the broker MBeans, as the JMX facades do.
+     */
+    private class PlatformMBeanServerBrokerFacade extends BrokerFacadeSupport {
+        @Override
+        public String getBrokerName() {
+            return broker.getBroker().getBrokerName();
+        }
+
+        @Override
+        public BrokerViewMBean getBrokerAdmin() throws Exception {
+            return MBeanServerInvocationHandler.newProxyInstance(
+                broker.getBroker().getManagementContext().getMBeanServer(),
+                broker.getBroker().getBrokerObjectName(), BrokerViewMBean.class, true
+            );
+        }
+
+        @Override
+        protected <T> Collection<T> getManagedObjects(ObjectName[] names, Class<T> type) {
+            List<T> answer = new ArrayList<>();
+            for (ObjectName name : names) {
+                answer.add(MBeanServerInvocationHandler.newProxyInstance(
+                    broker.getBroker().getManagementContext().getMBeanServer(), name, type,
+                    true));
+            }
+            return answer;
+        }
+    }
+}
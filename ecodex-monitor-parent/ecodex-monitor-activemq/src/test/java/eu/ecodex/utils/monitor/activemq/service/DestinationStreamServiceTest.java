@@ -0,0 +1,136 @@
+package eu.ecodex.utils.monitor.activemq.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.InstanceOfAssertFactories.LIST;
+
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqStreamConfigurationProperties;
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
+import eu.ecodex.utils.monitor.activemq.dto.DestinationsDelta;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+class DestinationStreamServiceTest {
+    DestinationStreamService streamService;
+    volatile List<DestinationInfo> destinations;
+    BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    public void beforeEach() {
+        var config = new ActiveMqStreamConfigurationProperties();
+        config.setInterval(Duration.ofHours(1));
+        streamService = new DestinationStreamService() {
+            @Override
+            SseEmitter newEmitter(long timeout) {
+                return new SseEmitter(timeout) {
+                    @Override
+                    public void send(SseEventBuilder builder) {
+                        builder.build().stream()
+                               .map(DataWithMediaType::getData)
+                               .filter(data -> !(data instanceof String))
+                               .forEach(events::add);
+                    }
+                };
+            }
+        };
+        streamService.configurationProperties = config;
+        streamService.monitoredBrokers = new MonitoredBrokers() {
+            @Override
+            public List<BrokerSnapshotResult> getSnapshots() {
+                return List.of(new BrokerSnapshotResult(
+                    null, BrokerSnapshot.of(Instant.now(), destinations), null));
+            }
+        };
+        streamService.init();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        streamService.shutdown();
+    }
+
+    @Test
+    void subscribe_sendsSnapshotAndThenChangedDestinations() throws Exception {
+        destinations = List.of(queue("queue1", 1), queue("queue2", 2));
+
+        streamService.subscribe();
+
+        assertThat(events.poll(5, TimeUnit.SECONDS))
+            .asInstanceOf(LIST)
+            .hasSize(2);
+
+        destinations = List.of(queue("queue1", 1), queue("queue2", 3));
+        streamService.publish();
+
+        var delta = (DestinationsDelta) events.poll(5, TimeUnit.SECONDS);
+        assertThat(delta.getChanged()).extracting(DestinationInfo::getName)
+                                      .containsExactly("queue2");
+        assertThat(delta.getRemoved()).isEmpty();
+
+        streamService.publish();
+        assertThat(events.poll(200, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void subscribe_concurrently_neverExceedsMaxClients() throws Exception {
+        destinations = List.of();
+        streamService.configurationProperties.setMaxClients(3);
+
+        var subscribed = new AtomicInteger();
+        var start = new CountDownLatch(1);
+        try (var executor = Executors.newFixedThreadPool(10)) {
+            for (var i = 0; i < 10; i++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                        streamService.subscribe();
+                        subscribed.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (IllegalStateException e) {
+                        // too many clients
+                    }
+                });
+            }
+            start.countDown();
+        }
+
+        assertThat(subscribed).hasValue(3);
+        assertThat(streamService.clients).hasSize(3);
+    }
+
+    @Test
+    void delta_containsAddedChangedAndRemovedDestinations() {
+        var previous = Map.of(
+            "b:QUEUE:queue1", queue("queue1", 1), "b:QUEUE:queue2", queue("queue2", 2));
+        var current = Map.of(
+            "b:QUEUE:queue1", queue("queue1", 5), "b:QUEUE:queue3", queue("queue3", 0));
+
+        var delta = DestinationStreamService.delta(previous, current);
+
+        assertThat(delta.getChanged()).extracting(DestinationInfo::getName)
+                                      .containsExactlyInAnyOrder("queue1", "queue3");
+        assertThat(delta.getRemoved()).extracting(DestinationInfo::getName)
+                                      .containsExactly("queue2");
+    }
+
+    private static DestinationInfo queue(String name, long queueSize) {
+        return DestinationInfo.builder()
+                              .broker("b")
+                              .type(DestinationInfo.DestinationType.QUEUE)
+                              .name(name)
+                              .queueSize(queueSize)
+                              .build();
+    }
+}
@@ -0,0 +1,83 @@
+package eu.ecodex.utils.monitor.activemq.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.MBeanServer;
+import javax.management.remote.JMXConnectorServer;
+import javax.management.remote.JMXConnectorServerFactory;
+import javax.management.remote.JMXServiceURL;
+import org.apache.activemq.broker.BrokerService;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+/**
+ * Starts a non-persistent broker without advisories and without JMX connector before each test.
+ * After the test the broker and the JMX connector servers started by the test are stopped.
+ */
+class EmbeddedBrokerExtension implements BeforeEachCallback, AfterEachCallback {
+    private final String brokerName;
+    private final List<JMXConnectorServer> connectorServers = new ArrayList<>();
+    private BrokerService broker;
+
+    EmbeddedBrokerExtension(String brokerName) {
+        this.brokerName = brokerName;
+    }
+
+    @Override
+    public void beforeEach(ExtensionContext context) throws Exception {
+        broker = new BrokerService();
+        broker.setBrokerName(brokerName);
+        broker.setPersistent(false);
+        broker.setAdvisorySupport(false);
+        broker.getManagementContext().setCreateConnector(false);
+        broker.start();
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) throws Exception {
+        for (JMXConnectorServer server : connectorServers) {
+            server.stop();
+        }
+        connectorServers.clear();
+        broker.stop();
+    }
+
+    BrokerService getBroker() {
+        return broker;
+    }
+
+    void addQueue(String name) throws Exception {
+        broker.getAdminView().addQueue(name);
+    }
+
+    void addTopic(String name) throws Exception {
+        broker.getAdminView().addTopic(name);
+    }
+
+    /**
+     * Serves the MBeans of the broker on a new JMX connector server.
+     *
+     * @return the started connector server
+     * @throws IOException if the connector server cannot be started
+     */
+    JMXConnectorServer startConnectorServer() throws IOException {
+        return startConnectorServer(broker.getManagementContext().getMBeanServer());
+    }
+
+    /**
+     * Serves the MBeans of the provided server on a new JMX connector server.
+     *
+     * @param mbeanServer the served MBean server
+     * @return the started connector server
+     * @throws IOException if the connector server cannot be started
+     */
+    JMXConnectorServer startConnectorServer(MBeanServer mbeanServer) throws IOException {
+        var server = JMXConnectorServerFactory.newJMXConnectorServer(
+            new JMXServiceURL("service:jmx:rmi://localhost"), null, mbeanServer);
+        server.start();
+        connectorServers.add(server);
+        return server;
+    }
+}
@@ -0,0 +1,112 @@
+package eu.ecodex.utils.monitor.activemq.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqDestinationFilterProperties;
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqEndpointConfigurationProperties;
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.List;
+import javax.management.MBeanServerFactory;
+import javax.management.remote.JMXConnectorServer;
+import javax.management.remote.JMXServiceURL;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+class JmxConnectionPoolTest {
+    @RegisterExtension
+    EmbeddedBrokerExtension broker = new EmbeddedBrokerExtension("pool-test");
+    JMXConnectorServer withoutBroker;
+    JMXConnectorServer withBroker;
+    JmxConnectionPool pool;
+    ActiveMqEndpointConfigurationProperties config = new ActiveMqEndpointConfigurationProperties();
+
+    @BeforeEach
+    public void beforeEach() throws Exception {
+        withoutBroker = broker.startConnectorServer(MBeanServerFactory.newMBeanServer());
+        withBroker = broker.startConnectorServer();
+
+        config.setBrokerName("pool-test");
+        config.setJmxUrl(List.of(withoutBroker.getAddress(), withBroker.getAddress()));
+        config.getJmxConnection().setCheckInterval(Duration.ofHours(1));
+        pool = new JmxConnectionPool(config);
+    }
+
+    @AfterEach
+    public void afterEach() {
+        pool.shutdown();
+    }
+
+    @Test
+    void getConnection_usesUrlServingTheBroker() throws Exception {
+        pool.init();
+        pool.checkConnections();
+
+        assertThat(pool.getActiveUrl()).isEqualTo(withBroker.getAddress());
+        var brokerName = broker.getBroker().getBrokerObjectName();
+        assertThat(pool.getConnection().isRegistered(brokerName)).isTrue();
+    }
+
+    @Test
+    void brokerFacade_readsThroughPool() throws Exception {
+        broker.addQueue("queue1");
+        pool.init();
+        pool.checkConnections();
+        var reader = new DestinationStatisticsReader(
+            new BrokerFacadeFactory(config, pool).getBrokerFacade(),
+            new DestinationFilter(new ActiveMqDestinationFilterProperties())
+        );
+
+        assertThat(reader.readDestinationInfos())
+            .extracting(DestinationInfo::getName)
+            .containsExactly("queue1");
+    }
+
+    @Test
+    void getConnection_brokerServerStopped_failsFast() throws Exception {
+        pool.init();
+        pool.checkConnections();
+        withBroker.stop();
+
+        pool.checkConnections();
+
+        assertThat(pool.getActiveUrl()).isNull();
+        assertThatThrownBy(() -> pool.getConnection()).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void init_hungServer_doesNotBlockAndCheckTimesOut() throws Exception {
+        // accepts connections but never answers the RMI handshake
+        try (var hungServer = new ServerSocket(0)) {
+            var port = hungServer.getLocalPort();
+            config.setJmxUrl(List.of(
+                new JMXServiceURL("service:jmx:rmi:///jndi/rmi://localhost:" + port + "/jmxrmi")));
+            config.getJmxConnection().setTimeout(Duration.ofMillis(300));
+
+            var start = System.nanoTime();
+            pool.init();
+            assertThat(System.nanoTime() - start).isLessThan(Duration.ofMillis(300).toNanos());
+            assertThatThrownBy(() -> pool.getConnection()).isInstanceOf(IOException.class);
+
+            start = System.nanoTime();
+            pool.checkConnections();
+            assertThat(System.nanoTime() - start).isLessThan(Duration.ofSeconds(5).toNanos());
+            assertThat(pool.getActiveUrl()).isNull();
+        }
+    }
+
+    @Test
+    void backoff_doublesUpToMaximum() {
+        config.getJmxConnection().setInitialBackoff(Duration.ofSeconds(1));
+        config.getJmxConnection().setMaxBackoff(Duration.ofSeconds(10));
+
+        assertThat(pool.backoff(1)).isEqualTo(Duration.ofSeconds(1));
+        assertThat(pool.backoff(3)).isEqualTo(Duration.ofSeconds(4));
+        assertThat(pool.backoff(100)).isEqualTo(Duration.ofSeconds(10));
+    }
+}
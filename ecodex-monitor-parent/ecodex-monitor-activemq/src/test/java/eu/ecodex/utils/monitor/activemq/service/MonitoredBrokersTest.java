@@ -0,0 +1,126 @@
+package eu.ecodex.utils.monitor.activemq.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.groups.Tuple.tuple;
+
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqBrokerProperties;
+import eu.ecodex.utils.monitor.activemq.config.ActiveMqEndpointConfigurationProperties;
+import eu.ecodex.utils.monitor.activemq.dto.BrokerDestinations;
+import eu.ecodex.utils.monitor.activemq.dto.DestinationInfo;
+import java.time.Duration;
+import java.util.List;
+import javax.management.MBeanServerFactory;
+import javax.management.remote.JMXConnectorServer;
+import javax.management.remote.JMXServiceURL;
+import org.apache.activemq.web.LocalBrokerFacade;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+class MonitoredBrokersTest {
+    @RegisterExtension
+    EmbeddedBrokerExtension broker = new EmbeddedBrokerExtension("brokers-test");
+    JMXConnectorServer withoutBroker;
+    JMXConnectorServer withBroker;
+    MonitoredBrokers monitoredBrokers = new MonitoredBrokers();
+    ActiveMqEndpointConfigurationProperties config = new ActiveMqEndpointConfigurationProperties();
+
+    @BeforeEach
+    public void beforeEach() throws Exception {
+        broker.addQueue("queue1");
+
+        withoutBroker = broker.startConnectorServer(MBeanServerFactory.newMBeanServer());
+        withBroker = broker.startConnectorServer();
+
+        config.setRediscoveryInterval(Duration.ZERO);
+        config.getSnapshot().setInterval(Duration.ZERO);
+        config.getJmxConnection().setCheckInterval(Duration.ofHours(1));
+        monitoredBrokers.configurationProperties = config;
+    }
+
+    @AfterEach
+    public void afterEach() {
+        monitoredBrokers.shutdown();
+    }
+
+    @Test
+    void getSnapshots_readsEveryBrokerOnItsOwn() {
+        config.setBrokers(List.of(
+            broker("up", withBroker.getAddress()), broker("down", withoutBroker.getAddress())));
+        monitoredBrokers.init();
+        // waits for the connect, which is done in the background
+        monitoredBrokers.getBrokers().forEach(b -> b.jmxConnectionPool().checkConnections());
+
+        var results = monitoredBrokers.getSnapshots();
+
+        assertThat(results)
+            .extracting(result -> result.broker().name())
+            .containsExactly("up", "down");
+        assertThat(results.get(0).error()).isNull();
+        assertThat(results.get(0).snapshot().destinations())
+            .extracting(DestinationInfo::getBroker, DestinationInfo::getName)
+            .containsExactly(tuple("up", "queue1"));
+        assertThat(results.get(1).snapshot()).isNull();
+        assertThat(results.get(1).error()).isNotNull();
+    }
+
+    @Test
+    void endpoint_reportsUnreadableBrokerWithItsError() {
+        config.setBrokers(List.of(
+            broker("up", withBroker.getAddress()), broker("down", withoutBroker.getAddress())));
+        monitoredBrokers.init();
+        monitoredBrokers.getBrokers().forEach(b -> b.jmxConnectionPool().checkConnections());
+        var endpoint = new ActiveMqQueuesMonitorEndpoint();
+        endpoint.monitoredBrokers = monitoredBrokers;
+
+        var brokerDestinations = endpoint.getBrokerDestinations();
+
+        assertThat(brokerDestinations)
+            .extracting(BrokerDestinations::getBroker)
+            .containsExactly("up", "down");
+        var up = brokerDestinations.get(0);
+        assertThat(up.getError()).isNull();
+        assertThat(up.getCreatedAt()).isNotNull();
+        assertThat(up.isStale()).isFalse();
+        assertThat(up.getDestinations()).extracting(DestinationInfo::getName)
+                                        .containsExactly("queue1");
+        var down = brokerDestinations.get(1);
+        assertThat(down.getError()).isNotNull();
+        assertThat(down.getCreatedAt()).isNull();
+        assertThat(down.getDestinations()).isEmpty();
+    }
+
+    @Test
+    void getSnapshots_singleBrokerReadThroughProvidedFacade() {
+        monitoredBrokers.applicationBrokerFacade = new LocalBrokerFacade(broker.getBroker());
+        monitoredBrokers.init();
+
+        var results = monitoredBrokers.getSnapshots();
+
+        assertThat(results).hasSize(1);
+        assertThat(results.getFirst().error()).isNull();
+        assertThat(results.getFirst().snapshot().destinations())
+            .extracting(DestinationInfo::getBroker, DestinationInfo::getName)
+            .containsExactly(tuple(MonitoredBrokers.DEFAULT_BROKER_NAME, "queue1"));
+    }
+
+    @Test
+    void init_rejectsDuplicateNames() {
+        config.setBrokers(List.of(
+            broker("broker", withBroker.getAddress()), broker("broker", withBroker.getAddress())));
+
+        assertThatThrownBy(() -> monitoredBrokers.init())
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private ActiveMqBrokerProperties broker(String name, JMXServiceURL jmxUrl) {
+        var definition = new ActiveMqBrokerProperties();
+        definition.setName(name);
+        definition.setBrokerName("brokers-test");
+        definition.setJmxUrl(List.of(jmxUrl));
+        definition.setTimeout(Duration.ofSeconds(5));
+        return definition;
+    }
+}
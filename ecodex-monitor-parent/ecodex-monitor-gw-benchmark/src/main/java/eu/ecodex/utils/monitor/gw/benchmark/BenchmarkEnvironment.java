@@ -0,0 +1,146 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.benchmark;
+
+import eu.ecodex.utils.monitor.gw.GatewayMonitorAutoConfiguration;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.service.GatewayProbeMetrics;
+import eu.ecodex.utils.monitor.gw.service.GatewaysCheckerService;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import test.server.ServerStarter;
+
+/**
+ * Starts the local TLS servers of the {@link BenchmarkSettings} and a gateway monitor checking
+ * them.
+ *
+ * <p>The servers use the configurations of {@link ServerStarter}: healthy and slow servers the
+ * server3 configuration, which is trusted by the monitor, untrusted servers the server4
+ * configuration. The monitor uses the {@code test} profile of the gateway monitor tests with the
+ * cache and probe settings of the benchmark. Its probe metrics are recorded in a simple meter
+ * registry, so the number of checks actually done can be told apart from the number of calls.
+ */
+public class BenchmarkEnvironment implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BenchmarkEnvironment.class);
+    private final List<ConfigurableApplicationContext> servers = new ArrayList<>();
+    private final List<AccessPoint> accessPoints = new ArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ConfigurableApplicationContext monitor;
+
+    /**
+     * Starts the servers and the gateway monitor.
+     *
+     * @param settings the servers to start and how to check them
+     */
+    public BenchmarkEnvironment(BenchmarkSettings settings) {
+        try {
+            for (var i = 0; i < settings.healthy(); i++) {
+                startServer("healthy-" + i, "server3");
+            }
+            for (var i = 0; i < settings.slow(); i++) {
+                startServer(
+                    "slow-" + i, "server3", ResponseDelayFilter.class,
+                    "--benchmark.response-delay=" + settings.responseDelay().toMillis() + "ms"
+                );
+            }
+            for (var i = 0; i < settings.untrusted(); i++) {
+                startServer("untrusted-" + i, "server4");
+            }
+            monitor = new SpringApplicationBuilder(GatewayMonitorAutoConfiguration.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .logStartupInfo(false)
+                .profiles("test")
+                .initializers(context -> context.getBeanFactory()
+                                                .registerSingleton("meterRegistry", meterRegistry))
+                .run(withLogging(settings.monitorProperties()));
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+        LOGGER.info("Started [{}] servers for [{}]", servers.size(), settings);
+    }
+
+    public GatewaysCheckerService getCheckerService() {
+        return monitor.getBean(GatewaysCheckerService.class);
+    }
+
+    public List<AccessPoint> getAccessPoints() {
+        return Collections.unmodifiableList(accessPoints);
+    }
+
+    /**
+     * Returns the number of checks done by the gateway monitor so far, as counted by the
+     * {@code monitor.gw.probe.duration} timers.
+     *
+     * @return the number of completed checks
+     */
+    public long getCheckCount() {
+        return meterRegistry.find(GatewayProbeMetrics.METRIC_PREFIX + ".duration")
+                            .timers()
+                            .stream()
+                            .mapToLong(Timer::count)
+                            .sum();
+    }
+
+    @Override
+    public void close() {
+        if (monitor != null) {
+            monitor.close();
+        }
+        servers.forEach(ConfigurableApplicationContext::close);
+        servers.clear();
+    }
+
+    private void startServer(String name, String configuration) {
+        startServer(name, configuration, null);
+    }
+
+    private void startServer(String name, String configuration, Class<?> additionalSource,
+                             String... args) {
+        var builder = new SpringApplicationBuilder(ServerStarter.class)
+            .bannerMode(Banner.Mode.OFF)
+            .logStartupInfo(false)
+            .properties(
+                "spring.config.location=classpath:/" + configuration + "/application.properties");
+        if (additionalSource != null) {
+            builder.sources(additionalSource);
+        }
+        var server = builder.run(withLogging(args));
+        servers.add(server);
+
+        var accessPoint = new AccessPoint();
+        accessPoint.setName(name);
+        accessPoint.setEndpoint("https://localhost:" + ServerStarter.getServerPort(server) + "/");
+        accessPoints.add(accessPoint);
+    }
+
+    private static String[] withLogging(String... args) {
+        var withLogging = new ArrayList<String>();
+        for (String arg : args) {
+            withLogging.add(arg.startsWith("--") ? arg : "--" + arg);
+        }
+        withLogging.add("--logging.level.root=WARN");
+        // the failed checks of the untrusted servers would log a stack trace each
+        withLogging.add("--logging.level.eu.ecodex.utils.monitor.gw=OFF");
+        withLogging.add("--logging.level.eu.ecodex.utils.monitor.gw.benchmark=INFO");
+        return withLogging.toArray(String[]::new);
+    }
+}
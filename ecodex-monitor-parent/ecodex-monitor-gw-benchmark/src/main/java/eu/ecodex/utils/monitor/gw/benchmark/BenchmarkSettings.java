@@ -0,0 +1,52 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.benchmark;
+
+import java.time.Duration;
+
+/**
+ * The local gateways a benchmark is run against and how the gateway monitor checks them.
+ *
+ * @param healthy            number of servers which can be reached
+ * @param slow               number of servers which can be reached but delay every response
+ * @param untrusted          number of servers whose certificate is not trusted by the monitor
+ * @param responseDelay      the response delay of the slow servers
+ * @param checkCacheTimeout  {@code monitor.gw.check-cache-timeout}, zero starts a check on every
+ *                           call unless one is running for the access point already
+ * @param checkCacheMaxStale {@code monitor.gw.check-cache-max-stale}
+ * @param async              {@code monitor.gw.probe.async}
+ * @param backoff            {@code monitor.gw.probe.backoff.enabled}
+ */
+public record BenchmarkSettings(int healthy, int slow, int untrusted, Duration responseDelay,
+                                Duration checkCacheTimeout, Duration checkCacheMaxStale,
+                                boolean async, boolean backoff) {
+    /**
+     * Eight healthy, two slow and two untrusted servers, without caching and without backoff.
+     * Calls for an access point which is checked already wait for that check instead of starting
+     * another one, so there are fewer checks than calls.
+     */
+    public static final BenchmarkSettings DEFAULT = new BenchmarkSettings(
+        8, 2, 2, Duration.ofMillis(200), Duration.ZERO, Duration.ZERO, false, false);
+
+    /**
+     * Returns the properties configuring the gateway monitor for these settings.
+     *
+     * @return the properties as {@code key=value}
+     */
+    String[] monitorProperties() {
+        return new String[] {
+            "monitor.gw.check-cache-timeout=" + checkCacheTimeout.toMillis() + "ms",
+            "monitor.gw.check-cache-max-stale=" + checkCacheMaxStale.toMillis() + "ms",
+            "monitor.gw.probe.async=" + async,
+            "monitor.gw.probe.backoff.enabled=" + backoff
+        };
+    }
+}
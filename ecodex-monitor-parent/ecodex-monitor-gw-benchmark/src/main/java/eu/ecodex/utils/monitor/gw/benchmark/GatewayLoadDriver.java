@@ -0,0 +1,208 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.benchmark;
+
+import com.sun.management.ThreadMXBean;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.service.GatewaysCheckerService;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.convert.DurationStyle;
+
+/**
+ * Drives a constant load of concurrent calls of the gateway checker against local TLS servers and
+ * logs the calls and the checks per second, the latency percentiles of the calls and the heap
+ * churn of the measured period.
+ *
+ * <p>Calls for an access point which is checked already share that check, so the number of checks
+ * is taken from the probe timers of the monitor instead of being derived from the calls.
+ *
+ * <p>Arguments are given as {@code key=value}: {@code healthy}, {@code slow}, {@code untrusted},
+ * {@code responseDelay}, {@code checkCacheTimeout}, {@code checkCacheMaxStale}, {@code async} and
+ * {@code backoff} configure the {@link BenchmarkSettings}, {@code threads} the number of
+ * concurrent callers, {@code warmup} and {@code duration} how long the load is driven before and
+ * while measuring. Durations use the Spring Boot format, e.g. {@code 30s}.
+ */
+public class GatewayLoadDriver {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GatewayLoadDriver.class);
+    private final BenchmarkSettings settings;
+    private final int threads;
+    private final Duration warmup;
+    private final Duration duration;
+
+    GatewayLoadDriver(BenchmarkSettings settings, int threads, Duration warmup,
+                      Duration duration) {
+        this.settings = settings;
+        this.threads = threads;
+        this.warmup = warmup;
+        this.duration = duration;
+    }
+
+    /**
+     * Runs the load driver with the given arguments.
+     *
+     * @param args the settings as {@code key=value}
+     * @throws InterruptedException if interrupted while driving the load
+     */
+    public static void main(String... args) throws InterruptedException {
+        Map<String, String> arguments = new HashMap<>();
+        for (String arg : args) {
+            var separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected key=value but got [" + arg + "]");
+            }
+            arguments.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        var defaults = BenchmarkSettings.DEFAULT;
+        var settings = new BenchmarkSettings(
+            intArgument(arguments, "healthy", defaults.healthy()),
+            intArgument(arguments, "slow", defaults.slow()),
+            intArgument(arguments, "untrusted", defaults.untrusted()),
+            durationArgument(arguments, "responseDelay", defaults.responseDelay()),
+            durationArgument(arguments, "checkCacheTimeout", defaults.checkCacheTimeout()),
+            durationArgument(arguments, "checkCacheMaxStale", defaults.checkCacheMaxStale()),
+            booleanArgument(arguments, "async", defaults.async()),
+            booleanArgument(arguments, "backoff", defaults.backoff())
+        );
+        new GatewayLoadDriver(
+            settings,
+            intArgument(arguments, "threads", 64),
+            durationArgument(arguments, "warmup", Duration.ofSeconds(10)),
+            durationArgument(arguments, "duration", Duration.ofSeconds(30))
+        ).run();
+    }
+
+    void run() throws InterruptedException {
+        try (var environment = new BenchmarkEnvironment(settings)) {
+            var checkerService = environment.getCheckerService();
+            var accessPoints = environment.getAccessPoints();
+
+            drive(checkerService, accessPoints, warmup, null);
+
+            var timer = Timer.builder("benchmark.probe")
+                             .publishPercentiles(0.5, 0.9, 0.99)
+                             .distributionStatisticExpiry(duration.multipliedBy(2))
+                             .distributionStatisticBufferLength(1)
+                             .register(new SimpleMeterRegistry());
+            var allocatedBefore = allocatedBytes();
+            var gcBefore = gcCounts();
+            var checksBefore = environment.getCheckCount();
+            long start = System.nanoTime();
+            drive(checkerService, accessPoints, duration, timer);
+            var elapsed = Duration.ofNanos(System.nanoTime() - start);
+            var checks = environment.getCheckCount() - checksBefore;
+            var allocated = allocatedBytes() - allocatedBefore;
+            var gcAfter = gcCounts();
+
+            report(timer, checks, elapsed, allocated, gcAfter[0] - gcBefore[0],
+                   gcAfter[1] - gcBefore[1]);
+        }
+    }
+
+    private void drive(GatewaysCheckerService checkerService, List<AccessPoint> accessPoints,
+                       Duration period, Timer timer) throws InterruptedException {
+        var next = new AtomicInteger();
+        long end = System.nanoTime() + period.toNanos();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var i = 0; i < threads; i++) {
+                executor.execute(() -> {
+                    while (System.nanoTime() < end) {
+                        var accessPoint = accessPoints.get(
+                            Math.floorMod(next.getAndIncrement(), accessPoints.size()));
+                        long probeStart = System.nanoTime();
+                        checkerService.getGatewayStatus(accessPoint);
+                        if (timer != null) {
+                            timer.record(System.nanoTime() - probeStart, TimeUnit.NANOSECONDS);
+                        }
+                    }
+                });
+            }
+            executor.shutdown();
+            if (!executor.awaitTermination(period.toMillis() + 60_000, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Load did not stop after [" + period + "]");
+            }
+        }
+    }
+
+    private void report(Timer timer, long checks, Duration elapsed, long allocatedBytes,
+                        long gcCount, long gcMillis) {
+        var snapshot = timer.takeSnapshot();
+        long calls = snapshot.count();
+        double seconds = elapsed.toNanos() / 1e9;
+
+        LOGGER.info("settings:            {}, threads={}", settings, threads);
+        LOGGER.info("calls:               {} in {} s, {} calls/s", calls, format(seconds),
+                    format(calls / seconds));
+        LOGGER.info("checks:              {}, {} checks/s", checks, format(checks / seconds));
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            LOGGER.info(
+                "call latency p{}:     {} ms", Math.round(percentile.percentile() * 100),
+                format(percentile.value(TimeUnit.MILLISECONDS))
+            );
+        }
+        LOGGER.info("call latency max:    {} ms", format(snapshot.max(TimeUnit.MILLISECONDS)));
+        LOGGER.info(
+            "heap churn:          {} MB/s, {} bytes/check",
+            format(allocatedBytes / seconds / (1024 * 1024)),
+            checks == 0 ? 0 : allocatedBytes / checks
+        );
+        LOGGER.info("gc:                  {} collections, {} ms", gcCount, gcMillis);
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    private static long allocatedBytes() {
+        return ((ThreadMXBean) ManagementFactory.getThreadMXBean())
+            .getTotalThreadAllocatedBytes();
+    }
+
+    private static long[] gcCounts() {
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(gc.getCollectionCount(), 0);
+            millis += Math.max(gc.getCollectionTime(), 0);
+        }
+        return new long[] {count, millis};
+    }
+
+    private static int intArgument(Map<String, String> arguments, String key, int defaultValue) {
+        var value = arguments.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    private static boolean booleanArgument(Map<String, String> arguments, String key,
+                                           boolean defaultValue) {
+        var value = arguments.get(key);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    private static Duration durationArgument(Map<String, String> arguments, String key,
+                                             Duration defaultValue) {
+        var value = arguments.get(key);
+        return value == null ? defaultValue : DurationStyle.detectAndParse(value);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.benchmark;
+
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import eu.ecodex.utils.monitor.gw.service.GatewaysCheckerService;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures the throughput and the latency distribution of
+ * {@link GatewaysCheckerService#getGatewayStatus(AccessPoint)} against local TLS servers.
+ *
+ * <p>The benchmark threads call the checker round robin for all access points, backing off from
+ * failing access points is disabled. With a cache timeout of zero every call starts a check unless
+ * the access point is checked already, then it waits for the running check. So the measured
+ * throughput is the one of the calls, the number of checks actually done is logged after each
+ * iteration from the probe timers. A larger timeout measures the cached path. Run it with
+ * {@code -prof gc} to get the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(16)
+public class GatewayProbeBenchmark {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GatewayProbeBenchmark.class);
+    @Param({"8"})
+    int healthy;
+    @Param({"2"})
+    int slow;
+    @Param({"2"})
+    int untrusted;
+    @Param({"200"})
+    long responseDelayMillis;
+    @Param({"0", "4000"})
+    long checkCacheTimeoutMillis;
+    @Param({"false", "true"})
+    boolean async;
+    private final AtomicInteger next = new AtomicInteger();
+    private BenchmarkEnvironment environment;
+    private GatewaysCheckerService checkerService;
+    private List<AccessPoint> accessPoints;
+    private long iterationStart;
+    private long iterationChecksBefore;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        environment = new BenchmarkEnvironment(new BenchmarkSettings(
+            healthy, slow, untrusted, Duration.ofMillis(responseDelayMillis),
+            Duration.ofMillis(checkCacheTimeoutMillis), Duration.ZERO, async, false
+        ));
+        checkerService = environment.getCheckerService();
+        accessPoints = environment.getAccessPoints();
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        iterationStart = System.nanoTime();
+        iterationChecksBefore = environment.getCheckCount();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportChecks() {
+        long checks = environment.getCheckCount() - iterationChecksBefore;
+        double seconds = (System.nanoTime() - iterationStart) / 1e9;
+        LOGGER.info("{} checks in {} s, {} checks/s", checks,
+                    String.format(Locale.ROOT, "%.1f", seconds),
+                    String.format(Locale.ROOT, "%.1f", checks / seconds));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        environment.close();
+    }
+
+    @Benchmark
+    public AccessPointStatusDTO getGatewayStatus() {
+        var accessPoint =
+            accessPoints.get(Math.floorMod(next.getAndIncrement(), accessPoints.size()));
+        return checkerService.getGatewayStatus(accessPoint);
+    }
+}
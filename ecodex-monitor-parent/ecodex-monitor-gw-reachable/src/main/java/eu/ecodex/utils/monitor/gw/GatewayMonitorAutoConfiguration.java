@@ -13,8 +13,10 @@ package eu.ecodex.utils.monitor.gw;
 import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
 import eu.ecodex.utils.monitor.gw.service.ConfiguredGatewaysService;
 import eu.ecodex.utils.monitor.gw.service.GatewayHealthIndicator;
+import eu.ecodex.utils.monitor.gw.service.GatewayHistoryEndpoint;
 import eu.ecodex.utils.monitor.gw.service.GatewayReachableEndpoint;
 import eu.ecodex.utils.monitor.gw.service.PModeDownloader;
+import eu.ecodex.utils.monitor.gw.service.RemoteGatewaysHealthIndicator;
 import eu.ecodex.utils.monitor.gw.service.ServiceConfiguration;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -56,8 +58,18 @@ public class GatewayMonitorAutoConfiguration {
         return new GatewayHealthIndicator();
     }
 
+    @Bean
+    public RemoteGatewaysHealthIndicator remoteGatewaysHealthIndicator() {
+        return new RemoteGatewaysHealthIndicator();
+    }
+
     @Bean
     public GatewayReachableEndpoint gatewayReachableEndpoint() {
         return new GatewayReachableEndpoint();
     }
+
+    @Bean
+    public GatewayHistoryEndpoint gatewayHistoryEndpoint() {
+        return new GatewayHistoryEndpoint();
+    }
 }
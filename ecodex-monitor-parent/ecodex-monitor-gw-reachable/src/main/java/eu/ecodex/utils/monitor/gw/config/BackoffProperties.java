@@ -0,0 +1,51 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.config;
+
+import java.time.Duration;
+import lombok.Data;
+
+/**
+ * Properties for backing off from access points which fail repeatedly.
+ *
+ * <p>After {@code failure-threshold} failed checks in a row an access point is considered down
+ * and is not checked again until the backoff delay has passed. The delay starts with
+ * {@code initial-delay} and grows by {@code multiplier} with each further failure up to
+ * {@code max-delay}.
+ */
+@Data
+public class BackoffProperties {
+    /**
+     * Back off from access points which fail repeatedly.
+     */
+    boolean enabled = true;
+    /**
+     * How many checks in a row must fail until the access point is considered down.
+     */
+    int failureThreshold = 3;
+    /**
+     * How long to wait before checking an access point again after it has been considered down.
+     */
+    Duration initialDelay = Duration.ofMinutes(1);
+    /**
+     * The longest time to wait before checking an access point which is down again.
+     */
+    Duration maxDelay = Duration.ofMinutes(30);
+    /**
+     * Factor the delay grows with each further failed check.
+     */
+    double multiplier = 2.0;
+    /**
+     * Part of the delay by which it is randomly lengthened or shortened, so access points which
+     * went down at the same time are not checked at the same time again.
+     */
+    double jitter = 0.2;
+}
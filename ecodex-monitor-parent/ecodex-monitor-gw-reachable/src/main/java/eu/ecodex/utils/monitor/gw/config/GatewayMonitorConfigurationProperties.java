@@ -36,9 +36,32 @@ public class GatewayMonitorConfigurationProperties {
      * key for authentication - allowed/trusted TLS-servers.
      */
     private TLSConnectionProperties tls = new TLSConnectionProperties();
+    /**
+     * How often should be checked if the TLS configuration or the key and trust store files have
+     * changed? The TLS client used for checking the gateways is only rebuilt on such a change.
+     */
+    private Duration tlsReloadCheckInterval = Duration.ofMinutes(1);
     private HealthCheckProperties healthCheck = new HealthCheckProperties();
+    /**
+     * Configure the parallelism and the timeouts of the access point checks.
+     */
+    private ProbeProperties probe = new ProbeProperties();
+    /**
+     * Configure checking the access points in the background.
+     */
+    private RefreshProperties refresh = new RefreshProperties();
+    /**
+     * Configure how much history of the check results is kept per access point.
+     */
+    private HistoryProperties history = new HistoryProperties();
     /**
      * How long should the last check result be cached?.
      */
     private Duration checkCacheTimeout = Duration.ofMinutes(5);
+    /**
+     * How long after the check cache timeout may the last check result still be served while the
+     * access point is checked again in the background? Callers asking for an older result wait for
+     * the new check.
+     */
+    private Duration checkCacheMaxStale = Duration.ofMinutes(10);
 }
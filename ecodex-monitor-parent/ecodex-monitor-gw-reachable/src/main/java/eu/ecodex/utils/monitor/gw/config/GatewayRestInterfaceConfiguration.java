@@ -10,6 +10,7 @@
 
 package eu.ecodex.utils.monitor.gw.config;
 
+import java.time.Duration;
 import lombok.Data;
 
 /**
@@ -18,6 +19,11 @@ import lombok.Data;
 @Data
 public class GatewayRestInterfaceConfiguration {
     boolean loadPmodes = true;
+    /**
+     * Read only the parties while downloading the p-modes instead of unmarshalling the complete
+     * p-mode set.
+     */
+    boolean streamPmodes = true;
     /**
      * The URL of the gateway.
      */
@@ -30,4 +36,9 @@ public class GatewayRestInterfaceConfiguration {
      * The password for the gateway user.
      */
     private String password;
+    /**
+     * How long are the loaded access points used before the gateway is asked again for the
+     * current p-mode set? The p-modes themselves are only downloaded if they have changed.
+     */
+    private Duration pmodeRefreshInterval = Duration.ofMinutes(5);
 }
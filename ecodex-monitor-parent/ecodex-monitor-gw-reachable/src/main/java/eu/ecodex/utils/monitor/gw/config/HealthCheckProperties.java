@@ -18,7 +18,9 @@ import lombok.Data;
  * Properties for configuring health checks.
  *
  * <p>This class allows configuring whether the health check should include the current instance
- * and specifying a list of remote gateways to be checked.
+ * and specifying a list of remote gateways to be checked. The remote gateways are reported as
+ * DOWN if at least {@code down-quorum} of them fail, as DEGRADED if at least
+ * {@code degraded-quorum} of them fail and as UP otherwise.
  */
 @Data
 public class HealthCheckProperties {
@@ -30,4 +32,14 @@ public class HealthCheckProperties {
      * which remote gateways should be checked by health check? a * means all.
      */
     List<String> checkNames = new ArrayList<>();
+    /**
+     * Share of the checked remote gateways which must fail to report the remote gateways as DOWN,
+     * by default 1.0 (all of them).
+     */
+    double downQuorum = 1.0;
+    /**
+     * Share of the checked remote gateways which must fail to report the remote gateways as
+     * DEGRADED, by default 0.0 (any failing gateway).
+     */
+    double degradedQuorum = 0.0;
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.config;
+
+import java.time.Duration;
+import lombok.Data;
+
+/**
+ * Properties for the history of the check results of the access points.
+ *
+ * <p>The history has a fixed size per access point: the latest checks are kept as single samples,
+ * older checks are merged into buckets of {@code bucket-duration}.
+ */
+@Data
+public class HistoryProperties {
+    /**
+     * How many of the latest checks are kept per access point as single samples, by default 2016
+     * (a week of checks every 5 minutes).
+     */
+    int samples = 2016;
+    /**
+     * The time span older checks are merged into.
+     */
+    Duration bucketDuration = Duration.ofHours(1);
+    /**
+     * How many buckets of older checks are kept per access point, by default 168 (a week of
+     * hourly buckets).
+     */
+    int buckets = 168;
+    /**
+     * The window the availability is computed over if none is requested.
+     */
+    Duration defaultWindow = Duration.ofDays(7);
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.config;
+
+import eu.ecodex.utils.monitor.gw.domain.ProbeMode;
+import java.time.Duration;
+import lombok.Data;
+
+/**
+ * Properties for probing the configured access points.
+ *
+ * <p>This class allows configuring how many access points are checked concurrently, how long a
+ * single check and a complete round of checks may take and how the access points are checked.
+ */
+@Data
+public class ProbeProperties {
+    /**
+     * How many access points are checked at the same time, by default 16.
+     */
+    int parallelism = 16;
+    /**
+     * Connect, TLS handshake and response timeout of a single check.
+     */
+    Duration timeout = Duration.ofSeconds(10);
+    /**
+     * How long a check of all access points may take. Access points which have not been checked
+     * until then are reported as timed out.
+     */
+    Duration deadline = Duration.ofSeconds(30);
+    /**
+     * How the access points are checked, can be overridden per access point. HANDSHAKE only does
+     * the TLS handshake, HEAD and GET send the according HTTP request to the endpoint.
+     */
+    ProbeMode mode = ProbeMode.GET;
+    /**
+     * Publish percentile histograms for the probe timers, so latency percentiles can be
+     * aggregated by the monitoring system. Disabled by default, as every timer then publishes
+     * dozens of buckets per access point.
+     */
+    boolean publishHistograms = false;
+    /**
+     * Send the HEAD and GET probes with the async http client. The checks then only wait for the
+     * completion of the request, the I/O of all checks is done by the few I/O reactor threads.
+     */
+    boolean async = false;
+    /**
+     * Number of I/O reactor threads of the async http client, by default 1.
+     */
+    int ioThreads = 1;
+    /**
+     * Configure backing off from access points which fail repeatedly.
+     */
+    BackoffProperties backoff = new BackoffProperties();
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.config;
+
+import java.time.Duration;
+import lombok.Data;
+
+/**
+ * Properties for refreshing the access point statuses in the background.
+ *
+ * <p>If enabled, all access points are checked periodically and the gateways endpoint and the
+ * health indicator only read the last check results instead of triggering checks themselves.
+ */
+@Data
+public class RefreshProperties {
+    /**
+     * Should the access points be checked in the background? By default false.
+     */
+    boolean enabled = false;
+    /**
+     * How often all access points are checked.
+     */
+    Duration interval = Duration.ofMinutes(5);
+    /**
+     * Delay of the first check after startup.
+     */
+    Duration initialDelay = Duration.ZERO;
+    /**
+     * Part of the interval the checks are randomly spread over, between 0 (all access points are
+     * checked at the start of the interval) and 1 (checks are spread over the whole interval).
+     */
+    float jitter = 0.5f;
+}
@@ -28,4 +28,8 @@ public class AccessPoint {
      * URL of the endpoint eg. service.example.com/domibus/services/msh.
      */
     String endpoint;
+    /**
+     * How the access point is checked, if not set the globally configured probe mode is used.
+     */
+    ProbeMode probeMode;
 }
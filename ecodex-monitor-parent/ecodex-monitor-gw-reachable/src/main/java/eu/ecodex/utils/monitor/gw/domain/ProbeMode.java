@@ -0,0 +1,29 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.domain;
+
+/**
+ * Describes how an access point is checked.
+ */
+public enum ProbeMode {
+    /**
+     * Only connect to the access point and do the TLS handshake, no HTTP request is sent.
+     */
+    HANDSHAKE,
+    /**
+     * Send a HEAD request to the endpoint of the access point.
+     */
+    HEAD,
+    /**
+     * Send a GET request to the endpoint of the access point, the response body is discarded.
+     */
+    GET
+}
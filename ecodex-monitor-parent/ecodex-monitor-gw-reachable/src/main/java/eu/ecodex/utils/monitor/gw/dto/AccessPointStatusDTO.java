@@ -34,11 +34,56 @@ public class AccessPointStatusDTO {
     String endpoint;
     ProtocolVersion[] allowedTls;
     ProtocolVersion usedTls;
+    /**
+     * The base64 encoded certificates sent by the monitor.
+     */
     String[] localCertificates;
+    /**
+     * The base64 encoded certificates sent by the access point.
+     */
     String[] serverCertificates;
+    /**
+     * The SHA-256 fingerprints of the local certificates, the certificates can be looked up by
+     * their fingerprint.
+     */
+    String[] localCertificateFingerprints;
+    /**
+     * The SHA-256 fingerprints of the server certificates, the certificates can be looked up by
+     * their fingerprint.
+     */
+    String[] serverCertificateFingerprints;
     List<CheckResultDTO> failures = new ArrayList<>();
     List<CheckResultDTO> warnings = new ArrayList<>();
     ZonedDateTime checkTime;
     HttpHost proxyHost;
     HttpHost targetHost;
+    /**
+     * Version of this status, increases whenever a check of any access point finds other failures,
+     * warnings, TLS version or certificates than the previous check of this access point. A status
+     * which is not the result of a completed check has the version 0.
+     */
+    long version;
+
+    /**
+     * Creates a copy of this status without the details of the failures and warnings, the
+     * certificates are only referenced by their fingerprints.
+     *
+     * @return the compact copy of this status
+     */
+    public AccessPointStatusDTO toCompact() {
+        var compact = new AccessPointStatusDTO();
+        compact.setName(name);
+        compact.setEndpoint(endpoint);
+        compact.setAllowedTls(allowedTls);
+        compact.setUsedTls(usedTls);
+        compact.setLocalCertificateFingerprints(localCertificateFingerprints);
+        compact.setServerCertificateFingerprints(serverCertificateFingerprints);
+        compact.setFailures(failures.stream().map(CheckResultDTO::withoutDetails).toList());
+        compact.setWarnings(warnings.stream().map(CheckResultDTO::withoutDetails).toList());
+        compact.setCheckTime(checkTime);
+        compact.setProxyHost(proxyHost);
+        compact.setTargetHost(targetHost);
+        compact.setVersion(version);
+        return compact;
+    }
 }
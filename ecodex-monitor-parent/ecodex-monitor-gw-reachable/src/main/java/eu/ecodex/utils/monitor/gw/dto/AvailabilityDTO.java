@@ -0,0 +1,47 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.dto;
+
+import java.time.ZonedDateTime;
+import lombok.Data;
+
+/**
+ * Data Transfer Object representing the availability and the check latency of an access point
+ * over a time window.
+ */
+@Data
+public class AvailabilityDTO {
+    String name;
+    ZonedDateTime from;
+    ZonedDateTime to;
+    /**
+     * Number of checks within the window, including the checks skipped while the access point
+     * was backed off, which count as failed.
+     */
+    long checks;
+    /**
+     * Number of checks within the window without failures.
+     */
+    long successfulChecks;
+    /**
+     * Percentage of successful checks, null if the access point has not been checked within the
+     * window.
+     */
+    Double availability;
+    /**
+     * Latency percentiles of the checks in milliseconds, skipped checks are not included. The
+     * latencies are kept in logarithmic bins, a percentile is the upper bound of its bin and at
+     * most 26% above the exact value.
+     */
+    Long latencyP50;
+    Long latencyP90;
+    Long latencyP99;
+}
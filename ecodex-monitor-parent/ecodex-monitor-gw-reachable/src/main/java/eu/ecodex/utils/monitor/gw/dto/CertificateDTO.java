@@ -0,0 +1,33 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.dto;
+
+import java.time.ZonedDateTime;
+import lombok.Data;
+
+/**
+ * Data Transfer Object representing a certificate used in a check of an access point.
+ */
+@Data
+public class CertificateDTO {
+    /**
+     * SHA-256 fingerprint of the encoded certificate as lower case hex string.
+     */
+    String fingerprint;
+    String subject;
+    String issuer;
+    ZonedDateTime notBefore;
+    ZonedDateTime notAfter;
+    /**
+     * The base64 encoded certificate.
+     */
+    String encoded;
+}
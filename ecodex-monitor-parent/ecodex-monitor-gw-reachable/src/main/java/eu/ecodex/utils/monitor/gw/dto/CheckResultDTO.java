@@ -34,4 +34,16 @@ public class CheckResultDTO {
         e.printStackTrace(printWriter);
         this.setDetails(stringWriter.getBuffer().toString());
     }
+
+    /**
+     * Creates a copy of this CheckResultDTO without the details.
+     *
+     * @return the copy without details
+     */
+    public CheckResultDTO withoutDetails() {
+        var checkResultDTO = new CheckResultDTO();
+        checkResultDTO.setName(name);
+        checkResultDTO.setMessage(message);
+        return checkResultDTO;
+    }
 }
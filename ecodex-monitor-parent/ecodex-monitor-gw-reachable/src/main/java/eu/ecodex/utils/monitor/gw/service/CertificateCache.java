@@ -0,0 +1,129 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import eu.ecodex.utils.monitor.gw.dto.CertificateDTO;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache of the encoded certificates seen during the checks of the access points.
+ *
+ * <p>The certificates are kept by their SHA-256 fingerprint, so a certificate presented by many
+ * access points or in every check, like the own client certificate, is encoded only once and all
+ * statuses share the same encoded string. The cache is bounded, the least recently used
+ * certificates are dropped first.
+ */
+@Component
+public class CertificateCache {
+    static final int CACHE_SIZE = 1024;
+    private final Map<String, CertificateDTO> byFingerprint =
+        Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CertificateDTO> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        });
+
+    /**
+     * Returns the cached encoded form of the provided certificates, certificates which are not
+     * cached yet are encoded and added to the cache.
+     *
+     * @param certificates the certificates to encode, may be null
+     * @return the encoded certificates in the order of the provided ones, an empty array if no
+     *      certificates have been provided
+     */
+    public CertificateDTO[] encode(Certificate[] certificates) {
+        if (certificates == null) {
+            return new CertificateDTO[0];
+        }
+        var encoded = new CertificateDTO[certificates.length];
+        for (var i = 0; i < certificates.length; i++) {
+            encoded[i] = encode(certificates[i]);
+        }
+        return encoded;
+    }
+
+    /**
+     * Returns the cached encoded form of the provided certificate, the certificate is encoded and
+     * added to the cache if it is not cached yet.
+     *
+     * @param certificate the certificate to encode
+     * @return the encoded certificate
+     */
+    public CertificateDTO encode(Certificate certificate) {
+        try {
+            byte[] encoded = certificate.getEncoded();
+            return byFingerprint.computeIfAbsent(
+                fingerprint(encoded), fingerprint -> toDto(fingerprint, encoded, certificate));
+        } catch (CertificateEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Looks up a cached certificate.
+     *
+     * @param fingerprint the SHA-256 fingerprint of the certificate
+     * @return the certificate or an empty optional if it is not cached
+     */
+    public Optional<CertificateDTO> getByFingerprint(String fingerprint) {
+        return Optional.ofNullable(byFingerprint.get(fingerprint));
+    }
+
+    /**
+     * Calculates the SHA-256 fingerprint of a certificate.
+     *
+     * @param certificate the certificate
+     * @return the fingerprint as lower case hex string
+     * @throws CertificateEncodingException if the certificate cannot be encoded
+     */
+    public static String fingerprint(Certificate certificate) throws CertificateEncodingException {
+        return fingerprint(certificate.getEncoded());
+    }
+
+    private static String fingerprint(byte[] encoded) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(encoded));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    private static CertificateDTO toDto(String fingerprint, byte[] encoded,
+                                        Certificate certificate) {
+        var dto = new CertificateDTO();
+        dto.setFingerprint(fingerprint);
+        dto.setEncoded(Base64.getEncoder().encodeToString(encoded));
+        if (certificate instanceof X509Certificate x509) {
+            dto.setSubject(x509.getSubjectX500Principal().getName());
+            dto.setIssuer(x509.getIssuerX500Principal().getName());
+            dto.setNotBefore(ZonedDateTime.ofInstant(
+                x509.getNotBefore().toInstant(), ZoneOffset.UTC));
+            dto.setNotAfter(ZonedDateTime.ofInstant(
+                x509.getNotAfter().toInstant(), ZoneOffset.UTC));
+        }
+        return dto;
+    }
+}
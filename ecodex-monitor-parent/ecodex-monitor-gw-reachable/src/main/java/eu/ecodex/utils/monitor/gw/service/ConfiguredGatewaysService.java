@@ -15,10 +15,15 @@ import static eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationPrope
 import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
 import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
 import eu.ecodex.utils.monitor.gw.domain.AccessPointsConfiguration;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 import lombok.Getter;
 import lombok.Setter;
 import org.slf4j.Logger;
@@ -30,67 +35,96 @@ import org.springframework.util.StringUtils;
  * Service for managing and retrieving the configured gateways in the system.
  *
  * <p>The class coordinates with configuration properties and a PMode downloader to update and
- * provide access to the access points configuration.
+ * provide access to the access points configuration. The configured access points are kept in an
+ * immutable snapshot which is read without locking. The snapshot is only reloaded after the
+ * configured p-mode refresh interval or after {@link #invalidate()} has been called, e.g. by a POST
+ * to the {@link GatewayReachableEndpoint}, in the meantime readers are served from the current
+ * snapshot. If reloading fails the previous snapshot is kept and reloading is tried again on the
+ * next lookup.
  */
 public class ConfiguredGatewaysService {
     private static final Logger LOGGER = LoggerFactory.getLogger(ConfiguredGatewaysService.class);
     @Autowired
-    private GatewayMonitorConfigurationProperties monitorConfigurationProperties;
+    GatewayMonitorConfigurationProperties monitorConfigurationProperties;
     @SuppressWarnings("checkstyle:MemberName")
     @Autowired
-    private PModeDownloader pModeDownloader;
+    PModeDownloader pModeDownloader;
+    @Autowired
+    GatewaysCheckerService gatewaysCheckerService;
     @Setter
     @Getter
     private AccessPointsConfiguration accessPointConfig = new AccessPointsConfiguration();
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private final AtomicBoolean backgroundReload = new AtomicBoolean();
+    private volatile Snapshot snapshot;
+    private volatile long nextUpdate;
 
     /**
-     * Updates the currently configured access points based on the configuration properties.
+     * Updates the currently configured access points based on the configuration properties. Cached
+     * statuses of access points which are no longer configured are removed.
      *
      * @throws RuntimeException if no access points configuration is found in the properties and
      *                          loading from p-Modes is not enabled.
      */
-    public synchronized void updateConfiguredGateways() {
-        if (monitorConfigurationProperties.getRest().isLoadPmodes()) {
-            this.accessPointConfig = pModeDownloader.updateAccessPointsConfig(accessPointConfig);
-            LOGGER.info("Loaded configured access points from gateway p-Modes");
-        } else if (monitorConfigurationProperties.getAccessPoints() != null) {
-            this.accessPointConfig = monitorConfigurationProperties.getAccessPoints();
-            LOGGER.info("Loaded configured access points from properties!");
-        } else {
-            throw new RuntimeException(
-                "No access points are configured in properties under: "
-                    + "\n[" + GATEWAY_MONITOR_PREFIX
-                    + ".access-points] neither is "
-                    + "\n loading config from p-modes enabled:"
-                    + "\n[" + GATEWAY_MONITOR_PREFIX
-                    + ".rest.load-pmodes] is false");
+    public void updateConfiguredGateways() {
+        updateLock.lock();
+        try {
+            doUpdateConfiguredGateways();
+        } finally {
+            updateLock.unlock();
         }
     }
 
-    public synchronized Collection<AccessPoint> getConfiguredGateways() {
-        updateConfiguredGateways();
-        return this.accessPointConfig.getRemoteAccessPoints();
+    /**
+     * Marks the currently configured access points as outdated, they are reloaded on the next
+     * lookup.
+     */
+    public void invalidate() {
+        this.nextUpdate = System.nanoTime();
+        LOGGER.debug("Configured access points have been invalidated");
+    }
+
+    public Collection<AccessPoint> getConfiguredGateways() {
+        return currentSnapshot().remoteAccessPoints();
+    }
+
+    /**
+     * Retrieves the currently loaded remote access points without waiting for them to be loaded.
+     * If they have not been loaded yet or are outdated, they are (re)loaded in the background.
+     *
+     * @return the currently loaded remote access points, an empty optional if they have not been
+     *      loaded yet
+     */
+    public Optional<Collection<AccessPoint>> peekConfiguredGateways() {
+        var current = this.snapshot;
+        if ((current == null || System.nanoTime() - nextUpdate >= 0)
+            && backgroundReload.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("gw-config-reload").start(() -> {
+                try {
+                    currentSnapshot();
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Loading the configured access points failed", e);
+                } finally {
+                    backgroundReload.set(false);
+                }
+            });
+        }
+        return Optional.ofNullable(current).map(Snapshot::remoteAccessPoints);
     }
 
     /**
      * Retrieves the collection of all configured gateways, including the gateway's own access
-     * point. The method first updates the list of configured gateways and then adds the gateway's
-     * own access point to the collection before returning it.
+     * point as first element if it is known.
      *
      * @return A collection of {@link AccessPoint} instances representing the configured gateways,
      *      including the gateway's own access point.
      */
-    public synchronized Collection<AccessPoint> getConfiguredGatewaysWithSelf() {
-        updateConfiguredGateways();
-        List<AccessPoint> list = new ArrayList<>();
-        list.add(getSelf());
-        list.addAll(this.accessPointConfig.getRemoteAccessPoints());
-        return list;
+    public Collection<AccessPoint> getConfiguredGatewaysWithSelf() {
+        return currentSnapshot().accessPointsWithSelf();
     }
 
-    public synchronized AccessPoint getSelf() {
-        updateConfiguredGateways();
-        return this.accessPointConfig.getSelf();
+    public AccessPoint getSelf() {
+        return currentSnapshot().self();
     }
 
     /**
@@ -100,19 +134,105 @@ public class ConfiguredGatewaysService {
      * @return The AccessPoint with the specified name, or null if no such access point is found.
      * @throws IllegalArgumentException if the provided name is empty.
      */
-    public synchronized AccessPoint getByName(String name) {
-        updateConfiguredGateways();
+    public AccessPoint getByName(String name) {
         if (!StringUtils.hasLength(name)) {
             throw new IllegalArgumentException("Name is not allowed to be empty!");
         }
-        if (name.equals(this.accessPointConfig.getSelf().getName())) {
-            return this.accessPointConfig.getSelf();
+        return currentSnapshot().accessPointsByName().get(name);
+    }
+
+    private Snapshot currentSnapshot() {
+        var current = this.snapshot;
+        if (current != null && System.nanoTime() - nextUpdate < 0) {
+            return current;
         }
-        Optional<AccessPoint> first = this.accessPointConfig.getRemoteAccessPoints()
-                                                            .stream()
-                                                            .filter(ap -> name.equals(ap.getName()))
-                                                            .findFirst();
+        if (current == null) {
+            // nothing to serve yet, so wait for the thread which is loading the access points
+            updateLock.lock();
+        } else if (!updateLock.tryLock()) {
+            // another thread is already reloading, serve the current access points meanwhile
+            return current;
+        }
+        try {
+            current = this.snapshot;
+            if (current != null && System.nanoTime() - nextUpdate < 0) {
+                return current;
+            }
+            try {
+                return doUpdateConfiguredGateways();
+            } catch (RuntimeException e) {
+                if (current == null) {
+                    throw e;
+                }
+                LOGGER.warn("Reloading the configured access points failed, keeping the "
+                                + "previously loaded access points", e);
+                return current;
+            }
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    private Snapshot doUpdateConfiguredGateways() {
+        if (monitorConfigurationProperties.getRest().isLoadPmodes()) {
+            this.accessPointConfig = pModeDownloader.updateAccessPointsConfig(accessPointConfig);
+            LOGGER.debug("Loaded configured access points from gateway p-Modes");
+        } else if (monitorConfigurationProperties.getAccessPoints() != null) {
+            this.accessPointConfig = monitorConfigurationProperties.getAccessPoints();
+            LOGGER.debug("Loaded configured access points from properties!");
+        } else {
+            throw new RuntimeException(
+                "No access points are configured in properties under: "
+                    + "\n[" + GATEWAY_MONITOR_PREFIX
+                    + ".access-points] neither is "
+                    + "\n loading config from p-modes enabled:"
+                    + "\n[" + GATEWAY_MONITOR_PREFIX
+                    + ".rest.load-pmodes] is false");
+        }
+        var previous = this.snapshot;
+        var updated = Snapshot.of(this.accessPointConfig);
+        this.snapshot = updated;
+        Duration refreshInterval =
+            monitorConfigurationProperties.getRest().getPmodeRefreshInterval();
+        this.nextUpdate = System.nanoTime() + refreshInterval.toNanos();
+
+        if (previous == null || !previous.accessPointsWithSelf()
+                                         .equals(updated.accessPointsWithSelf())) {
+            LOGGER.info("Configured access points changed to [{}]", updated.accessPointsWithSelf());
+            gatewaysCheckerService.retainAccessPoints(updated.accessPointsWithSelf());
+        }
+        return updated;
+    }
 
-        return first.orElse(null);
+    /**
+     * Immutable view of the configured access points at one point in time.
+     *
+     * @param self                 the own access point, may be null
+     * @param remoteAccessPoints   the remote access points
+     * @param accessPointsWithSelf the own access point followed by the remote access points
+     * @param accessPointsByName   all access points including the own one by their name
+     */
+    private record Snapshot(AccessPoint self, List<AccessPoint> remoteAccessPoints,
+                            List<AccessPoint> accessPointsWithSelf,
+                            Map<String, AccessPoint> accessPointsByName) {
+        static Snapshot of(AccessPointsConfiguration config) {
+            var remote = List.copyOf(config.getRemoteAccessPoints());
+            List<AccessPoint> withSelf = new ArrayList<>(remote.size() + 1);
+            Map<String, AccessPoint> byName = new HashMap<>();
+            for (AccessPoint ap : remote) {
+                if (ap.getName() != null) {
+                    byName.putIfAbsent(ap.getName(), ap);
+                }
+            }
+            var self = config.getSelf();
+            if (self != null) {
+                withSelf.add(self);
+                if (self.getName() != null) {
+                    byName.put(self.getName(), self);
+                }
+            }
+            withSelf.addAll(remote);
+            return new Snapshot(self, remote, List.copyOf(withSelf), Map.copyOf(byName));
+        }
     }
 }
@@ -24,7 +24,7 @@ public class GatewayHealthIndicator extends AbstractHealthIndicator {
     @Autowired
     ConfiguredGatewaysService configuredGatewaysService;
     @Autowired
-    GatewaysCheckerService gwChecker;
+    GatewaysProbeService gwProbe;
 
     @Override
     protected void doHealthCheck(Health.Builder builder) {
@@ -34,8 +34,13 @@ public class GatewayHealthIndicator extends AbstractHealthIndicator {
 
     private void checkSelf(Health.Builder builder) {
         AccessPoint ap = configuredGatewaysService.getSelf();
-        AccessPointStatusDTO gatewayStatus = gwChecker.getGatewayStatus(ap);
+        AccessPointStatusDTO gatewayStatus = gwProbe.getGatewayStatus(ap);
 
+        if (GatewaysProbeService.isNotCheckedYet(gatewayStatus)) {
+            builder.unknown();
+            builder.withDetail("self_detail", "Not checked yet");
+            return;
+        }
         if (!gatewayStatus.getFailures().isEmpty()) {
             builder.down();
             builder.withDetail("self_detail", gatewayStatus.getFailures().getFirst().toString());
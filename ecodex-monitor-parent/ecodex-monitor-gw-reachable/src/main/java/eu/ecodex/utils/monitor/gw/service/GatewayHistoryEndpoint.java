@@ -0,0 +1,81 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.dto.AvailabilityDTO;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+
+/**
+ * Endpoint to provide the availability and the check latency percentiles of the configured
+ * gateways over a time window, computed from the {@link GatewayStatusHistory}.
+ *
+ * <p>The window ends now and reaches back the requested duration, e.g. {@code ?window=7d}, by
+ * default {@code monitor.gw.history.default-window}.
+ */
+@Endpoint(id = "gatewayhistory")
+public class GatewayHistoryEndpoint {
+    @Autowired
+    GatewayMonitorConfigurationProperties gatewayMonitorConfig;
+    @Autowired
+    ConfiguredGatewaysService configuredGatewaysService;
+    @Autowired
+    GatewayStatusHistory statusHistory;
+
+    /**
+     * Retrieves the availability of all configured access points.
+     *
+     * @param window how far back the availability is computed
+     * @return the availability of the access points, the own access point first
+     */
+    @ReadOperation
+    public List<AvailabilityDTO> availabilities(@Nullable Duration window) {
+        var to = Instant.now();
+        var from = to.minus(window(window));
+        return configuredGatewaysService.getConfiguredGatewaysWithSelf()
+                                        .stream()
+                                        .map(ap -> statusHistory.getAvailability(
+                                            ap.getName(), from, to))
+                                        .toList();
+    }
+
+    /**
+     * Retrieves the availability of a specific configured access point.
+     *
+     * @param endpointName the name of the access point
+     * @param window       how far back the availability is computed
+     * @return the availability of the access point or null if it is not configured
+     */
+    @ReadOperation
+    public AvailabilityDTO availability(@Selector String endpointName,
+                                        @Nullable Duration window) {
+        AccessPoint byName = configuredGatewaysService.getByName(endpointName);
+        if (byName == null) {
+            return null;
+        }
+        var to = Instant.now();
+        return statusHistory.getAvailability(byName.getName(), to.minus(window(window)), to);
+    }
+
+    private Duration window(Duration window) {
+        return window != null
+            ? window
+            : gatewayMonitorConfig.getHistory().getDefaultWindow();
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.domain.ProbeMode;
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import eu.ecodex.utils.monitor.gw.dto.CheckResultDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.function.Supplier;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Records the duration of the phases of a gateway check and the failures found by it.
+ *
+ * <p>The phases are measured where they happen, in the DNS resolver and the socket factory of the
+ * TLS client. As the checks are executed on the calling thread the measurements are collected in a
+ * thread local which is started by {@link #start()} and published by
+ * {@link #record(AccessPoint, ProbeMode, PhaseTimings, AccessPointStatusDTO)}. Phases which are
+ * skipped, e.g. connecting if a pooled connection is reused, are not recorded. Async checks are
+ * not bound to a thread, their measurements are started by {@link #startDetached()} and passed
+ * with the context of the request to the connection manager of the async client, which binds them
+ * to the I/O reactor thread while it establishes a connection for the check.
+ *
+ * <p>All meters are tagged with the name of the access point, the meters of access points which
+ * are no longer configured are removed by {@link #retainAccessPoints(Collection)}. If no
+ * {@link MeterRegistry} is available the global registry of Micrometer is used.
+ */
+@Component
+public class GatewayProbeMetrics {
+    public static final String METRIC_PREFIX = "monitor.gw.probe";
+    public static final String ACCESS_POINT_TAG = "access.point";
+    private static final ThreadLocal<PhaseTimings> CURRENT = new ThreadLocal<>();
+    private static final String TIMINGS_ATTRIBUTE =
+        GatewayProbeMetrics.class.getName() + ".timings";
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
+    @Autowired
+    GatewayMonitorConfigurationProperties gatewayMonitorConfig;
+
+    /**
+     * The measured phases of a check.
+     */
+    public enum Phase {
+        DNS("dns", "Resolving the host name of the access point"),
+        CONNECT("connect", "Establishing the TCP connection"),
+        TLS_HANDSHAKE("tls.handshake", "The TLS handshake including the certificate checks"),
+        FIRST_BYTE("ttfb", "Time until the response headers have been received");
+
+        private final String metricName;
+        private final String description;
+
+        Phase(String metricName, String description) {
+            this.metricName = METRIC_PREFIX + "." + metricName;
+            this.description = description;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        if (meterRegistry == null) {
+            meterRegistry = Metrics.globalRegistry;
+        }
+    }
+
+    /**
+     * Starts measuring a check on the current thread.
+     *
+     * @return the measurements of the check
+     */
+    PhaseTimings start() {
+        var timings = new PhaseTimings(System.nanoTime());
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    /**
+     * Adds the duration of a phase to the check measured on the current thread, does nothing if no
+     * check is measured.
+     *
+     * @param phase      the finished phase
+     * @param startNanos the {@link System#nanoTime()} at the start of the phase
+     */
+    static void recordPhase(Phase phase, long startNanos) {
+        var timings = CURRENT.get();
+        if (timings != null) {
+            timings.add(phase, startNanos);
+        }
+    }
+
+    /**
+     * Starts measuring a check which is not bound to the current thread.
+     *
+     * @return the measurements of the check
+     */
+    PhaseTimings startDetached() {
+        return new PhaseTimings(System.nanoTime());
+    }
+
+    /**
+     * Passes the measurements of a check with the context of its request.
+     *
+     * @param context the context of the request sent by the check
+     * @param timings the measurements of the check
+     */
+    static void setTimings(HttpContext context, PhaseTimings timings) {
+        context.setAttribute(TIMINGS_ATTRIBUTE, timings);
+    }
+
+    /**
+     * Returns the measurements passed with the context of a request.
+     *
+     * @param context the context of the request
+     * @return the measurements or null if the request is not sent by a measured check
+     */
+    static PhaseTimings getTimings(HttpContext context) {
+        if (context != null
+            && context.getAttribute(TIMINGS_ATTRIBUTE) instanceof PhaseTimings timings) {
+            return timings;
+        }
+        return null;
+    }
+
+    /**
+     * Records the phases done by the action on the current thread for the provided check.
+     *
+     * @param timings the measurements of the check
+     * @param action  the action doing phases of the check
+     * @param <T>     the type of the result of the action
+     * @return the result of the action
+     */
+    static <T> T measure(PhaseTimings timings, Supplier<T> action) {
+        var previous = CURRENT.get();
+        CURRENT.set(timings);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Publishes the measurements of a finished check.
+     *
+     * @param ap      the checked access point
+     * @param mode    how the access point has been checked
+     * @param timings the measurements returned by {@link #start()}
+     * @param status  the result of the check
+     */
+    void record(AccessPoint ap, ProbeMode mode, PhaseTimings timings,
+                AccessPointStatusDTO status) {
+        if (CURRENT.get() == timings) {
+            CURRENT.remove();
+        }
+        long total = System.nanoTime() - timings.start;
+        String accessPoint = ap.getName();
+        boolean histograms = gatewayMonitorConfig.getProbe().isPublishHistograms();
+
+        for (Map.Entry<Phase, Long> phase : timings.durations().entrySet()) {
+            Timer.builder(phase.getKey().metricName)
+                 .description(phase.getKey().description)
+                 .tag(ACCESS_POINT_TAG, accessPoint)
+                 .publishPercentileHistogram(histograms)
+                 .register(meterRegistry)
+                 .record(Duration.ofNanos(phase.getValue()));
+        }
+
+        Timer.builder(METRIC_PREFIX + ".duration")
+             .description("Duration of the complete check of an access point")
+             .tag(ACCESS_POINT_TAG, accessPoint)
+             .tag("mode", mode.name())
+             .tag("outcome", status.getFailures().isEmpty() ? "success" : "failure")
+             .publishPercentileHistogram(histograms)
+             .register(meterRegistry)
+             .record(Duration.ofNanos(total));
+
+        for (CheckResultDTO failure : status.getFailures()) {
+            recordFailure(ap, failure.getName());
+        }
+    }
+
+    /**
+     * Counts a failure of a check.
+     *
+     * @param ap       the checked access point
+     * @param category the category of the failure, the name of the failed check
+     */
+    void recordFailure(AccessPoint ap, String category) {
+        Counter.builder(METRIC_PREFIX + ".failures")
+               .description("Failed checks of an access point by the category of the failure")
+               .tag(ACCESS_POINT_TAG, ap.getName())
+               .tag("category", StringUtils.hasText(category) ? category : "Other")
+               .register(meterRegistry)
+               .increment();
+    }
+
+    /**
+     * Removes the meters of all access points which are not part of the provided collection.
+     *
+     * @param accessPoints the access points whose meters should be kept
+     */
+    void retainAccessPoints(Collection<AccessPoint> accessPoints) {
+        var retained = new HashSet<String>();
+        accessPoints.forEach(ap -> retained.add(ap.getName()));
+        for (Meter meter : meterRegistry.getMeters()) {
+            var id = meter.getId();
+            var accessPoint = id.getTag(ACCESS_POINT_TAG);
+            if (id.getName().startsWith(METRIC_PREFIX + ".") && accessPoint != null
+                && !retained.contains(accessPoint)) {
+                meterRegistry.remove(meter);
+            }
+        }
+    }
+
+    /**
+     * The phase durations of one check.
+     */
+    static final class PhaseTimings {
+        private final long start;
+        private final Map<Phase, Long> durations = new EnumMap<>(Phase.class);
+
+        private PhaseTimings(long start) {
+            this.start = start;
+        }
+
+        /**
+         * Adds the duration of a phase, may be called from another thread than the measured one.
+         *
+         * @param phase      the finished phase
+         * @param startNanos the {@link System#nanoTime()} at the start of the phase
+         */
+        synchronized void add(Phase phase, long startNanos) {
+            durations.merge(phase, System.nanoTime() - startNanos, Long::sum);
+        }
+
+        /**
+         * Returns the summed up duration of a phase.
+         *
+         * @param phase the phase
+         * @return the duration in nanoseconds, 0 if the phase has not been recorded
+         */
+        synchronized long duration(Phase phase) {
+            return durations.getOrDefault(phase, 0L);
+        }
+
+        private synchronized Map<Phase, Long> durations() {
+            return new EnumMap<>(durations);
+        }
+    }
+}
@@ -12,50 +12,116 @@ package eu.ecodex.utils.monitor.gw.service;
 
 import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
 import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import eu.ecodex.utils.monitor.gw.dto.CertificateDTO;
 import java.util.List;
+import java.util.Locale;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
 import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
 import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
 
 /**
  * Endpoint to provide information about the reachability status of configured gateways.
  *
  * <p>This class provides operations to retrieve the status of all configured gateways as well as
  * the status of a specific gateway based on its name. The information is gathered by interacting
- * with the ConfiguredGatewaysService and GatewaysCheckerService.
+ * with the ConfiguredGatewaysService and the GatewaysProbeService.
+ *
+ * <p>Every status carries the version of the check which produced it, a check finding the same
+ * as the previous one keeps its version. Pollers can pass the highest version they have seen as
+ * {@code since} to only receive the access points whose status has changed since then. Access
+ * points which are no longer configured are only noticed by requesting all access points.
+ *
+ * <p>The certificates of a status are also available by their fingerprint under
+ * {@code gateways/certificates/<fingerprint>}, so the compact view only needs to reference them.
+ *
+ * <p>A POST to the endpoint reloads the configured access points, so a changed p-mode is picked up
+ * without waiting for the p-mode refresh interval.
  */
 @Endpoint(id = "gateways")
 public class GatewayReachableEndpoint {
+    public static final String CERTIFICATES = "certificates";
     @Autowired
     ConfiguredGatewaysService configuredGatewaysService;
     @Autowired
-    GatewaysCheckerService checkerService;
+    GatewaysProbeService probeService;
+    @Autowired
+    CertificateCache certificateCache;
 
+    /**
+     * Retrieves the status of all configured access points.
+     *
+     * @param since only return the access points whose status has a higher version than this one,
+     *              all access points are returned if not set
+     * @param view  {@code compact} leaves out the certificates and the details of the failures
+     *              and warnings, by default the {@code full} status is returned
+     * @return the status of the access points, the own access point first
+     */
     @ReadOperation
-    List<AccessPointStatusDTO> accessPointStatusList() {
-        return configuredGatewaysService
-            .getConfiguredGatewaysWithSelf()
-            .stream()
-            .map(ap -> checkerService.getGatewayStatus(ap))
-            .toList();
+    List<AccessPointStatusDTO> accessPointStatusList(@Nullable Long since, @Nullable View view) {
+        var statuses = probeService.getGatewayStatuses(
+            configuredGatewaysService.getConfiguredGatewaysWithSelf());
+        return statuses.stream()
+                       .filter(status -> since == null || status.getVersion() > since)
+                       .map(status -> render(status, view))
+                       .toList();
     }
 
     /**
      * Retrieves the status information of a specific configured gateway access point.
      *
      * @param endpointName The name of the access point for which status information is requested.
+     * @param view         {@code compact} leaves out the certificates and the details of the
+     *                     failures and warnings, by default the {@code full} status is returned
      * @return An {@link AccessPointStatusDTO} object containing the status information of the
      *         specified access point. If the access point is not found, an empty
      *         {@link AccessPointStatusDTO} object is returned.
      */
     @ReadOperation
-    public AccessPointStatusDTO getStoreEntryInfo(@Selector String endpointName) {
+    public AccessPointStatusDTO getStoreEntryInfo(@Selector String endpointName,
+                                                  @Nullable View view) {
         var dto = new AccessPointStatusDTO();
         AccessPoint byName = configuredGatewaysService.getByName(endpointName);
         if (byName == null) {
             return dto;
         }
-        return checkerService.getGatewayStatus(byName);
+        return render(probeService.getGatewayStatus(byName), view);
+    }
+
+    /**
+     * Looks up a certificate used in the checks of the access points by its fingerprint.
+     *
+     * @param type        must be {@value #CERTIFICATES}
+     * @param fingerprint the SHA-256 fingerprint of the certificate as hex string
+     * @return the certificate or null if no certificate with this fingerprint is known
+     */
+    @ReadOperation
+    public CertificateDTO getCertificate(@Selector String type, @Selector String fingerprint) {
+        if (!CERTIFICATES.equals(type)) {
+            return null;
+        }
+        return certificateCache.getByFingerprint(fingerprint.toLowerCase(Locale.ROOT))
+                               .orElse(null);
+    }
+
+    /**
+     * Marks the configured access points as outdated, they are reloaded on the next lookup.
+     */
+    @WriteOperation
+    public void reloadAccessPoints() {
+        configuredGatewaysService.invalidate();
+    }
+
+    private AccessPointStatusDTO render(AccessPointStatusDTO status, View view) {
+        return view == View.COMPACT ? status.toCompact() : status;
+    }
+
+    /**
+     * How much of a status is returned.
+     */
+    public enum View {
+        FULL, COMPACT
     }
 }
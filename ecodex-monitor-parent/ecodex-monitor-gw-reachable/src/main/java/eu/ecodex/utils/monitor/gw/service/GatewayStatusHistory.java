@@ -0,0 +1,274 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.config.HistoryProperties;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import eu.ecodex.utils.monitor.gw.dto.AvailabilityDTO;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps a fixed size history of the check results of every access point.
+ *
+ * <p>The latest checks are kept as single samples of check time, outcome and check duration in a
+ * ring buffer of primitive arrays. A sample dropped from the ring buffer is merged into the bucket
+ * of {@code monitor.gw.history.bucket-duration} it belongs to, which only keeps the number of
+ * checks, the number of successful checks and a histogram of the check durations. The buckets are
+ * a ring buffer as well, so the memory used per access point does not grow with the number of
+ * checks.
+ *
+ * <p>While an access point is backed off (see {@code monitor.gw.probe.backoff}) it is not checked,
+ * one skipped check per check cache timeout is recorded as a failed check without a duration, so
+ * the availability also covers the time the access point is known to be down.
+ *
+ * <p>The check durations are kept in logarithmic bins, three per power of two, so the latency
+ * percentiles of single samples and buckets can be combined. Computing the availability over a
+ * window walks the samples and buckets in place, it only allocates the histogram of the window.
+ */
+@Component
+public class GatewayStatusHistory {
+    static final int LATENCY_BINS = 48;
+    private static final int BINS_PER_DOUBLING = 3;
+    /**
+     * The latency of a skipped check.
+     */
+    private static final long NO_LATENCY = -1;
+    @Autowired
+    GatewayMonitorConfigurationProperties gatewayMonitorConfig;
+    private final Map<String, History> histories = new ConcurrentHashMap<>();
+
+    /**
+     * Adds the result of a check to the history of the access point.
+     *
+     * @param ap       the checked access point
+     * @param status   the result of the check
+     * @param duration how long the check took
+     */
+    void record(AccessPoint ap, AccessPointStatusDTO status, Duration duration) {
+        long checkTime = status.getCheckTime() == null
+            ? System.currentTimeMillis()
+            : status.getCheckTime().toInstant().toEpochMilli();
+        histories.computeIfAbsent(ap.getName(), name -> new History(history()))
+                 .add(checkTime, status.getFailures().isEmpty(), duration.toMillis());
+    }
+
+    /**
+     * Adds a check which has been skipped as the access point is backed off to the history of the
+     * access point. It counts as failed check, but not for the latency percentiles.
+     *
+     * @param ap        the access point which has not been checked
+     * @param checkTime when the check would have been done
+     */
+    void recordSkipped(AccessPoint ap, Instant checkTime) {
+        histories.computeIfAbsent(ap.getName(), name -> new History(history()))
+                 .add(checkTime.toEpochMilli(), false, NO_LATENCY);
+    }
+
+    /**
+     * Computes the availability and the latency percentiles of an access point over a window.
+     * Buckets of older checks are only counted if they start within the window, so the window
+     * start is rounded up to the next bucket for the older checks.
+     *
+     * @param name the name of the access point
+     * @param from the start of the window, inclusive
+     * @param to   the end of the window, exclusive
+     * @return the availability, without availability and percentiles if the access point has not
+     *      been checked within the window
+     */
+    public AvailabilityDTO getAvailability(String name, Instant from, Instant to) {
+        var window = new Window(from.toEpochMilli(), to.toEpochMilli());
+        var history = histories.get(name);
+        if (history != null) {
+            history.aggregate(window);
+        }
+
+        var availability = new AvailabilityDTO();
+        availability.setName(name);
+        availability.setFrom(from.atZone(ZoneId.systemDefault()));
+        availability.setTo(to.atZone(ZoneId.systemDefault()));
+        availability.setChecks(window.checks);
+        availability.setSuccessfulChecks(window.successfulChecks);
+        if (window.checks > 0) {
+            availability.setAvailability(100.0 * window.successfulChecks / window.checks);
+        }
+        if (window.measuredChecks > 0) {
+            availability.setLatencyP50(window.percentile(0.5));
+            availability.setLatencyP90(window.percentile(0.9));
+            availability.setLatencyP99(window.percentile(0.99));
+        }
+        return availability;
+    }
+
+    /**
+     * Removes the history of all access points which are not part of the provided collection.
+     *
+     * @param accessPoints the access points whose history should be kept
+     */
+    void retainAccessPoints(Collection<AccessPoint> accessPoints) {
+        var retained = new HashSet<String>();
+        accessPoints.forEach(ap -> retained.add(ap.getName()));
+        histories.keySet().retainAll(retained);
+    }
+
+    private HistoryProperties history() {
+        return gatewayMonitorConfig.getHistory();
+    }
+
+    static int latencyBin(long millis) {
+        if (millis <= 1) {
+            return 0;
+        }
+        // bin i holds the latencies up to 2^(i/3) ms
+        int bin = (int) Math.ceil(BINS_PER_DOUBLING * Math.log(millis) / Math.log(2) - 1e-9);
+        return Math.min(bin, LATENCY_BINS - 1);
+    }
+
+    static long latencyBinUpperBound(int bin) {
+        return Math.round(Math.pow(2, (double) bin / BINS_PER_DOUBLING));
+    }
+
+    /**
+     * The aggregated checks of an access point within a window.
+     */
+    private static final class Window {
+        private final long from;
+        private final long to;
+        private final int[] latencies = new int[LATENCY_BINS];
+        private long checks;
+        private long successfulChecks;
+        private long measuredChecks;
+
+        private Window(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        private boolean contains(long time) {
+            return time >= from && time < to;
+        }
+
+        private long percentile(double percentile) {
+            long rank = (long) Math.ceil(percentile * measuredChecks);
+            long count = 0;
+            for (int bin = 0; bin < LATENCY_BINS; bin++) {
+                count += latencies[bin];
+                if (count >= rank) {
+                    return latencyBinUpperBound(bin);
+                }
+            }
+            return latencyBinUpperBound(LATENCY_BINS - 1);
+        }
+    }
+
+    /**
+     * The samples and buckets of one access point.
+     */
+    private static final class History {
+        private final long[] sampleTimes;
+        private final boolean[] sampleSuccesses;
+        private final long[] sampleLatencies;
+        private int nextSample;
+        private int samples;
+        private final long bucketMillis;
+        private final long[] bucketStarts;
+        private final int[] bucketChecks;
+        private final int[] bucketSuccesses;
+        private final int[] bucketLatencies;
+
+        private History(HistoryProperties properties) {
+            int capacity = Math.max(1, properties.getSamples());
+            this.sampleTimes = new long[capacity];
+            this.sampleSuccesses = new boolean[capacity];
+            this.sampleLatencies = new long[capacity];
+            int buckets = Math.max(1, properties.getBuckets());
+            this.bucketMillis = Math.max(1, properties.getBucketDuration().toMillis());
+            this.bucketStarts = new long[buckets];
+            Arrays.fill(bucketStarts, Long.MIN_VALUE);
+            this.bucketChecks = new int[buckets];
+            this.bucketSuccesses = new int[buckets];
+            this.bucketLatencies = new int[buckets * LATENCY_BINS];
+        }
+
+        private synchronized void add(long time, boolean success, long latency) {
+            if (samples == sampleTimes.length) {
+                merge(sampleTimes[nextSample], sampleSuccesses[nextSample],
+                      sampleLatencies[nextSample]);
+            } else {
+                samples++;
+            }
+            sampleTimes[nextSample] = time;
+            sampleSuccesses[nextSample] = success;
+            sampleLatencies[nextSample] = latency;
+            nextSample = (nextSample + 1) % sampleTimes.length;
+        }
+
+        private void merge(long time, boolean success, long latency) {
+            long start = time - Math.floorMod(time, bucketMillis);
+            int bucket = (int) Math.floorMod(start / bucketMillis, (long) bucketStarts.length);
+            if (bucketStarts[bucket] != start) {
+                if (bucketStarts[bucket] > start) {
+                    // the bucket has already been reused for newer checks
+                    return;
+                }
+                bucketStarts[bucket] = start;
+                bucketChecks[bucket] = 0;
+                bucketSuccesses[bucket] = 0;
+                Arrays.fill(bucketLatencies, bucket * LATENCY_BINS,
+                            (bucket + 1) * LATENCY_BINS, 0);
+            }
+            bucketChecks[bucket]++;
+            if (success) {
+                bucketSuccesses[bucket]++;
+            }
+            if (latency != NO_LATENCY) {
+                bucketLatencies[bucket * LATENCY_BINS + latencyBin(latency)]++;
+            }
+        }
+
+        private synchronized void aggregate(Window window) {
+            for (int i = 0; i < samples; i++) {
+                if (window.contains(sampleTimes[i])) {
+                    window.checks++;
+                    if (sampleSuccesses[i]) {
+                        window.successfulChecks++;
+                    }
+                    if (sampleLatencies[i] != NO_LATENCY) {
+                        window.measuredChecks++;
+                        window.latencies[latencyBin(sampleLatencies[i])]++;
+                    }
+                }
+            }
+            for (int bucket = 0; bucket < bucketStarts.length; bucket++) {
+                long start = bucketStarts[bucket];
+                if (start != Long.MIN_VALUE && window.contains(start)) {
+                    window.checks += bucketChecks[bucket];
+                    window.successfulChecks += bucketSuccesses[bucket];
+                    for (int bin = 0; bin < LATENCY_BINS; bin++) {
+                        int latencies = bucketLatencies[bucket * LATENCY_BINS + bin];
+                        window.latencies[bin] += latencies;
+                        window.measuredChecks += latencies;
+                    }
+                }
+            }
+        }
+    }
+}
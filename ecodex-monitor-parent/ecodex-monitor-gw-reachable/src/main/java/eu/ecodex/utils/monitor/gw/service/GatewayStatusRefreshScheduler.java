@@ -0,0 +1,107 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Checks all configured access points periodically in the background.
+ *
+ * <p>Every {@code monitor.gw.refresh.interval} the configured access points are read and a check
+ * of each access point is started after a random delay within the configured jitter part of the
+ * interval, so the checks are spread over the interval instead of all starting at once. The
+ * results are kept by the {@link GatewaysCheckerService}, readers of the statuses never wait for a
+ * check. The scheduler is only started if {@code monitor.gw.refresh.enabled} is true.
+ */
+@Component
+public class GatewayStatusRefreshScheduler {
+    private static final Logger LOGGER =
+        LoggerFactory.getLogger(GatewayStatusRefreshScheduler.class);
+    @Autowired
+    GatewayMonitorConfigurationProperties gatewayMonitorConfig;
+    @Autowired
+    ConfiguredGatewaysService configuredGatewaysService;
+    @Autowired
+    GatewaysCheckerService gatewaysCheckerService;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Starts the periodic refresh if it is enabled.
+     */
+    @PostConstruct
+    public void init() {
+        var refresh = gatewayMonitorConfig.getRefresh();
+        if (!refresh.isEnabled()) {
+            LOGGER.debug("Background refresh of the gateway statuses is disabled");
+            return;
+        }
+        if (refresh.getJitter() < 0 || refresh.getJitter() > 1) {
+            throw new IllegalArgumentException("Refresh jitter must be between 0 and 1!");
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("gw-refresh").daemon().factory());
+        this.scheduler.scheduleAtFixedRate(
+            this::refreshAll, refresh.getInitialDelay().toMillis(),
+            refresh.getInterval().toMillis(), TimeUnit.MILLISECONDS
+        );
+        LOGGER.info("Checking all access points every [{}]", refresh.getInterval());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return scheduler != null;
+    }
+
+    void refreshAll() {
+        try {
+            var refresh = gatewayMonitorConfig.getRefresh();
+            long window = (long) (refresh.getInterval().toMillis() * refresh.getJitter());
+            var accessPoints = configuredGatewaysService.getConfiguredGatewaysWithSelf();
+            LOGGER.debug(
+                "Scheduling checks of [{}] access points within [{}] ms", accessPoints.size(),
+                window
+            );
+            for (AccessPoint ap : accessPoints) {
+                long delay = window > 0 ? ThreadLocalRandom.current().nextLong(window) : 0;
+                scheduler.schedule(() -> refresh(ap), delay, TimeUnit.MILLISECONDS);
+            }
+        } catch (RuntimeException e) {
+            // the next run must not be suppressed, so the exception is only logged
+            LOGGER.error("Error while scheduling the checks of the access points", e);
+        }
+    }
+
+    private void refresh(AccessPoint ap) {
+        gatewaysCheckerService
+            .refreshGatewayStatus(ap)
+            .exceptionally(e -> {
+                LOGGER.error("Background check of [{}] failed", ap, e);
+                return null;
+            });
+    }
+}
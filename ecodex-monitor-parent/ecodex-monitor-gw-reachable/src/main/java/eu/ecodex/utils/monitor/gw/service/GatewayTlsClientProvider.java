@@ -0,0 +1,765 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import eu.domibus.connector.lib.spring.configuration.StoreConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.security.KeyManagementException;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
+import java.security.UnrecoverableKeyException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import javax.net.ssl.SSLContext;
+import org.apache.commons.lang3.ArrayUtils;
+import org.apache.hc.client5.http.DnsResolver;
+import org.apache.hc.client5.http.SystemDefaultDnsResolver;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.impl.DefaultSchemePortResolver;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.nio.AsyncConnectionEndpoint;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.client5.http.ssl.DefaultHostnameVerifier;
+import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.ParseException;
+import org.apache.hc.core5.http.ProtocolVersion;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.config.Lookup;
+import org.apache.hc.core5.http.config.RegistryBuilder;
+import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.http.nio.ssl.TlsStrategy;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http.ssl.TLS;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.net.NamedEndpoint;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.pool.PoolReusePolicy;
+import org.apache.hc.core5.reactor.ConnectionInitiator;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.reactor.ssl.TransportSecurityLayer;
+import org.apache.hc.core5.ssl.SSLContexts;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+/**
+ * Provides the TLS client used for checking the gateways.
+ *
+ * <p>The key store and the trust store are loaded once, the SSLContext, the socket factory, the
+ * pooled connection manager and the http client built from them are shared by all checks. Reusing
+ * the SSLContext also reuses its TLS session cache, so sessions are resumed where the peer allows
+ * it. The client is only rebuilt when the TLS configuration or the store files change, which is
+ * checked at most once per {@code monitor.gw.tls-reload-check-interval}.
+ *
+ * <p>If {@code monitor.gw.probe.async} is enabled, an async http client sharing the SSLContext is
+ * built and started as well. Its few I/O reactor threads multiplex all connections, so the number
+ * of concurrent probes is not bound to the number of threads doing I/O.
+ */
+@Component
+public class GatewayTlsClientProvider {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GatewayTlsClientProvider.class);
+    private static final DnsResolver MEASURING_DNS_RESOLVER = new DnsResolver() {
+        @Override
+        public InetAddress[] resolve(String host) throws UnknownHostException {
+            long start = System.nanoTime();
+            try {
+                return SystemDefaultDnsResolver.INSTANCE.resolve(host);
+            } finally {
+                GatewayProbeMetrics.recordPhase(GatewayProbeMetrics.Phase.DNS, start);
+            }
+        }
+
+        @Override
+        public String resolveCanonicalHostname(String host) throws UnknownHostException {
+            return SystemDefaultDnsResolver.INSTANCE.resolveCanonicalHostname(host);
+        }
+    };
+    @Autowired
+    GatewayMonitorConfigurationProperties gatewayMonitorConfig;
+    @Autowired
+    TrustStoreCompleteChainTrustStrategy trustStoreCompleteChainTrustStrategy;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile TlsClient tlsClient;
+    private volatile long nextReloadCheck;
+
+    /**
+     * Returns the current TLS client, builds a new one if there is none yet or if the TLS
+     * configuration or one of the stores has changed since the current one was built.
+     *
+     * <p>The client is not retained, it may be closed at any time after it has been replaced.
+     * Checks use {@link #acquireTlsClient()} instead.
+     *
+     * @return the shared TLS client
+     * @throws TlsClientSetupException if the stores cannot be loaded or the SSLContext cannot be
+     *                                 created
+     */
+    public TlsClient getTlsClient() {
+        var current = this.tlsClient;
+        if (current != null && System.nanoTime() < nextReloadCheck) {
+            return current;
+        }
+        lock.lock();
+        try {
+            current = this.tlsClient;
+            if (current != null && System.nanoTime() < nextReloadCheck) {
+                return current;
+            }
+            var configurationState = currentConfigurationState();
+            if (current == null || !current.configurationState().equals(configurationState)) {
+                if (current != null) {
+                    LOGGER.info("TLS configuration or stores have changed, rebuilding TLS client");
+                }
+                this.tlsClient = buildTlsClient(configurationState);
+                if (current != null) {
+                    // closed once the checks still using it have finished
+                    current.release();
+                }
+            }
+            this.nextReloadCheck = System.nanoTime()
+                + gatewayMonitorConfig.getTlsReloadCheckInterval().toNanos();
+            return this.tlsClient;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the current TLS client like {@link #getTlsClient()} and retains it for a check. The
+     * check must {@link TlsClient#release() release} the client when it has finished, so a client
+     * replaced meanwhile is not closed while it is still used.
+     *
+     * @return the shared TLS client, retained for the caller
+     * @throws TlsClientSetupException if the stores cannot be loaded or the SSLContext cannot be
+     *                                 created
+     */
+    public TlsClient acquireTlsClient() {
+        while (true) {
+            var current = getTlsClient();
+            if (current.retain()) {
+                return current;
+            }
+        }
+    }
+
+    /**
+     * Releases the current TLS client, so the next call to {@link #getTlsClient()} builds a new
+     * one. The client is closed once the checks still using it have finished.
+     */
+    @PreDestroy
+    public void close() {
+        lock.lock();
+        try {
+            if (tlsClient != null) {
+                tlsClient.release();
+                tlsClient = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private TlsClient buildTlsClient(ConfigurationState configurationState) {
+        var tlsConfig = gatewayMonitorConfig.getTls();
+        var keyStore = tlsConfig.getKeyStore().loadKeyStore();
+        var trustStore = tlsConfig.getTrustStore().loadKeyStore();
+        trustStoreCompleteChainTrustStrategy.setTrustStore(trustStore);
+        char[] privateKeyPassword = tlsConfig.getPrivateKey().getPassword().toCharArray();
+
+        SSLContext sslcontext;
+        try {
+            sslcontext = SSLContexts
+                .custom()
+                .loadTrustMaterial(trustStore, trustStoreCompleteChainTrustStrategy)
+                .loadKeyMaterial(
+                    keyStore, privateKeyPassword,
+                    (aliases, sslParameters) -> tlsConfig.getPrivateKey().getAlias()
+                )
+                .build();
+        } catch (NoSuchAlgorithmException | KeyManagementException | KeyStoreException
+                 | UnrecoverableKeyException e) {
+            throw new TlsClientSetupException("Error while setting up SSLContext", e);
+        }
+
+        LOGGER.trace(
+            "Client supports: [{}]", CollectionUtils.arrayToList(
+                sslcontext.getSupportedSSLParameters().getProtocols()));
+
+        ProtocolVersion[] supportedClientProtos =
+            Stream.of(sslcontext.getSupportedSSLParameters().getProtocols())
+                  .map(s -> {
+                      try {
+                          return TLS.parse(s);
+                      } catch (ParseException e) {
+                          return null;
+                      }
+                  })
+                  .filter(Objects::nonNull)
+                  .toArray(ProtocolVersion[]::new);
+        LOGGER.debug(
+            "Supported and Allowed client protocols are [{}]",
+            CollectionUtils.arrayToList(supportedClientProtos)
+        );
+
+        ProtocolVersion minTls;
+        try {
+            minTls = TLS.parse(tlsConfig.getMinTls());
+        } catch (ParseException e) {
+            throw new TlsClientSetupException("Cannot parse minTls", e);
+        }
+        ProtocolVersion[] allowedTls = Stream.of(TLS.values())
+                                             .filter(tls -> tls.greaterEquals(minTls))
+                                             .map(t -> t.version)
+                                             .filter(p -> ArrayUtils.contains(
+                                                 supportedClientProtos, p))
+                                             .toArray(ProtocolVersion[]::new);
+        LOGGER.trace("allowed TLS protocols are [{}]", CollectionUtils.arrayToList(allowedTls));
+
+        if (allowedTls.length == 0) {
+            LOGGER.warn(
+                "Client supports TLS protocols [{}] but required minTls [{}] is not part of it!",
+                CollectionUtils.arrayToList(supportedClientProtos), minTls
+            );
+        }
+
+        TLS[] tls = Stream.of(allowedTls)
+                          .map(this::mapProtocolVersionToTLS)
+                          .toArray(TLS[]::new);
+
+        final SSLConnectionSocketFactory sslSocketFactory = new MeasuringSocketFactory(
+            sslcontext, Stream.of(tls).map(t -> t.id).toArray(String[]::new));
+
+        var probe = gatewayMonitorConfig.getProbe();
+        var probeTimeout = Timeout.ofMilliseconds(probe.getTimeout().toMillis());
+
+        var socketConfig = SocketConfig.custom()
+                                       .setSoTimeout(probeTimeout)
+                                       .build();
+        var connectionConfig = ConnectionConfig.custom()
+                                               .setConnectTimeout(probeTimeout)
+                                               .setSocketTimeout(probeTimeout)
+                                               .build();
+        final var cm = PoolingHttpClientConnectionManagerBuilder.create()
+                                                                .setSSLSocketFactory(
+                                                                    sslSocketFactory)
+                                                                .setDnsResolver(
+                                                                    MEASURING_DNS_RESOLVER)
+                                                                .setDefaultSocketConfig(
+                                                                    socketConfig)
+                                                                .setDefaultConnectionConfig(
+                                                                    connectionConfig)
+                                                                .setMaxConnPerRoute(2)
+                                                                .setMaxConnTotal(
+                                                                    2 * probe.getParallelism())
+                                                                .build();
+        var requestConfig = RequestConfig.custom()
+                                         .setConnectionRequestTimeout(probeTimeout)
+                                         .setResponseTimeout(probeTimeout)
+                                         .build();
+        var httpClient = HttpClients.custom()
+                                    .setConnectionManager(cm)
+                                    .setDefaultRequestConfig(requestConfig)
+                                    .evictExpiredConnections()
+                                    .evictIdleConnections(TimeValue.ofMinutes(1))
+                                    .build();
+
+        CloseableHttpAsyncClient asyncClient = null;
+        if (probe.isAsync()) {
+            asyncClient = buildAsyncClient(sslcontext, tls, connectionConfig, requestConfig);
+        }
+
+        LOGGER.debug("Built TLS client for configuration [{}]", configurationState);
+        return new TlsClient(
+            sslcontext, allowedTls, supportedClientProtos, sslSocketFactory, cm, httpClient,
+            asyncClient, configurationState
+        );
+    }
+
+    private CloseableHttpAsyncClient buildAsyncClient(SSLContext sslcontext, TLS[] tls,
+                                                      ConnectionConfig connectionConfig,
+                                                      RequestConfig requestConfig) {
+        var probe = gatewayMonitorConfig.getProbe();
+        var tlsStrategy = ClientTlsStrategyBuilder.create()
+                                                  .setSslContext(sslcontext)
+                                                  .setTlsVersions(tls)
+                                                  .setHostnameVerifier(
+                                                      new DefaultHostnameVerifier())
+                                                  .build();
+        // the probes only need HTTP/1.1, which also keeps the TLS handshake comparable to the
+        // classic client
+        var tlsConfig = TlsConfig.custom()
+                                 .setVersionPolicy(HttpVersionPolicy.FORCE_HTTP_1)
+                                 .setHandshakeTimeout(Timeout.of(probe.getTimeout()))
+                                 .build();
+        var asyncCm = MeasuringAsyncConnectionManager.create(tlsStrategy, tlsConfig);
+        asyncCm.setDefaultConnectionConfig(connectionConfig);
+        asyncCm.setDefaultMaxPerRoute(2);
+        asyncCm.setMaxTotal(2 * probe.getParallelism());
+        var ioReactorConfig = IOReactorConfig.custom()
+                                             .setIoThreadCount(probe.getIoThreads())
+                                             .setSoTimeout(Timeout.of(probe.getTimeout()))
+                                             .build();
+        var asyncClient = HttpAsyncClients.custom()
+                                          .setConnectionManager(asyncCm)
+                                          .setIOReactorConfig(ioReactorConfig)
+                                          .setDefaultRequestConfig(requestConfig)
+                                          .evictExpiredConnections()
+                                          .evictIdleConnections(TimeValue.ofMinutes(1))
+                                          .build();
+        asyncClient.start();
+        return asyncClient;
+    }
+
+    private TLS mapProtocolVersionToTLS(ProtocolVersion protocolVersion) {
+        return Stream.of(TLS.values())
+                     .filter(t -> t.isSame(protocolVersion))
+                     .findFirst()
+                     .get();
+    }
+
+    private ConfigurationState currentConfigurationState() {
+        var tlsConfig = gatewayMonitorConfig.getTls();
+        return new ConfigurationState(
+            tlsConfig.getMinTls(),
+            tlsConfig.getPrivateKey().getAlias(),
+            tlsConfig.getPrivateKey().getPassword(),
+            storeState(tlsConfig.getKeyStore()),
+            storeState(tlsConfig.getTrustStore()),
+            gatewayMonitorConfig.getProbe().getTimeout(),
+            gatewayMonitorConfig.getProbe().getParallelism(),
+            gatewayMonitorConfig.getProbe().isAsync(),
+            gatewayMonitorConfig.getProbe().getIoThreads()
+        );
+    }
+
+    private StoreState storeState(StoreConfigurationProperties store) {
+        Resource path = store.getPath();
+        long lastModified = -1;
+        long length = -1;
+        if (path != null) {
+            try {
+                lastModified = path.lastModified();
+                length = path.contentLength();
+            } catch (IOException e) {
+                LOGGER.trace("Cannot read file attributes of store [{}]", path, e);
+            }
+        }
+        return new StoreState(
+            String.valueOf(path), store.getType(), store.getPassword(), lastModified, length);
+    }
+
+    /**
+     * The TLS configuration and the state of the store files a {@link TlsClient} has been built
+     * from.
+     */
+    record ConfigurationState(String minTls, String privateKeyAlias, String privateKeyPassword,
+                              StoreState keyStore, StoreState trustStore, Duration timeout,
+                              int parallelism, boolean async, int ioThreads) {
+        @Override
+        public String toString() {
+            return "minTls=" + minTls + ", privateKeyAlias=" + privateKeyAlias + ", keyStore="
+                + keyStore + ", trustStore=" + trustStore + ", timeout=" + timeout + ", async="
+                + async;
+        }
+    }
+
+    /**
+     * Location and file attributes of a key or trust store.
+     */
+    record StoreState(String path, String type, String password, long lastModified,
+                      long length) {
+        @Override
+        public String toString() {
+            return path + " (" + type + ", lastModified=" + lastModified + ")";
+        }
+    }
+
+    /**
+     * Socket factory which reports the duration of connecting and of the TLS handshake to the
+     * {@link GatewayProbeMetrics}.
+     */
+    private static final class MeasuringSocketFactory extends SSLConnectionSocketFactory {
+        MeasuringSocketFactory(SSLContext sslContext, String[] tlsVersions) {
+            super(sslContext, tlsVersions, null, new DefaultHostnameVerifier());
+        }
+
+        @Override
+        protected void connectSocket(Socket sock, InetSocketAddress remoteAddress,
+                                     Timeout connectTimeout, HttpContext context)
+            throws IOException {
+            long start = System.nanoTime();
+            try {
+                super.connectSocket(sock, remoteAddress, connectTimeout, context);
+            } finally {
+                GatewayProbeMetrics.recordPhase(GatewayProbeMetrics.Phase.CONNECT, start);
+            }
+        }
+
+        @Override
+        public Socket createLayeredSocket(Socket socket, String target, int port,
+                                          Object attachment, HttpContext context)
+            throws IOException {
+            long start = System.nanoTime();
+            try {
+                return super.createLayeredSocket(socket, target, port, attachment, context);
+            } finally {
+                GatewayProbeMetrics.recordPhase(GatewayProbeMetrics.Phase.TLS_HANDSHAKE, start);
+            }
+        }
+    }
+
+    /**
+     * Connection manager of the async client which reports the phases of establishing a connection
+     * to the {@link GatewayProbeMetrics} of the check the connection is established for.
+     *
+     * <p>The async client connects on its I/O reactor threads, so the measurements of the check
+     * are taken from the context of the request instead of the current thread. The host name is
+     * resolved while the connection is requested, so the measurements are bound to the requesting
+     * thread meanwhile. Each measured connection gets its own copy of the TLS configuration, which
+     * is passed to the TLS strategy as attachment and tells it which check the TLS handshake
+     * belongs to.
+     */
+    private static final class MeasuringAsyncConnectionManager
+        extends PoolingAsyncClientConnectionManager {
+        private final Map<Object, Connecting> connecting;
+        private final TlsConfig tlsConfig;
+
+        private MeasuringAsyncConnectionManager(Lookup<TlsStrategy> tlsStrategies,
+                                                Map<Object, Connecting> connecting,
+                                                TlsConfig tlsConfig) {
+            super(tlsStrategies, PoolConcurrencyPolicy.STRICT, PoolReusePolicy.LIFO,
+                  TimeValue.NEG_ONE_MILLISECOND, DefaultSchemePortResolver.INSTANCE,
+                  MEASURING_DNS_RESOLVER);
+            this.connecting = connecting;
+            this.tlsConfig = tlsConfig;
+            setDefaultTlsConfig(tlsConfig);
+        }
+
+        static MeasuringAsyncConnectionManager create(TlsStrategy tlsStrategy,
+                                                      TlsConfig tlsConfig) {
+            Map<Object, Connecting> connecting =
+                Collections.synchronizedMap(new IdentityHashMap<>());
+            var tlsStrategies = RegistryBuilder.<TlsStrategy>create()
+                                               .register(
+                                                   URIScheme.HTTPS.id,
+                                                   new MeasuringTlsStrategy(
+                                                       tlsStrategy, connecting))
+                                               .build();
+            return new MeasuringAsyncConnectionManager(tlsStrategies, connecting, tlsConfig);
+        }
+
+        @Override
+        public Future<AsyncConnectionEndpoint> connect(
+            AsyncConnectionEndpoint endpoint, ConnectionInitiator connectionInitiator,
+            Timeout connectTimeout, Object attachment, HttpContext context,
+            FutureCallback<AsyncConnectionEndpoint> callback) {
+            var timings = GatewayProbeMetrics.getTimings(context);
+            if (timings == null) {
+                return super.connect(
+                    endpoint, connectionInitiator, connectTimeout, attachment, context, callback);
+            }
+            var connectionTlsConfig = TlsConfig.copy(
+                attachment instanceof TlsConfig given ? given : tlsConfig).build();
+            connecting.put(connectionTlsConfig, new Connecting(timings));
+            var measuringCallback = new FutureCallback<AsyncConnectionEndpoint>() {
+                @Override
+                public void completed(AsyncConnectionEndpoint result) {
+                    connected();
+                    if (callback != null) {
+                        callback.completed(result);
+                    }
+                }
+
+                @Override
+                public void failed(Exception ex) {
+                    connected();
+                    if (callback != null) {
+                        callback.failed(ex);
+                    }
+                }
+
+                @Override
+                public void cancelled() {
+                    connecting.remove(connectionTlsConfig);
+                    if (callback != null) {
+                        callback.cancelled();
+                    }
+                }
+
+                private void connected() {
+                    var connection = connecting.remove(connectionTlsConfig);
+                    if (connection != null && !connection.upgraded) {
+                        connection.connected();
+                    }
+                }
+            };
+            return GatewayProbeMetrics.measure(timings, () -> super.connect(
+                endpoint, connectionInitiator, connectTimeout, connectionTlsConfig, context,
+                measuringCallback));
+        }
+    }
+
+    /**
+     * TLS strategy of the async client which reports the duration of connecting and of the TLS
+     * handshake of the connections established by the {@link MeasuringAsyncConnectionManager}.
+     */
+    private static final class MeasuringTlsStrategy implements TlsStrategy {
+        private final TlsStrategy delegate;
+        private final Map<Object, Connecting> connecting;
+
+        MeasuringTlsStrategy(TlsStrategy delegate, Map<Object, Connecting> connecting) {
+            this.delegate = delegate;
+            this.connecting = connecting;
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public boolean upgrade(TransportSecurityLayer sessionLayer, HttpHost host,
+                               SocketAddress localAddress, SocketAddress remoteAddress,
+                               Object attachment, Timeout handshakeTimeout) {
+            return delegate.upgrade(
+                sessionLayer, host, localAddress, remoteAddress, attachment, handshakeTimeout);
+        }
+
+        @Override
+        public void upgrade(TransportSecurityLayer sessionLayer, NamedEndpoint endpoint,
+                            Object attachment, Timeout handshakeTimeout,
+                            FutureCallback<TransportSecurityLayer> callback) {
+            var connection = connecting.get(attachment);
+            if (connection == null) {
+                delegate.upgrade(sessionLayer, endpoint, attachment, handshakeTimeout, callback);
+                return;
+            }
+            connection.upgraded = true;
+            connection.connected();
+            long start = System.nanoTime();
+            delegate.upgrade(
+                sessionLayer, endpoint, attachment, handshakeTimeout,
+                new FutureCallback<>() {
+                    @Override
+                    public void completed(TransportSecurityLayer result) {
+                        connection.timings.add(GatewayProbeMetrics.Phase.TLS_HANDSHAKE, start);
+                        if (callback != null) {
+                            callback.completed(result);
+                        }
+                    }
+
+                    @Override
+                    public void failed(Exception ex) {
+                        connection.timings.add(GatewayProbeMetrics.Phase.TLS_HANDSHAKE, start);
+                        if (callback != null) {
+                            callback.failed(ex);
+                        }
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        if (callback != null) {
+                            callback.cancelled();
+                        }
+                    }
+                }
+            );
+        }
+    }
+
+    /**
+     * A connection which is established by the async client for a measured check.
+     */
+    private static final class Connecting {
+        private final GatewayProbeMetrics.PhaseTimings timings;
+        private final long start = System.nanoTime();
+        private final long resolvedBefore;
+        private volatile boolean upgraded;
+
+        Connecting(GatewayProbeMetrics.PhaseTimings timings) {
+            this.timings = timings;
+            this.resolvedBefore = timings.duration(GatewayProbeMetrics.Phase.DNS);
+        }
+
+        /**
+         * Records the time since the connection has been requested, without resolving the host
+         * name, as connect phase.
+         */
+        void connected() {
+            long resolving =
+                timings.duration(GatewayProbeMetrics.Phase.DNS) - resolvedBefore;
+            timings.add(GatewayProbeMetrics.Phase.CONNECT, start + resolving);
+        }
+    }
+
+    /**
+     * A TLS client built from the current TLS configuration.
+     *
+     * <p>A check retains the client while it uses it. A client replaced by a newer one is only
+     * closed once the last check using it has released it.
+     */
+    public static final class TlsClient {
+        private final SSLContext sslContext;
+        private final ProtocolVersion[] allowedTls;
+        private final ProtocolVersion[] supportedTls;
+        private final SSLConnectionSocketFactory socketFactory;
+        private final PoolingHttpClientConnectionManager connectionManager;
+        private final CloseableHttpClient httpClient;
+        private final CloseableHttpAsyncClient asyncClient;
+        private final ConfigurationState configurationState;
+        /**
+         * The checks using this client, plus one as long as the provider hands it out.
+         */
+        private final AtomicInteger users = new AtomicInteger(1);
+
+        /**
+         * Creates a TLS client.
+         *
+         * @param sslContext         the SSLContext holding the key and trust material
+         * @param allowedTls         the TLS versions which are supported by the client and are
+         *                           not below the configured minTls
+         * @param supportedTls       the TLS versions which are supported by the client
+         * @param socketFactory      the socket factory creating the TLS connections
+         * @param connectionManager  the pooled connection manager used by the http client
+         * @param httpClient         the http client for checking the gateways
+         * @param asyncClient        the started async http client for checking the gateways,
+         *                           null if async probing is not enabled
+         * @param configurationState the configuration this client has been built from
+         */
+        TlsClient(SSLContext sslContext, ProtocolVersion[] allowedTls,
+                  ProtocolVersion[] supportedTls, SSLConnectionSocketFactory socketFactory,
+                  PoolingHttpClientConnectionManager connectionManager,
+                  CloseableHttpClient httpClient, CloseableHttpAsyncClient asyncClient,
+                  ConfigurationState configurationState) {
+            this.sslContext = sslContext;
+            this.allowedTls = allowedTls;
+            this.supportedTls = supportedTls;
+            this.socketFactory = socketFactory;
+            this.connectionManager = connectionManager;
+            this.httpClient = httpClient;
+            this.asyncClient = asyncClient;
+            this.configurationState = configurationState;
+        }
+
+        public SSLContext sslContext() {
+            return sslContext;
+        }
+
+        public ProtocolVersion[] allowedTls() {
+            return allowedTls;
+        }
+
+        public ProtocolVersion[] supportedTls() {
+            return supportedTls;
+        }
+
+        public SSLConnectionSocketFactory socketFactory() {
+            return socketFactory;
+        }
+
+        public PoolingHttpClientConnectionManager connectionManager() {
+            return connectionManager;
+        }
+
+        public CloseableHttpClient httpClient() {
+            return httpClient;
+        }
+
+        public CloseableHttpAsyncClient asyncClient() {
+            return asyncClient;
+        }
+
+        public ConfigurationState configurationState() {
+            return configurationState;
+        }
+
+        /**
+         * Tells if the client has been closed after it has been replaced and released by all
+         * checks.
+         *
+         * @return true if the client is closed
+         */
+        public boolean isClosed() {
+            return users.get() == 0;
+        }
+
+        /**
+         * Marks the client as used by a check.
+         *
+         * @return false if the client has been closed already
+         */
+        boolean retain() {
+            int current;
+            do {
+                current = users.get();
+                if (current == 0) {
+                    return false;
+                }
+            } while (!users.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        /**
+         * Releases the client after a check or when it is replaced, the last release closes it.
+         * The client is closed on its own thread, as the last release may happen on an I/O
+         * reactor thread of the async client, which must not wait for its own shutdown.
+         */
+        public void release() {
+            if (users.decrementAndGet() == 0) {
+                Thread.ofVirtual().name("tls-client-close").start(this::close);
+            }
+        }
+
+        private void close() {
+            LOGGER.debug("Closing TLS client built for [{}]", configurationState);
+            httpClient.close(CloseMode.GRACEFUL);
+            if (asyncClient != null) {
+                asyncClient.close(CloseMode.GRACEFUL);
+            }
+        }
+    }
+
+    /**
+     * Thrown if the TLS client cannot be built from the current configuration.
+     */
+    public static class TlsClientSetupException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public TlsClientSetupException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+}
@@ -10,65 +10,153 @@
 
 package eu.ecodex.utils.monitor.gw.service;
 
+import eu.ecodex.utils.monitor.gw.config.BackoffProperties;
 import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
 import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.domain.ProbeMode;
 import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import eu.ecodex.utils.monitor.gw.dto.CertificateDTO;
 import eu.ecodex.utils.monitor.gw.dto.CheckResultDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
 import java.net.URISyntaxException;
-import java.security.KeyManagementException;
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
-import java.security.UnrecoverableKeyException;
-import java.security.cert.Certificate;
-import java.security.cert.CertificateEncodingException;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.ZonedDateTime;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
-import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLHandshakeException;
-import org.apache.commons.lang3.ArrayUtils;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpHead;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.impl.DefaultSchemePortResolver;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
 import org.apache.hc.client5.http.protocol.HttpClientContext;
-import org.apache.hc.client5.http.ssl.DefaultHostnameVerifier;
-import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
-import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactoryBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.Message;
 import org.apache.hc.core5.http.ParseException;
-import org.apache.hc.core5.http.ProtocolVersion;
+import org.apache.hc.core5.http.URIScheme;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.nio.entity.DiscardingEntityConsumer;
+import org.apache.hc.core5.http.nio.support.BasicResponseConsumer;
+import org.apache.hc.core5.http.protocol.HttpContext;
 import org.apache.hc.core5.http.ssl.TLS;
-import org.apache.hc.core5.ssl.SSLContexts;
+import org.apache.hc.core5.util.Timeout;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.springframework.util.Base64Utils;
-import org.springframework.util.CollectionUtils;
 
 /**
  * Service for checking the status of gateways.
  *
  * <p>This service provides methods to get the current status of a specified gateway and caches the
- * results based on a configurable timeout duration.
+ * results based on a configurable timeout duration. Concurrent requests for an access point whose
+ * cached status has expired share one check. While this check is running the previous status is
+ * served, as long as it is not older than the check cache timeout plus
+ * {@code monitor.gw.check-cache-max-stale}. Only callers without a usable status wait for the
+ * check. The number of checks running at the same time is bounded by the probe parallelism.
  *
- * <p>The service utilizes SSL/TLS configurations to securely connect and retrieve the statuses
- * from the gateways.
+ * <p>The service uses the shared TLS client of the {@link GatewayTlsClientProvider} to securely
+ * connect and retrieve the statuses from the gateways. Connecting, the TLS handshake and waiting
+ * for the response are bounded by the configured probe timeout.
+ *
+ * <p>Depending on the {@link ProbeMode} of the access point or the configured probe mode, an
+ * access point is checked by a TLS handshake only or by a HEAD or GET request to its endpoint.
+ * A response body is always discarded without buffering it. If {@code monitor.gw.probe.async} is
+ * enabled the HEAD and GET requests are sent with the async http client, whose I/O reactor
+ * multiplexes all probes. No thread waits for these requests, the status is completed and the
+ * check permit is released by the completion callback of the request. The duration of the phases
+ * of each check and its failures are recorded by the {@link GatewayProbeMetrics}, the outcome and
+ * the duration of each check by the {@link GatewayStatusHistory}.
+ *
+ * <p>Access points failing repeatedly are backed off exponentially (see
+ * {@code monitor.gw.probe.backoff}): their last status is served with a
+ * {@value #BACKOFF_CHECK_NAME} warning telling since when they are known to be down, and they are
+ * probed again with a TLS handshake only after the backoff delay. Meanwhile one skipped check per
+ * cache timeout is recorded as failed check in the {@link GatewayStatusHistory}.
  */
 @Component
 @SuppressWarnings("squid:S1135")
 public class GatewaysCheckerService {
     private static final Logger LOGGER = LoggerFactory.getLogger(GatewaysCheckerService.class);
+    public static final String BACKOFF_CHECK_NAME = "Backoff";
     @Autowired
     GatewayMonitorConfigurationProperties gatewayMonitorConfig;
     @Autowired
-    TrustStoreCompleteChainTrustStrategy trustStoreCompleteChainTrustStrategy;
-    private final Map<AccessPoint, AccessPointStatusDTO> apCheck = new HashMap<>();
+    GatewayTlsClientProvider tlsClientProvider;
+    @Autowired
+    GatewayProbeMetrics probeMetrics;
+    @Autowired
+    CertificateCache certificateCache;
+    @Autowired
+    GatewayStatusHistory statusHistory;
+    private final Map<AccessPoint, CacheEntry> apCheck = new ConcurrentHashMap<>();
+    /**
+     * Source of the versions of the check results, a result which differs from the previous one
+     * gets a higher version.
+     */
+    private final AtomicLong versions = new AtomicLong();
+    /**
+     * Async checks waiting for a check permit.
+     */
+    private final Queue<Runnable> pendingAsyncChecks = new ConcurrentLinkedQueue<>();
+    private ExecutorService checkExecutor;
+    private Semaphore checkPermits;
+
+    /**
+     * Creates the executor running the checks and the permits bounding how many checks may run at
+     * the same time.
+     */
+    @PostConstruct
+    public void init() {
+        int parallelism = gatewayMonitorConfig.getProbe().getParallelism();
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Probe parallelism must be at least 1!");
+        }
+        this.checkExecutor =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("gw-check-", 0).factory());
+        this.checkPermits = new Semaphore(parallelism);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        checkExecutor.shutdownNow();
+    }
 
     public AccessPointStatusDTO getGatewayStatus(AccessPoint ap) {
         return getGatewayStatus(ap, gatewayMonitorConfig.getCheckCacheTimeout());
@@ -86,192 +174,627 @@ public class GatewaysCheckerService {
      *      connection.
      */
     public AccessPointStatusDTO getGatewayStatus(AccessPoint ap, Duration cacheTimeout) {
-        var status = apCheck.get(ap);
-        if (status != null && status.getCheckTime().plus(cacheTimeout)
-                                    .isAfter(ZonedDateTime.now())) {
+        try {
+            return getGatewayStatusAsync(ap, cacheTimeout).join();
+        } catch (CompletionException | CancellationException e) {
+            throw new IllegalStateException("Check of [" + ap + "] failed", e);
+        }
+    }
+
+    /**
+     * Retrieves the current status of the specified gateway like
+     * {@link #getGatewayStatus(AccessPoint)} without waiting for a check.
+     *
+     * @param ap the access point representing the gateway whose status needs to be fetched
+     * @return a future completed with the status, already completed if a cached status is served
+     */
+    public CompletableFuture<AccessPointStatusDTO> getGatewayStatusAsync(AccessPoint ap) {
+        return getGatewayStatusAsync(ap, gatewayMonitorConfig.getCheckCacheTimeout());
+    }
+
+    private CompletableFuture<AccessPointStatusDTO> getGatewayStatusAsync(AccessPoint ap,
+                                                                          Duration cacheTimeout) {
+        var entry = apCheck.computeIfAbsent(ap, k -> new CacheEntry());
+        var status = entry.status;
+        var now = ZonedDateTime.now();
+        if (status != null && entry.isBackingOff()) {
+            LOGGER.trace("[{}] is known to be down, not checking it again yet", ap);
+            entry.skipExpiredCheck(ap, status, cacheTimeout);
+            return CompletableFuture.completedFuture(status);
+        }
+        if (status != null && status.getCheckTime().plus(cacheTimeout).isAfter(now)) {
             LOGGER.trace(
                 "Checking [{}] and hitting [{}] + [{}] cache last check was on [{}]", ap,
-                ZonedDateTime.now(), cacheTimeout, status.getCheckTime()
+                now, cacheTimeout, status.getCheckTime()
             );
-            return status;
+            return CompletableFuture.completedFuture(status);
+        }
+
+        var check = entry.refresh(ap);
+        var maxStale = gatewayMonitorConfig.getCheckCacheMaxStale();
+        if (status != null && status.getCheckTime().plus(cacheTimeout).plus(maxStale)
+                                    .isAfter(now)) {
+            LOGGER.trace(
+                "Serving stale status of [{}] from [{}] while it is checked again", ap,
+                status.getCheckTime()
+            );
+            return CompletableFuture.completedFuture(status);
+        }
+        return check;
+    }
+
+    /**
+     * Starts a check of the specified gateway unless one is already running, without waiting for
+     * its result.
+     *
+     * @param ap the access point to check
+     * @return the running check, completed with the new status of the access point
+     */
+    public CompletableFuture<AccessPointStatusDTO> refreshGatewayStatus(AccessPoint ap) {
+        return apCheck.computeIfAbsent(ap, k -> new CacheEntry()).refresh(ap);
+    }
+
+    /**
+     * Retrieves the last status of the specified gateway without checking it.
+     *
+     * @param ap the access point whose status should be retrieved
+     * @return the result of the last completed check, or an empty optional if the access point
+     *      has not been checked yet
+     */
+    public Optional<AccessPointStatusDTO> getCachedGatewayStatus(AccessPoint ap) {
+        var entry = apCheck.get(ap);
+        if (entry == null) {
+            return Optional.empty();
         }
+        return Optional.ofNullable(entry.status);
+    }
+
+    /**
+     * Removes the cached statuses, the history and the meters of all access points which are not
+     * part of the provided collection, so the cache does not keep statuses of access points which
+     * have been removed from the configuration.
+     *
+     * @param accessPoints the access points whose cached status should be kept
+     */
+    public void retainAccessPoints(Collection<AccessPoint> accessPoints) {
+        var retained = new HashSet<>(accessPoints);
+        apCheck.keySet().removeIf(ap -> {
+            if (retained.contains(ap)) {
+                return false;
+            }
+            LOGGER.debug("Removing cached status of [{}]", ap);
+            return true;
+        });
+        statusHistory.retainAccessPoints(accessPoints);
+        probeMetrics.retainAccessPoints(accessPoints);
+    }
+
+    /**
+     * Checks the access point with the configured probe mode.
+     *
+     * <p>TLS handshakes and the requests of the classic http client are done on a virtual thread
+     * of the check executor, which waits for a permit first. The requests of the async http client
+     * are started as soon as a permit is available without occupying a thread, the permit is
+     * released by the completion callback of the request.
+     *
+     * @param ap   the access point to check
+     * @param mode how the access point is checked
+     * @return the running check, completed with the result of the check
+     */
+    CompletableFuture<AccessPointStatusDTO> checkGateway(AccessPoint ap, ProbeMode mode) {
+        if (mode != ProbeMode.HANDSHAKE && gatewayMonitorConfig.getProbe().isAsync()) {
+            return checkHttpAsync(ap, mode);
+        }
+        return CompletableFuture.supplyAsync(() -> checkGatewayBlocking(ap, mode), checkExecutor);
+    }
+
+    private AccessPointStatusDTO checkGatewayBlocking(AccessPoint ap, ProbeMode mode) {
+        try {
+            checkPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to check [" + ap + "]", e);
+        }
+        try {
+            long start = System.nanoTime();
+            var timings = probeMetrics.start();
+            var status = newStatus(ap);
+            var tlsClient = getTlsClient(status);
+            if (tlsClient != null) {
+                try {
+                    if (mode == ProbeMode.HANDSHAKE) {
+                        checkHandshake(ap, tlsClient, status);
+                    } else {
+                        checkHttp(ap, mode, tlsClient, status);
+                    }
+                } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+                    addCheckFailure(status, e);
+                } finally {
+                    tlsClient.release();
+                }
+            }
+            return recordCheck(ap, mode, timings, start, status);
+        } finally {
+            releasePermit();
+        }
+    }
+
+    private AccessPointStatusDTO newStatus(AccessPoint ap) {
         LOGGER.info("Checking endpoint [{}]", ap);
-        status = new AccessPointStatusDTO();
+        var status = new AccessPointStatusDTO();
         status.setCheckTime(ZonedDateTime.now());
         status.setEndpoint(ap.getEndpoint());
         status.setName(ap.getName());
-        apCheck.put(ap, status);
-
-        char[] privateKeyPassword =
-            gatewayMonitorConfig.getTls().getPrivateKey().getPassword().toCharArray();
-        var keyStore = gatewayMonitorConfig.getTls().getKeyStore().loadKeyStore();
-        var trustStore = gatewayMonitorConfig.getTls().getTrustStore().loadKeyStore();
-
-        var minTlsString = gatewayMonitorConfig.getTls().getMinTls();
+        return status;
+    }
 
-        SSLContext sslcontext = null;
+    /**
+     * Acquires the shared TLS client and adds the TLS versions it allows to the status. The check
+     * must release the client when it has finished.
+     *
+     * @param status the status of the running check
+     * @return the TLS client or null if it cannot be set up, the failure is added to the status
+     */
+    private GatewayTlsClientProvider.TlsClient getTlsClient(AccessPointStatusDTO status) {
+        final GatewayTlsClientProvider.TlsClient tlsClient;
         try {
-            sslcontext = SSLContexts
-                .custom()
-                .loadTrustMaterial(trustStore, trustStoreCompleteChainTrustStrategy)
-                .loadKeyMaterial(
-                    keyStore, privateKeyPassword,
-                    (aliases, sslParameters) -> gatewayMonitorConfig.getTls()
-                                                                    .getPrivateKey()
-                                                                    .getAlias()
-                )
-                .build();
-        } catch (NoSuchAlgorithmException | KeyManagementException | KeyStoreException
-                 | UnrecoverableKeyException e) {
+            tlsClient = tlsClientProvider.acquireTlsClient();
+        } catch (RuntimeException e) {
             LOGGER.error("Error while setting up SSLContext", e);
             var checkResultDTO = new CheckResultDTO();
             checkResultDTO.setName("SSLContext setup");
             checkResultDTO.setMessage(e.getMessage());
             checkResultDTO.writeStackTraceIntoDetails(e);
+            status.getFailures().add(checkResultDTO);
+            return null;
         }
 
-        LOGGER.trace(
-            "Client supports: [{}]", CollectionUtils.arrayToList(
-                sslcontext.getSupportedSSLParameters().getProtocols()));
-
-        final ProtocolVersion[] allowedTls;
-        ProtocolVersion[] supportedClientProtos =
-            Stream.of(sslcontext.getSupportedSSLParameters().getProtocols())
-                  .map(s -> {
-                      try {
-                          return TLS.parse(s);
-                      } catch (ParseException e) {
-                          return null;
-                      }
-                  })
-                  .filter(Objects::nonNull)
-                  .toArray(ProtocolVersion[]::new);
-        LOGGER.debug(
-            "Supported and Allowed client protocols are [{}]",
-            CollectionUtils.arrayToList(supportedClientProtos)
-        );
-
-        ProtocolVersion minTls;
-        try {
-            minTls = TLS.parse(minTlsString);
-        } catch (ParseException e) {
-            throw new RuntimeException(e);
-        }
-        allowedTls = Stream.of(TLS.values())
-                           .filter(tls -> tls.greaterEquals(minTls))
-                           .map(t -> t.version)
-                           .filter(p -> ArrayUtils.contains(supportedClientProtos, p))
-                           .toArray(ProtocolVersion[]::new);
-        status.setAllowedTls(allowedTls);
-
-        LOGGER.trace(
-            "allowed TLS protocols are [{}]", CollectionUtils.arrayToList(status.getAllowedTls()));
+        status.setAllowedTls(tlsClient.allowedTls());
 
-        if (allowedTls.length == 0) {
+        if (tlsClient.allowedTls().length == 0) {
             var checkResultDTO = new CheckResultDTO();
+            checkResultDTO.setName("TLS setup");
             checkResultDTO.setMessage("Client does not support minTls!");
             status.getFailures().add(checkResultDTO);
-            LOGGER.warn(
-                "Client supports TLS protocols [{}] but required minTls [{}] is not part of it!",
-                CollectionUtils.arrayToList(supportedClientProtos), minTls
-            );
         }
+        return tlsClient;
+    }
+
+    private static void addCheckFailure(AccessPointStatusDTO status, Exception e) {
+        var checkResultDTO = new CheckResultDTO();
+        if (e instanceof SSLHandshakeException) {
+            LOGGER.error("TLS Handshake failed due", e);
+            checkResultDTO.setName("TLS failure");
+            checkResultDTO.setMessage("TLS Handshake failed!");
+        } else {
+            checkResultDTO.setName("Connection Failure");
+            checkResultDTO.setMessage("Connection failed");
+        }
+        // TODO: switch for print stack trace...
+        checkResultDTO.writeStackTraceIntoDetails(e);
+        status.getFailures().add(checkResultDTO);
+    }
+
+    private AccessPointStatusDTO recordCheck(AccessPoint ap, ProbeMode mode,
+                                             GatewayProbeMetrics.PhaseTimings timings,
+                                             long start, AccessPointStatusDTO status) {
+        probeMetrics.record(ap, mode, timings, status);
+        statusHistory.record(ap, status, Duration.ofNanos(System.nanoTime() - start));
+        return status;
+    }
+
+    /**
+     * Releases a check permit and starts the async checks waiting for it.
+     */
+    private void releasePermit() {
+        checkPermits.release();
+        startPendingAsyncChecks();
+    }
+
+    private void startPendingAsyncChecks() {
+        while (!pendingAsyncChecks.isEmpty() && checkPermits.tryAcquire()) {
+            var pending = pendingAsyncChecks.poll();
+            if (pending == null) {
+                checkPermits.release();
+            } else {
+                pending.run();
+            }
+        }
+    }
+
+    private void checkHttp(AccessPoint ap, ProbeMode mode,
+                           GatewayTlsClientProvider.TlsClient tlsClient,
+                           AccessPointStatusDTO status) throws IOException, URISyntaxException {
+        final HttpUriRequestBase httpRequest = mode == ProbeMode.HEAD
+            ? new HttpHead(ap.getEndpoint())
+            : new HttpGet(ap.getEndpoint());
+
+        LOGGER.debug("Executing request {} {}", httpRequest.getMethod(), httpRequest.getUri());
+
+        final var clientContext = HttpClientContext.create();
+        long requestStart = System.nanoTime();
+        try (CloseableHttpResponse response =
+                 tlsClient.httpClient().execute(httpRequest, clientContext)) {
+            GatewayProbeMetrics.recordPhase(GatewayProbeMetrics.Phase.FIRST_BYTE, requestStart);
+            LOGGER.debug("{} {}", response.getCode(), response.getReasonPhrase());
+            // the body is not of interest, read it without buffering so the connection can be
+            // reused
+            EntityUtils.consume(response.getEntity());
 
-        var defaultHostnameVerifier = new DefaultHostnameVerifier();
+            if (response.getCode() != 200) {
+                var checkResultDTO = new CheckResultDTO();
+                checkResultDTO.setName("HTTP Code");
+                checkResultDTO.setMessage("HTTP Code != 200");
+                status.getFailures().add(checkResultDTO);
+            }
+        } finally {
+            setSessionInfo(status, clientContext);
+        }
+    }
 
-        TLS[] tls = Stream.of(allowedTls)
-                          .map(this::mapProtocolVersionToTLS)
-                          .toArray(TLS[]::new);
+    private CompletableFuture<AccessPointStatusDTO> checkHttpAsync(AccessPoint ap,
+                                                                   ProbeMode mode) {
+        var status = newStatus(ap);
+        var tlsClient = getTlsClient(status);
+        if (tlsClient != null && tlsClient.asyncClient() == null) {
+            // the TLS client has been built before async probing was enabled
+            tlsClient.release();
+            return CompletableFuture.supplyAsync(
+                () -> checkGatewayBlocking(ap, mode), checkExecutor);
+        }
+        var check = new CompletableFuture<AccessPointStatusDTO>();
+        pendingAsyncChecks.add(() -> {
+            long start = System.nanoTime();
+            var timings = probeMetrics.startDetached();
+            if (tlsClient == null) {
+                releasePermit();
+                check.complete(recordCheck(ap, mode, timings, start, status));
+                return;
+            }
+            try {
+                sendAsync(ap, mode, tlsClient, status, timings, () -> {
+                    tlsClient.release();
+                    releasePermit();
+                    check.complete(recordCheck(ap, mode, timings, start, status));
+                });
+            } catch (RuntimeException e) {
+                tlsClient.release();
+                releasePermit();
+                check.completeExceptionally(e);
+            }
+        });
+        startPendingAsyncChecks();
+        return check;
+    }
 
-        final SSLConnectionSocketFactory sslSocketFactory =
-            SSLConnectionSocketFactoryBuilder.create()
-                                             .setSslContext(sslcontext)
-                                             .setTlsVersions(tls)
-                                             .setHostnameVerifier(defaultHostnameVerifier)
-                                             .build();
+    private void sendAsync(AccessPoint ap, ProbeMode mode,
+                           GatewayTlsClientProvider.TlsClient tlsClient,
+                           AccessPointStatusDTO status, GatewayProbeMetrics.PhaseTimings timings,
+                           Runnable done) {
+        final SimpleHttpRequest httpRequest = mode == ProbeMode.HEAD
+            ? SimpleRequestBuilder.head(ap.getEndpoint()).build()
+            : SimpleRequestBuilder.get(ap.getEndpoint()).build();
 
-        final var cm = PoolingHttpClientConnectionManagerBuilder.create()
-                                                                .setSSLSocketFactory(
-                                                                    sslSocketFactory)
-                                                                .build();
-        try (var httpclient = HttpClients.custom().setConnectionManager(cm).build()) {
-            final var httpRequest = new HttpGet(ap.getEndpoint());
+        LOGGER.debug("Executing async request {} {}", httpRequest.getMethod(),
+                     httpRequest.getRequestUri());
 
-            LOGGER.debug(
-                "Executing request {} {}", httpRequest.getMethod(), httpRequest.getUri()
-            );
+        // the connection is established on the I/O reactor threads, the phases are measured with
+        // the timings found in the context
+        final var clientContext = HttpClientContext.create();
+        GatewayProbeMetrics.setTimings(clientContext, timings);
+        final long requestStart = System.nanoTime();
+        // the body is not of interest, it is discarded while it is received
+        var responseConsumer = new BasicResponseConsumer<Void>(new DiscardingEntityConsumer<>()) {
+            @Override
+            public void consumeResponse(HttpResponse response, EntityDetails entityDetails,
+                                        HttpContext context, FutureCallback<Message<HttpResponse,
+                                        Void>> resultCallback)
+                throws HttpException, IOException {
+                timings.add(GatewayProbeMetrics.Phase.FIRST_BYTE, requestStart);
+                super.consumeResponse(response, entityDetails, context, resultCallback);
+            }
+        };
 
-            final var clientContext = HttpClientContext.create();
-            try (CloseableHttpResponse response = httpclient.execute(httpRequest, clientContext)) {
-                LOGGER.debug("----------------------------------------");
-                LOGGER.debug("{} {}", response.getCode(), response.getReasonPhrase());
-                LOGGER.debug(EntityUtils.toString(response.getEntity()));
-
-                if (response.getCode() != 200) {
-                    var checkResultDTO = new CheckResultDTO();
-                    checkResultDTO.setName("HTTP Code");
-                    checkResultDTO.setMessage("HTTP Code != 200");
-                    status.getFailures().add(checkResultDTO);
+        tlsClient.asyncClient().execute(
+            SimpleRequestProducer.create(httpRequest), responseConsumer, clientContext,
+            new FutureCallback<>() {
+                @Override
+                public void completed(Message<HttpResponse, Void> message) {
+                    var response = message.getHead();
+                    LOGGER.debug("{} {}", response.getCode(), response.getReasonPhrase());
+                    if (response.getCode() != 200) {
+                        var checkResultDTO = new CheckResultDTO();
+                        checkResultDTO.setName("HTTP Code");
+                        checkResultDTO.setMessage("HTTP Code != 200");
+                        status.getFailures().add(checkResultDTO);
+                    }
+                    setSessionInfo(status, clientContext);
+                    done.run();
                 }
-            } catch (SSLHandshakeException sslHandshakeException) {
-                LOGGER.error("TLS Handshake failed due", sslHandshakeException);
 
-                var checkResultDTO = new CheckResultDTO();
-                checkResultDTO.setName("TLS failure");
-                checkResultDTO.setMessage("TLS Handshake failed!");
+                @Override
+                public void failed(Exception ex) {
+                    setSessionInfo(status, clientContext);
+                    addCheckFailure(status, ex);
+                    done.run();
+                }
 
-                // TODO: switch for print stack trace...
-                checkResultDTO.writeStackTraceIntoDetails(sslHandshakeException);
-                status.getFailures().add(checkResultDTO);
-            } finally {
-                final var sslSession = clientContext.getSSLSession();
-                if (sslSession != null) {
-                    LOGGER.debug("TLS protocol {}", sslSession.getProtocol());
-                    LOGGER.debug("TLS cipher suite {}", sslSession.getCipherSuite());
-
-                    status.setUsedTls(TLS.parse(sslSession.getProtocol()));
-                    status.setLocalCertificates(
-                        convertToBase64StringArray(sslSession.getLocalCertificates()));
-                    status.setServerCertificates(
-                        convertToBase64StringArray(sslSession.getPeerCertificates()));
-                } else {
-                    LOGGER.info("SSL session is null, cannot provide any information!");
+                @Override
+                public void cancelled() {
+                    addCheckFailure(status, new InterruptedIOException(
+                        "Check of [" + ap + "] has been cancelled"));
+                    done.run();
                 }
-                status.setProxyHost(clientContext.getHttpRoute().getProxyHost());
-                status.setTargetHost(clientContext.getHttpRoute().getTargetHost());
             }
-        } catch (IOException | ParseException | URISyntaxException | IllegalArgumentException e) {
-            var checkResultDTO = new CheckResultDTO();
-            checkResultDTO.setName("Connection Failure");
-            checkResultDTO.setMessage("Connection failed");
-            checkResultDTO.writeStackTraceIntoDetails(e);
-            status.getFailures().add(checkResultDTO);
+        );
+    }
+
+    private void setSessionInfo(AccessPointStatusDTO status, HttpClientContext clientContext) {
+        setSessionInfo(status, clientContext.getSSLSession());
+        final var route = clientContext.getHttpRoute();
+        if (route != null) {
+            status.setProxyHost(route.getProxyHost());
+            status.setTargetHost(route.getTargetHost());
         }
-        return status;
     }
 
-    private TLS mapProtocolVersionToTLS(ProtocolVersion protocolVersion) {
-        return Stream.of(TLS.values())
-                     .filter(t -> t.isSame(protocolVersion))
-                     .findFirst()
-                     .get();
+    private void checkHandshake(AccessPoint ap, GatewayTlsClientProvider.TlsClient tlsClient,
+                                AccessPointStatusDTO status)
+        throws IOException, URISyntaxException {
+        var target = HttpHost.create(new URI(ap.getEndpoint()));
+        if (!URIScheme.HTTPS.same(target.getSchemeName())) {
+            throw new IllegalArgumentException(
+                "Handshake probe requires a https endpoint: " + ap.getEndpoint());
+        }
+        int port = DefaultSchemePortResolver.INSTANCE.resolve(target);
+        var timeout = Timeout.of(gatewayMonitorConfig.getProbe().getTimeout());
+        status.setTargetHost(target);
+
+        LOGGER.debug("Doing TLS handshake with {}:{}", target.getHostName(), port);
+
+        var context = HttpClientContext.create();
+        var socketFactory = tlsClient.socketFactory();
+        var socket = socketFactory.createSocket(context);
+        socket.setSoTimeout(timeout.toMillisecondsIntBound());
+        long dnsStart = System.nanoTime();
+        var address = InetAddress.getByName(target.getHostName());
+        GatewayProbeMetrics.recordPhase(GatewayProbeMetrics.Phase.DNS, dnsStart);
+        try (var connected = socketFactory.connectSocket(
+            socket, target, new InetSocketAddress(address, port), null, timeout, null, context
+        )) {
+            if (connected instanceof SSLSocket sslSocket) {
+                setSessionInfo(status, sslSocket.getSession());
+            }
+        }
     }
 
-    private String[] convertToBase64StringArray(java.security.cert.Certificate[] certificates) {
-        if (certificates == null) {
-            return new String[0];
+    private void setSessionInfo(AccessPointStatusDTO status, SSLSession sslSession) {
+        if (sslSession != null) {
+            LOGGER.debug("TLS protocol {}", sslSession.getProtocol());
+            LOGGER.debug("TLS cipher suite {}", sslSession.getCipherSuite());
+
+            try {
+                status.setUsedTls(TLS.parse(sslSession.getProtocol()));
+            } catch (ParseException e) {
+                LOGGER.debug("Unknown TLS protocol {}", sslSession.getProtocol(), e);
+            }
+            var localCertificates = certificateCache.encode(sslSession.getLocalCertificates());
+            status.setLocalCertificates(encoded(localCertificates));
+            status.setLocalCertificateFingerprints(fingerprints(localCertificates));
+            try {
+                var serverCertificates =
+                    certificateCache.encode(sslSession.getPeerCertificates());
+                status.setServerCertificates(encoded(serverCertificates));
+                status.setServerCertificateFingerprints(fingerprints(serverCertificates));
+            } catch (SSLPeerUnverifiedException e) {
+                LOGGER.debug("Peer of the SSL session is not verified", e);
+            }
+        } else {
+            LOGGER.info("SSL session is null, cannot provide any information!");
         }
-        return Stream.of(certificates)
-                     .map(this::mapToBase64String)
-                     .toArray(String[]::new);
     }
 
-    private String mapToBase64String(Certificate certificate) {
-        try {
-            byte[] encoded = certificate.getEncoded();
-            return Base64Utils.encodeToString(encoded);
-        } catch (CertificateEncodingException e) {
-            throw new RuntimeException(e);
+    private static String[] encoded(CertificateDTO[] certificates) {
+        return Stream.of(certificates).map(CertificateDTO::getEncoded).toArray(String[]::new);
+    }
+
+    private static String[] fingerprints(CertificateDTO[] certificates) {
+        return Stream.of(certificates).map(CertificateDTO::getFingerprint).toArray(String[]::new);
+    }
+
+    private static Duration backoffDelay(BackoffProperties backoff, int exponent) {
+        double delay = backoff.getInitialDelay().toMillis()
+            * Math.pow(backoff.getMultiplier(), exponent);
+        delay = Math.min(delay, backoff.getMaxDelay().toMillis());
+        if (backoff.getJitter() > 0) {
+            delay *= 1 + ThreadLocalRandom.current()
+                                          .nextDouble(-backoff.getJitter(), backoff.getJitter());
+        }
+        return Duration.ofMillis((long) delay);
+    }
+
+    /**
+     * Tells if a check found the same as the previous check of the access point: the same failures
+     * and warnings, the same TLS version and the same certificates.
+     *
+     * @param previous the status of the previous check
+     * @param result   the status of the new check
+     * @return true if the new status keeps the version of the previous one
+     */
+    static boolean hasSameOutcome(AccessPointStatusDTO previous, AccessPointStatusDTO result) {
+        return Objects.equals(previous.getUsedTls(), result.getUsedTls())
+            && Arrays.equals(previous.getLocalCertificateFingerprints(),
+                             result.getLocalCertificateFingerprints())
+            && Arrays.equals(previous.getServerCertificateFingerprints(),
+                             result.getServerCertificateFingerprints())
+            && withoutDetails(previous.getFailures()).equals(withoutDetails(result.getFailures()))
+            && withoutDetails(previous.getWarnings()).equals(withoutDetails(result.getWarnings()));
+    }
+
+    private static List<CheckResultDTO> withoutDetails(List<CheckResultDTO> checkResults) {
+        return checkResults.stream().map(CheckResultDTO::withoutDetails).toList();
+    }
+
+    private ProbeMode probeMode(AccessPoint ap) {
+        return ap.getProbeMode() != null
+            ? ap.getProbeMode()
+            : gatewayMonitorConfig.getProbe().getMode();
+    }
+
+    /**
+     * The cached status of an access point and the check currently refreshing it.
+     *
+     * <p>The entry also tracks the failed checks in a row. Once they reach the configured
+     * threshold the access point is considered down: its last status is served without checking
+     * it until the backoff delay has passed. Then a TLS handshake is done as a cheap probe, only if
+     * it succeeds the access point is checked completely again.
+     */
+    private final class CacheEntry {
+        private volatile AccessPointStatusDTO status;
+        private final AtomicReference<CompletableFuture<AccessPointStatusDTO>> running =
+            new AtomicReference<>();
+        // only written by the running check
+        private volatile int consecutiveFailures;
+        private volatile ZonedDateTime downSince;
+        private volatile ZonedDateTime nextCheck;
+        private final AtomicLong lastSkippedCheck = new AtomicLong(Long.MIN_VALUE);
+
+        boolean isBackingOff() {
+            var next = nextCheck;
+            return next != null && next.isAfter(ZonedDateTime.now());
+        }
+
+        /**
+         * Records a check skipped due to the backoff in the history if the status would have been
+         * checked again. Callers and refreshes, e.g. by the health indicator, may ask for a check
+         * far more often while the access point is backed off, so at most one skipped check is
+         * recorded per cache timeout.
+         *
+         * @param ap           the access point which is not checked
+         * @param status       the last status of the access point
+         * @param cacheTimeout how long the status is served without checking again
+         */
+        void skipExpiredCheck(AccessPoint ap, AccessPointStatusDTO status, Duration cacheTimeout) {
+            long last = lastSkippedCheck.get();
+            long lastCheck = Math.max(last, status.getCheckTime().toInstant().toEpochMilli());
+            var now = Instant.now();
+            if (now.toEpochMilli() >= lastCheck + cacheTimeout.toMillis()
+                && lastSkippedCheck.compareAndSet(last, now.toEpochMilli())) {
+                statusHistory.recordSkipped(ap, now);
+            }
+        }
+
+        private CompletableFuture<AccessPointStatusDTO> check(AccessPoint ap) {
+            var backoff = gatewayMonitorConfig.getProbe().getBackoff();
+            if (!backoff.isEnabled()) {
+                return checkGateway(ap, probeMode(ap));
+            }
+            if (nextCheck != null) {
+                if (isBackingOff() && status != null) {
+                    skipExpiredCheck(ap, status, gatewayMonitorConfig.getCheckCacheTimeout());
+                    return CompletableFuture.completedFuture(status);
+                }
+                // a handshake is enough to tell if the access point is reachable again
+                var probeMode = ap.getEndpoint() != null
+                    && ap.getEndpoint().regionMatches(true, 0, "https:", 0, 6)
+                    ? ProbeMode.HANDSHAKE
+                    : probeMode(ap);
+                return checkGateway(ap, probeMode).thenCompose(probe -> {
+                    if (!probe.getFailures().isEmpty()) {
+                        return CompletableFuture.completedFuture(failed(ap, probe, backoff));
+                    }
+                    LOGGER.info("[{}] is reachable again, down since [{}]", ap, downSince);
+                    if (probeMode == probeMode(ap)) {
+                        return CompletableFuture.completedFuture(succeeded(probe));
+                    }
+                    return checkCompletely(ap, backoff);
+                });
+            }
+            return checkCompletely(ap, backoff);
+        }
+
+        private CompletableFuture<AccessPointStatusDTO> checkCompletely(
+            AccessPoint ap, BackoffProperties backoff) {
+            return checkGateway(ap, probeMode(ap)).thenApply(result -> {
+                if (result.getFailures().isEmpty()) {
+                    return succeeded(result);
+                }
+                return failed(ap, result, backoff);
+            });
+        }
+
+        private AccessPointStatusDTO succeeded(AccessPointStatusDTO result) {
+            consecutiveFailures = 0;
+            downSince = null;
+            nextCheck = null;
+            return result;
+        }
+
+        private AccessPointStatusDTO failed(AccessPoint ap, AccessPointStatusDTO result,
+                                            BackoffProperties backoff) {
+            int failures = ++consecutiveFailures;
+            if (downSince == null) {
+                downSince = result.getCheckTime();
+            }
+            if (failures < backoff.getFailureThreshold()) {
+                return result;
+            }
+            var delay = backoffDelay(backoff, failures - backoff.getFailureThreshold());
+            nextCheck = ZonedDateTime.now().plus(delay);
+            LOGGER.info(
+                "[{}] failed [{}] checks in a row, not checking it again before [{}]", ap,
+                failures, nextCheck
+            );
+
+            var checkResultDTO = new CheckResultDTO();
+            checkResultDTO.setName(BACKOFF_CHECK_NAME);
+            checkResultDTO.setMessage(
+                "Known down since " + downSince + ", not checked again before " + nextCheck);
+            result.getWarnings().add(checkResultDTO);
+            return result;
+        }
+
+        /**
+         * Starts a check of the access point unless one is already running.
+         *
+         * @param ap the access point to check
+         * @return the running check
+         */
+        CompletableFuture<AccessPointStatusDTO> refresh(AccessPoint ap) {
+            var check = new CompletableFuture<AccessPointStatusDTO>();
+            var alreadyRunning = running.compareAndExchange(null, check);
+            if (alreadyRunning != null) {
+                return alreadyRunning;
+            }
+            try {
+                checkExecutor.execute(() -> {
+                    try {
+                        check(ap).whenComplete((result, failure) -> {
+                            if (failure == null && result != status) {
+                                var previous = status;
+                                result.setVersion(
+                                    previous != null && hasSameOutcome(previous, result)
+                                        ? previous.getVersion()
+                                        : versions.incrementAndGet());
+                                status = result;
+                            }
+                            running.set(null);
+                            if (failure == null) {
+                                check.complete(result);
+                            } else {
+                                check.completeExceptionally(failure);
+                            }
+                        });
+                    } catch (RuntimeException e) {
+                        running.set(null);
+                        check.completeExceptionally(e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                running.set(null);
+                check.completeExceptionally(e);
+            }
+            return check;
         }
     }
 }
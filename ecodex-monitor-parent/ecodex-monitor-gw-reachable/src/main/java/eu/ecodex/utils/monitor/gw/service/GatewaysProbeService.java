@@ -0,0 +1,155 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import eu.ecodex.utils.monitor.gw.dto.CheckResultDTO;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Service for checking many access points at once.
+ *
+ * <p>The checks of all access points are started at once, they are run and bounded by the probe
+ * parallelism of the {@link GatewaysCheckerService}. The whole round of checks is bounded by one
+ * deadline, access points which could not be checked until then are reported with a timeout
+ * failure instead of blocking the caller. Checks still running at the deadline are not
+ * cancelled, their result is cached by the {@link GatewaysCheckerService} and is available to the
+ * next caller.
+ *
+ * <p>If the background refresh is enabled (see {@link GatewayStatusRefreshScheduler}) no check is
+ * done on behalf of the caller, only the results of the background checks are returned.
+ */
+@Component
+public class GatewaysProbeService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(GatewaysProbeService.class);
+    public static final String TIMEOUT_CHECK_NAME = "Timeout";
+    public static final String NOT_CHECKED_CHECK_NAME = "Not checked yet";
+    @Autowired
+    GatewayMonitorConfigurationProperties gatewayMonitorConfig;
+    @Autowired
+    GatewaysCheckerService gatewaysCheckerService;
+
+    /**
+     * Retrieves the status of all provided access points.
+     *
+     * @param accessPoints the access points to check
+     * @return the status of each access point in the order of the provided collection, access
+     *      points which could not be checked within the configured deadline are marked with a
+     *      {@value #TIMEOUT_CHECK_NAME} failure.
+     */
+    public List<AccessPointStatusDTO> getGatewayStatuses(Collection<AccessPoint> accessPoints) {
+        if (gatewayMonitorConfig.getRefresh().isEnabled()) {
+            return accessPoints.stream().map(this::getCachedGatewayStatus).toList();
+        }
+        var deadline = gatewayMonitorConfig.getProbe().getDeadline();
+
+        List<CompletableFuture<AccessPointStatusDTO>> futures =
+            new ArrayList<>(accessPoints.size());
+        for (AccessPoint ap : accessPoints) {
+            futures.add(gatewaysCheckerService.getGatewayStatusAsync(ap));
+        }
+
+        // the checks are shared with other callers, so only the combined future is waited for
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                             .get(deadline.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // the result of each check is looked at below
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<AccessPointStatusDTO> result = new ArrayList<>(accessPoints.size());
+        var i = 0;
+        for (AccessPoint ap : accessPoints) {
+            var future = futures.get(i++);
+            if (!future.isDone()) {
+                LOGGER.warn("Check of [{}] did not finish within [{}]", ap, deadline);
+                result.add(failedStatus(
+                    ap, TIMEOUT_CHECK_NAME, "Check did not finish within " + deadline));
+            } else if (future.isCompletedExceptionally()) {
+                var cause = future.exceptionNow();
+                LOGGER.error("Check of [{}] failed", ap, cause);
+                result.add(failedStatus(ap, "Check failure", "Check failed: " + cause));
+            } else {
+                result.add(future.resultNow());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves the status of a single access point. If the background refresh is enabled only the
+     * last result of the background checks is returned, otherwise the access point is checked if
+     * no cached result is available.
+     *
+     * @param ap the access point to check
+     * @return the status of the access point
+     */
+    public AccessPointStatusDTO getGatewayStatus(AccessPoint ap) {
+        if (gatewayMonitorConfig.getRefresh().isEnabled()) {
+            return getCachedGatewayStatus(ap);
+        }
+        return gatewaysCheckerService.getGatewayStatus(ap);
+    }
+
+    /**
+     * Tells if the access point has not been checked yet by the background refresh.
+     *
+     * @param status the status returned by this service
+     * @return true if the status is only a placeholder
+     */
+    public static boolean isNotCheckedYet(AccessPointStatusDTO status) {
+        return status.getCheckTime() == null;
+    }
+
+    private AccessPointStatusDTO getCachedGatewayStatus(AccessPoint ap) {
+        return gatewaysCheckerService
+            .getCachedGatewayStatus(ap)
+            .orElseGet(() -> {
+                var status = new AccessPointStatusDTO();
+                status.setName(ap.getName());
+                status.setEndpoint(ap.getEndpoint());
+
+                var checkResultDTO = new CheckResultDTO();
+                checkResultDTO.setName(NOT_CHECKED_CHECK_NAME);
+                checkResultDTO.setMessage("Access point has not been checked yet");
+                status.getWarnings().add(checkResultDTO);
+                return status;
+            });
+    }
+
+    private AccessPointStatusDTO failedStatus(AccessPoint ap, String checkName, String message) {
+        var status = new AccessPointStatusDTO();
+        status.setName(ap.getName());
+        status.setEndpoint(ap.getEndpoint());
+        status.setCheckTime(ZonedDateTime.now());
+
+        var checkResultDTO = new CheckResultDTO();
+        checkResultDTO.setName(checkName);
+        checkResultDTO.setMessage(message);
+        status.getFailures().add(checkResultDTO);
+        return status;
+    }
+}
@@ -18,15 +18,20 @@ import eu.ecodex.utils.monitor.gw.domain.AccessPointsConfiguration;
 import jakarta.validation.constraints.NotNull;
 import jakarta.xml.bind.JAXBContext;
 import jakarta.xml.bind.JAXBException;
-import java.io.StringReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import javax.xml.stream.XMLStreamException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 
@@ -34,12 +39,16 @@ import org.springframework.web.util.DefaultUriBuilderFactory;
  * PModeDownloader is responsible for downloading and updating PMode configurations from a specified
  * gateway REST interface. The class uses Spring's RestTemplate to interact with the REST API and
  * JAXB for XML parsing.
+ *
+ * <p>The p-mode XML is read directly from the response stream. If streaming is enabled
+ * ({@code monitor.gw.rest.stream-pmodes}) only the parties are read from it, otherwise the whole
+ * p-mode set is unmarshalled with a JAXB context shared by all instances.
  */
 public class PModeDownloader {
     private static final Logger LOGGER = LoggerFactory.getLogger(PModeDownloader.class);
     private final GatewayRestInterfaceConfiguration gatewayRestInterfaceConfiguration;
     private final RestTemplate restTemplate;
-    private ConfigurationWrapper wrappedConfiguration = new ConfigurationWrapper();
+    private volatile ConfigurationWrapper wrappedConfiguration = new ConfigurationWrapper();
 
     /**
      * Constructs a new PModeDownloader with the specified GatewayRestInterfaceConfiguration.
@@ -60,55 +69,36 @@ public class PModeDownloader {
             .build();
     }
 
+    /**
+     * Downloads and unmarshals the complete current p-mode set.
+     *
+     * @return the current p-mode set
+     */
     public Configuration downloadPModes() {
-        return downloadNewPModes(-1).config;
+        return downloadPModeXml(currentPModeId(), PModeDownloader::unmarshal);
     }
 
     /**
      * Downloads the latest P-Modes if the current P-Mode ID is greater than the provided ID.
      *
      * @param id The ID of the current P-Mode.
-     * @return The wrapped configuration object after attempting to download and unmarshal new
-     *      P-Modes.
+     * @return The wrapped configuration object after attempting to download and read new P-Modes.
      */
     public ConfigurationWrapper downloadNewPModes(int id) {
-        var lineSeparator = "\n\n####################";
-
-        ResponseEntity<PModeArchiveInfoDTO> currentPMode =
-            restTemplate.getForEntity("/ext/pmode/current", PModeArchiveInfoDTO.class);
-
-        int pmodeId = -1;
-        LOGGER.debug("Retrieved json [{}]", currentPMode);
-
-        pmodeId = currentPMode.getBody().getId();
+        int pmodeId = currentPModeId();
 
         if (pmodeId > id) {
-            var forEntity = restTemplate.getForEntity("/ext/pmode/" + pmodeId, String.class);
-
-            var xmlString = forEntity.getBody();
-
-            if (LOGGER.isTraceEnabled()) {
-                LOGGER.trace("Downloaded pmode: {}", lineSeparator + xmlString + lineSeparator);
-            }
-
-            JAXBContext jaxbContext;
-            try {
-                jaxbContext = JAXBContext.newInstance(Configuration.class);
-
-                var jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-
-                var configuration =
-                    (Configuration) jaxbUnmarshaller.unmarshal(new StringReader(xmlString));
-                this.wrappedConfiguration.config = configuration;
-                if (LOGGER.isTraceEnabled()) {
-                    LOGGER.trace(
-                        "Downloaded pmode: {}", lineSeparator + this.wrappedConfiguration
-                            + lineSeparator
-                    );
-                }
-            } catch (JAXBException e) {
-                throw new RuntimeException(e);
+            ConfigurationWrapper downloaded;
+            if (gatewayRestInterfaceConfiguration.isStreamPmodes()) {
+                downloaded = downloadPModeXml(pmodeId, ConfigurationWrapper::read);
+            } else {
+                downloaded = ConfigurationWrapper.of(
+                    downloadPModeXml(pmodeId, PModeDownloader::unmarshal));
             }
+            downloaded.id = pmodeId;
+            LOGGER.debug(
+                "Read [{}] parties from p-mode set [{}]", downloaded.accessPoints.size(), pmodeId);
+            this.wrappedConfiguration = downloaded;
         }
         return this.wrappedConfiguration;
     }
@@ -128,34 +118,87 @@ public class PModeDownloader {
             throw new IllegalArgumentException("Config is not allowed to be null!");
         }
         var wrappedConfig = this.downloadNewPModes(config.getId());
-        var conf = wrappedConfig.config;
-        String selfParty = conf.getParty();
 
-        Map<String, AccessPoint> aps = conf
-            .getBusinessProcesses()
-            .getParties().getParty().stream()
-            .map(this::mapMpc)
-            .collect(Collectors.toMap(AccessPoint::getName, Function.identity()));
+        Map<String, AccessPoint> aps = new LinkedHashMap<>();
+        for (AccessPoint ap : wrappedConfig.accessPoints) {
+            if (aps.putIfAbsent(ap.getName(), ap) != null) {
+                throw new IllegalStateException("Duplicate party [" + ap.getName() + "]");
+            }
+        }
 
-        AccessPoint self = aps.remove(selfParty);
+        AccessPoint self = aps.remove(wrappedConfig.selfParty);
         config.setSelf(self);
         config.setRemoteAccessPoints(aps.values());
         config.setId(wrappedConfig.id);
         return config;
     }
 
-    private AccessPoint mapMpc(Configuration.BusinessProcesses.Parties.Party party) {
-        var accessPoint = new AccessPoint();
-        accessPoint.setName(party.getName());
-        accessPoint.setEndpoint(party.getEndpoint());
-        return accessPoint;
+    private int currentPModeId() {
+        ResponseEntity<PModeArchiveInfoDTO> currentPMode =
+            restTemplate.getForEntity("/ext/pmode/current", PModeArchiveInfoDTO.class);
+        LOGGER.debug("Retrieved json [{}]", currentPMode);
+        return currentPMode.getBody().getId();
     }
 
-    private static class ConfigurationWrapper {
-        Configuration config;
-        int id = -1;
+    private <T> T downloadPModeXml(int pmodeId, PModeReader<T> pmodeReader) {
+        ResponseExtractor<T> extractor = response -> {
+            try (InputStream body = response.getBody()) {
+                return pmodeReader.read(body);
+            } catch (JAXBException | XMLStreamException e) {
+                throw new IllegalStateException("Could not read p-mode set [" + pmodeId + "]", e);
+            }
+        };
+        return restTemplate.execute("/ext/pmode/" + pmodeId, HttpMethod.GET, null, extractor);
     }
-}
 
+    private static Configuration unmarshal(InputStream pmodes) throws JAXBException {
+        // the context is thread safe, the unmarshaller is not and is created for each download
+        var jaxbUnmarshaller = JaxbContextHolder.CONTEXT.createUnmarshaller();
+        return (Configuration) jaxbUnmarshaller.unmarshal(pmodes);
+    }
+
+    @FunctionalInterface
+    private interface PModeReader<T> {
+        T read(InputStream pmodes) throws IOException, JAXBException, XMLStreamException;
+    }
 
+    private static final class JaxbContextHolder {
+        private static final JAXBContext CONTEXT = createContext();
 
+        private static JAXBContext createContext() {
+            try {
+                return JAXBContext.newInstance(Configuration.class);
+            } catch (JAXBException e) {
+                throw new IllegalStateException("Could not create JAXB context for p-modes", e);
+            }
+        }
+    }
+
+    private static class ConfigurationWrapper {
+        String selfParty;
+        List<AccessPoint> accessPoints = List.of();
+        int id = -1;
+
+        static ConfigurationWrapper read(InputStream pmodes) throws XMLStreamException {
+            var parties = PModePartiesReader.read(pmodes);
+            var wrapper = new ConfigurationWrapper();
+            wrapper.selfParty = parties.selfParty();
+            wrapper.accessPoints = parties.accessPoints();
+            return wrapper;
+        }
+
+        static ConfigurationWrapper of(Configuration conf) {
+            var wrapper = new ConfigurationWrapper();
+            wrapper.selfParty = conf.getParty();
+            List<AccessPoint> accessPoints = new ArrayList<>();
+            for (var party : conf.getBusinessProcesses().getParties().getParty()) {
+                var accessPoint = new AccessPoint();
+                accessPoint.setName(party.getName());
+                accessPoint.setEndpoint(party.getEndpoint());
+                accessPoints.add(accessPoint);
+            }
+            wrapper.accessPoints = accessPoints;
+            return wrapper;
+        }
+    }
+}
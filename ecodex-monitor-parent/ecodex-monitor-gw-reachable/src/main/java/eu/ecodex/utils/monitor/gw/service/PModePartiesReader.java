@@ -0,0 +1,106 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads the own party and the parties with their endpoints from a p-mode XML stream.
+ *
+ * <p>Only the elements needed for the access points are looked at, the rest of the document is
+ * skipped and reading stops after the parties section. Elements are matched by their local name
+ * so the reader does not depend on how the p-mode namespaces are declared.
+ */
+final class PModePartiesReader {
+    private static final String CONFIGURATION = "configuration";
+    private static final String BUSINESS_PROCESSES = "businessProcesses";
+    private static final String PARTIES = "parties";
+    private static final String PARTY = "party";
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    private PModePartiesReader() {
+    }
+
+    /**
+     * Parties of a p-mode set.
+     *
+     * @param selfParty    the name of the own party
+     * @param accessPoints all parties including the own one
+     */
+    record Parties(String selfParty, List<AccessPoint> accessPoints) {
+    }
+
+    /**
+     * Reads the parties from the provided p-mode XML. The stream is not closed.
+     *
+     * @param pmodes the p-mode XML
+     * @return the parties of the p-mode set
+     * @throws XMLStreamException if the XML cannot be parsed
+     */
+    static Parties read(InputStream pmodes) throws XMLStreamException {
+        XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(pmodes);
+        try {
+            String selfParty = null;
+            List<AccessPoint> accessPoints = new ArrayList<>();
+            var depth = 0;
+            var inBusinessProcesses = false;
+            var inParties = false;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    String name = reader.getLocalName();
+                    if (depth == 1 && CONFIGURATION.equals(name)) {
+                        selfParty = reader.getAttributeValue(null, PARTY);
+                    } else if (depth == 2 && BUSINESS_PROCESSES.equals(name)) {
+                        inBusinessProcesses = true;
+                    } else if (depth == 3 && inBusinessProcesses && PARTIES.equals(name)) {
+                        inParties = true;
+                    } else if (depth == 4 && inParties && PARTY.equals(name)) {
+                        var accessPoint = new AccessPoint();
+                        accessPoint.setName(reader.getAttributeValue(null, "name"));
+                        accessPoint.setEndpoint(reader.getAttributeValue(null, "endpoint"));
+                        accessPoints.add(accessPoint);
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == 3 && inParties) {
+                        // nothing of interest follows the parties
+                        break;
+                    } else if (depth == 2) {
+                        inBusinessProcesses = false;
+                    }
+                    depth--;
+                }
+            }
+            if (selfParty == null) {
+                throw new XMLStreamException("No p-mode configuration with a party found!");
+            }
+            return new Parties(selfParty, accessPoints);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        var factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        return factory;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2024 European Union Agency for the Operational Management of Large-Scale IT Systems
+ * in the Area of Freedom, Security and Justice (eu-LISA)
+ *
+ * Licensed under the EUPL, Version 1.2 or – as soon they will be approved by the
+ * European Commission - subsequent versions of the EUPL (the "Licence");
+ * You may not use this work except in compliance with the Licence.
+ * You may obtain a copy at: https://joinup.ec.europa.eu/software/page/eupl
+ */
+
+package eu.ecodex.utils.monitor.gw.service;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.config.HealthCheckProperties;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+/**
+ * Health indicator for the remote gateways named in {@code monitor.gw.health-check.check-names},
+ * a * includes all configured remote gateways.
+ *
+ * <p>The health request never waits for a check: only the last results of the gateway checks are
+ * read. Gateways without a result, or whose result is older than the check cache timeout, are
+ * checked in the background unless the background refresh is enabled anyway, until then they are
+ * reported as UNKNOWN. The overall status is derived from the share of failing gateways among the
+ * gateways with a result, see {@link HealthCheckProperties}. As {@value #DEGRADED_CODE} is no
+ * standard status, it has to be added to {@code management.endpoint.health.status.order}, e.g.
+ * {@code DOWN,OUT_OF_SERVICE,DEGRADED,UP,UNKNOWN}.
+ */
+public class RemoteGatewaysHealthIndicator extends AbstractHealthIndicator {
+    public static final String DEGRADED_CODE = "DEGRADED";
+    public static final Status DEGRADED = new Status(DEGRADED_CODE);
+    @Autowired
+    GatewayMonitorConfigurationProperties gatewayMonitorConfig;
+    @Autowired
+    ConfiguredGatewaysService configuredGatewaysService;
+    @Autowired
+    GatewaysCheckerService gatewaysCheckerService;
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) {
+        var healthCheck = gatewayMonitorConfig.getHealthCheck();
+        if (healthCheck.getCheckNames().isEmpty()) {
+            builder.up();
+            return;
+        }
+        var configured = configuredGatewaysService.peekConfiguredGateways();
+        if (configured.isEmpty()) {
+            builder.unknown().withDetail("detail", "Configured gateways are not loaded yet");
+            return;
+        }
+
+        int up = 0;
+        int failing = 0;
+        Map<String, Object> gateways = new LinkedHashMap<>();
+        for (AccessPoint ap : namedGateways(configured.get(), healthCheck.getCheckNames())) {
+            var status = cachedStatus(ap);
+            Map<String, Object> details = new LinkedHashMap<>();
+            if (status == null) {
+                details.put("status", Status.UNKNOWN.getCode());
+            } else if (status.getFailures().isEmpty()) {
+                up++;
+                details.put("status", Status.UP.getCode());
+                details.put("checkTime", status.getCheckTime());
+            } else {
+                failing++;
+                details.put("status", Status.DOWN.getCode());
+                details.put("checkTime", status.getCheckTime());
+                details.put("failure", status.getFailures().getFirst().getName());
+            }
+            gateways.put(ap.getName(), details);
+        }
+
+        builder.status(aggregate(healthCheck, up, failing))
+               .withDetail("up", up)
+               .withDetail("failing", failing)
+               .withDetail("unknown", gateways.size() - up - failing)
+               .withDetail("gateways", gateways);
+    }
+
+    private Status aggregate(HealthCheckProperties healthCheck, int up, int failing) {
+        int checked = up + failing;
+        if (checked == 0) {
+            return Status.UNKNOWN;
+        }
+        double failingShare = (double) failing / checked;
+        if (failing > 0 && failingShare >= healthCheck.getDownQuorum()) {
+            return Status.DOWN;
+        }
+        if (failing > 0 && failingShare >= healthCheck.getDegradedQuorum()) {
+            return DEGRADED;
+        }
+        return Status.UP;
+    }
+
+    private AccessPointStatusDTO cachedStatus(AccessPoint ap) {
+        var status = gatewaysCheckerService.getCachedGatewayStatus(ap).orElse(null);
+        if (!gatewayMonitorConfig.getRefresh().isEnabled()
+            && (status == null || status.getCheckTime().plus(
+                gatewayMonitorConfig.getCheckCacheTimeout()).isBefore(ZonedDateTime.now()))) {
+            // does not wait for the check, its result is reported by a later health request
+            gatewaysCheckerService.refreshGatewayStatus(ap);
+        }
+        return status;
+    }
+
+    private static Collection<AccessPoint> namedGateways(Collection<AccessPoint> configured,
+                                                         List<String> checkNames) {
+        if (checkNames.contains("*")) {
+            return configured;
+        }
+        return configured.stream()
+                         .filter(ap -> checkNames.contains(ap.getName()))
+                         .toList();
+    }
+}
@@ -25,17 +25,25 @@ import java.security.cert.CertPath;
 import java.security.cert.CertPathParameters;
 import java.security.cert.CertPathValidator;
 import java.security.cert.CertPathValidatorException;
-import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.PKIXParameters;
 import java.security.cert.TrustAnchor;
 import java.security.cert.X509Certificate;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.security.auth.x500.X500Principal;
 import org.apache.hc.core5.ssl.TrustStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,16 +56,51 @@ import org.springframework.stereotype.Component;
  *
  * <p>This class is autoconfigured as a Spring component and relies on the
  * GatewayMonitorConfigurationProperties for its configuration.
+ *
+ * <p>The certificates of the trust store are indexed by their subject once, so finding the
+ * issuer of a certificate does not require scanning the whole trust store. The result of a chain
+ * validation is remembered by the fingerprint of the validated certificate for at most
+ * {@value #VALIDATION_CACHE_TTL_MINUTES} minutes, the remembered results are dropped when the
+ * trust store changes.
  */
 @Component
 @SuppressWarnings("squid:S1135")
 public class TrustStoreCompleteChainTrustStrategy implements TrustStrategy {
     private static final Logger LOGGER =
         LoggerFactory.getLogger(TrustStoreCompleteChainTrustStrategy.class);
+    static final int VALIDATION_CACHE_SIZE = 1024;
+    static final long VALIDATION_CACHE_TTL_MINUTES = 60;
+    /**
+     * Limits the length of a chain, protects against cycles of cross signed certificates.
+     */
+    private static final int MAX_CHAIN_LENGTH = 16;
+    /**
+     * Maximum number of idle validators kept for reuse.
+     */
+    static final int VALIDATOR_POOL_SIZE = 16;
     @Autowired
     GatewayMonitorConfigurationProperties gatewayMonitorConfigurationProperties;
-    private KeyStore trustStore;
+    private volatile TrustIndex trustIndex;
     private StoreConfigurationProperties trustStoreConfig;
+    private final Map<String, ValidationResult> validatedChains =
+        Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ValidationResult> eldest) {
+                return size() > VALIDATION_CACHE_SIZE;
+            }
+        });
+    /**
+     * Number of certificates validated against their issuers, validations answered from the
+     * remembered results are not counted.
+     */
+    private final LongAdder chainValidations = new LongAdder();
+    /**
+     * Idle validators, the checks run on a new virtual thread each, so the validators are pooled
+     * instead of being kept per thread.
+     */
+    private final BlockingQueue<Validator> validators =
+        new ArrayBlockingQueue<>(VALIDATOR_POOL_SIZE);
+    private final LongAdder createdValidators = new LongAdder();
 
     /**
      * Initializes the trust store and its configuration for the
@@ -69,9 +112,25 @@ public class TrustStoreCompleteChainTrustStrategy implements TrustStrategy {
      */
     @PostConstruct
     public void init() {
-        this.trustStore =
-            gatewayMonitorConfigurationProperties.getTls().getTrustStore().loadKeyStore();
         this.trustStoreConfig = gatewayMonitorConfigurationProperties.getTls().getTrustStore();
+        setTrustStore(this.trustStoreConfig.loadKeyStore());
+    }
+
+    /**
+     * Replaces the trust store, the issuer index is rebuilt and all remembered validation results
+     * are dropped.
+     *
+     * @param trustStore the new trust store
+     */
+    public void setTrustStore(KeyStore trustStore) {
+        try {
+            this.trustIndex = TrustIndex.of(trustStore);
+        } catch (KeyStoreException | CertificateException | NoSuchAlgorithmException
+                 | NoSuchProviderException e) {
+            throw new RuntimeException(e);
+        }
+        validatedChains.clear();
+        LOGGER.debug("Indexed [{}] trusted certificates", trustIndex.size());
     }
 
     @Override
@@ -84,8 +143,13 @@ public class TrustStoreCompleteChainTrustStrategy implements TrustStrategy {
 
     private void validateCertificate(X509Certificate crt) throws CertificateException {
         try {
-            validateKeyChain(crt, trustStore);
-        } catch (KeyStoreException | InvalidAlgorithmParameterException | NoSuchAlgorithmException
+            var index = this.trustIndex;
+            boolean valid = validateKeyChain(crt, index);
+            LOGGER.debug(
+                "Chain of [{}] validated to a trusted root: [{}]",
+                crt.getSubjectX500Principal().getName(), valid
+            );
+        } catch (InvalidAlgorithmParameterException | NoSuchAlgorithmException
                  | NoSuchProviderException e) {
             throw new RuntimeException(e);
         }
@@ -110,16 +174,11 @@ public class TrustStoreCompleteChainTrustStrategy implements TrustStrategy {
     public boolean validateKeyChain(X509Certificate client, KeyStore keyStore)
         throws KeyStoreException, CertificateException, InvalidAlgorithmParameterException,
         NoSuchAlgorithmException, NoSuchProviderException {
-        var certs = new X509Certificate[keyStore.size()];
-        var i = 0;
-        Enumeration<String> alias = keyStore.aliases();
-
-        while (alias.hasMoreElements()) {
-            certs[i++] = (X509Certificate) keyStore.getCertificate(alias
-                                                                       .nextElement());
+        var index = this.trustIndex;
+        if (index == null || index.keyStore() != keyStore) {
+            index = TrustIndex.of(keyStore);
         }
-
-        return validateKeyChain(client, certs);
+        return validateKeyChain(client, index);
     }
 
     /**
@@ -142,53 +201,91 @@ public class TrustStoreCompleteChainTrustStrategy implements TrustStrategy {
     public boolean validateKeyChain(X509Certificate client, X509Certificate... trustedCerts)
         throws CertificateException, InvalidAlgorithmParameterException, NoSuchAlgorithmException,
         NoSuchProviderException {
-        var found = false;
-        int i = trustedCerts.length;
-        var certificateFactory = CertificateFactory.getInstance("X.509");
-        TrustAnchor anchor;
-        Set anchors;
-        CertPath path;
-        List list;
-        PKIXParameters params;
-        var validator = CertPathValidator.getInstance("PKIX");
-
-        while (!found && i > 0) {
-            anchor = new TrustAnchor(trustedCerts[--i], null);
-            anchors = Collections.singleton(anchor);
-
-            list = Arrays.asList(new Certificate[] {client});
-            path = certificateFactory.generateCertPath(list);
-
-            params = new PKIXParameters(anchors);
-            params.setRevocationEnabled(false); // TODO: add config for revocation checks!
+        return validateKeyChain(client, TrustIndex.of(null, List.of(trustedCerts)));
+    }
 
-            X509Certificate currentCert = trustedCerts[i];
-            if (client.getIssuerDN().equals(currentCert.getSubjectDN())) {
-                try {
-                    validator.validate(path, params);
-                    if (isSelfSigned(currentCert)) {
-                        found = true;
-                        LOGGER.debug(
-                            "validating root [{}]",
-                            currentCert.getSubjectX500Principal().getName()
-                        );
-                    } else if (!client.equals(currentCert)) {
-                        // find parent ca
-                        LOGGER.debug(
-                            "validating [{}] via: [{}] ",
-                            client.getSubjectX500Principal().getName(),
-                            currentCert.getSubjectX500Principal().getName()
-                        );
-                        found = validateKeyChain(currentCert, trustedCerts);
-                    }
-                } catch (CertPathValidatorException e) {
-                    LOGGER.trace(
-                        "validation fail, check next certificate in the trustedCerts array"
+    private boolean validateKeyChain(X509Certificate client, TrustIndex index)
+        throws CertificateException, InvalidAlgorithmParameterException, NoSuchAlgorithmException,
+        NoSuchProviderException {
+        var validator = validators.poll();
+        if (validator == null) {
+            validator = Validator.create();
+            createdValidators.increment();
+        }
+        try {
+            return validateKeyChain(client, index, validator, 0);
+        } finally {
+            // a validator is dropped if the pool is full
+            validators.offer(validator);
+        }
+    }
+
+    private boolean validateKeyChain(X509Certificate client, TrustIndex index,
+                                     Validator validator, int depth)
+        throws CertificateException, InvalidAlgorithmParameterException, NoSuchAlgorithmException,
+        NoSuchProviderException {
+        boolean cacheable = index == this.trustIndex;
+        String fingerprint = null;
+        if (cacheable) {
+            fingerprint = CertificateCache.fingerprint(client);
+            var cached = validatedChains.get(fingerprint);
+            if (cached != null && cached.validUntil() - System.nanoTime() > 0) {
+                return cached.valid();
+            }
+        }
+        boolean found = doValidateKeyChain(client, index, validator, depth);
+        if (cacheable) {
+            long ttl = TimeUnit.MINUTES.toNanos(VALIDATION_CACHE_TTL_MINUTES);
+            validatedChains.put(
+                fingerprint, new ValidationResult(found, System.nanoTime() + ttl));
+        }
+        return found;
+    }
+
+    private boolean doValidateKeyChain(X509Certificate client, TrustIndex index,
+                                       Validator validator, int depth)
+        throws CertificateException, InvalidAlgorithmParameterException, NoSuchAlgorithmException,
+        NoSuchProviderException {
+        if (depth >= MAX_CHAIN_LENGTH) {
+            LOGGER.debug("Chain of [{}] is too long", client.getSubjectX500Principal().getName());
+            return false;
+        }
+        chainValidations.increment();
+        var path = validator.certificateFactory().generateCertPath(List.of(client));
+
+        for (X509Certificate currentCert : index.issuersOf(client)) {
+            var params = new PKIXParameters(Set.of(new TrustAnchor(currentCert, null)));
+            params.setRevocationEnabled(false); // TODO: add config for revocation checks!
+            try {
+                validator.certPathValidator().validate(path, params);
+                if (index.isSelfSigned(currentCert)) {
+                    LOGGER.debug(
+                        "validating root [{}]", currentCert.getSubjectX500Principal().getName());
+                    return true;
+                } else if (!client.equals(currentCert)) {
+                    // find parent ca
+                    LOGGER.debug(
+                        "validating [{}] via: [{}] ",
+                        client.getSubjectX500Principal().getName(),
+                        currentCert.getSubjectX500Principal().getName()
                     );
+                    if (validateKeyChain(currentCert, index, validator, depth + 1)) {
+                        return true;
+                    }
                 }
+            } catch (CertPathValidatorException e) {
+                LOGGER.trace("validation fail, check next certificate issued to the same subject");
             }
         }
-        return found;
+        return false;
+    }
+
+    long getChainValidations() {
+        return chainValidations.sum();
+    }
+
+    long getCreatedValidators() {
+        return createdValidators.sum();
     }
 
     /**
@@ -203,6 +300,11 @@ public class TrustStoreCompleteChainTrustStrategy implements TrustStrategy {
     public boolean isSelfSigned(X509Certificate cert)
         throws CertificateException, NoSuchAlgorithmException,
         NoSuchProviderException {
+        return verifiesWithOwnKey(cert);
+    }
+
+    private static boolean verifiesWithOwnKey(X509Certificate cert)
+        throws CertificateException, NoSuchAlgorithmException, NoSuchProviderException {
         try {
             var key = cert.getPublicKey();
             cert.verify(key);
@@ -211,4 +313,68 @@ public class TrustStoreCompleteChainTrustStrategy implements TrustStrategy {
             return false;
         }
     }
+
+    private record ValidationResult(boolean valid, long validUntil) {
+    }
+
+    /**
+     * A certificate factory and a validator, used by one validation at a time.
+     */
+    private record Validator(CertificateFactory certificateFactory,
+                             CertPathValidator certPathValidator) {
+        static Validator create() throws CertificateException, NoSuchAlgorithmException {
+            return new Validator(
+                CertificateFactory.getInstance("X.509"), CertPathValidator.getInstance("PKIX"));
+        }
+    }
+
+    /**
+     * The trusted certificates indexed by their subject.
+     *
+     * @param keyStore   the indexed key store, null if the index has been built from a list
+     * @param bySubject  the trusted certificates by their subject
+     * @param selfSigned the self-signed trusted certificates
+     */
+    private record TrustIndex(KeyStore keyStore,
+                              Map<X500Principal, List<X509Certificate>> bySubject,
+                              Set<X509Certificate> selfSigned) {
+        static TrustIndex of(KeyStore keyStore)
+            throws KeyStoreException, CertificateException, NoSuchAlgorithmException,
+            NoSuchProviderException {
+            List<X509Certificate> certs = new ArrayList<>(keyStore.size());
+            Enumeration<String> alias = keyStore.aliases();
+            while (alias.hasMoreElements()) {
+                if (keyStore.getCertificate(alias.nextElement()) instanceof X509Certificate cert) {
+                    certs.add(cert);
+                }
+            }
+            return of(keyStore, certs);
+        }
+
+        static TrustIndex of(KeyStore keyStore, List<X509Certificate> certs)
+            throws CertificateException, NoSuchAlgorithmException, NoSuchProviderException {
+            Map<X500Principal, List<X509Certificate>> bySubject = new HashMap<>();
+            Set<X509Certificate> selfSigned = new HashSet<>();
+            for (X509Certificate cert : certs) {
+                bySubject.computeIfAbsent(cert.getSubjectX500Principal(), k -> new ArrayList<>())
+                         .add(cert);
+                if (verifiesWithOwnKey(cert)) {
+                    selfSigned.add(cert);
+                }
+            }
+            return new TrustIndex(keyStore, bySubject, selfSigned);
+        }
+
+        List<X509Certificate> issuersOf(X509Certificate cert) {
+            return bySubject.getOrDefault(cert.getIssuerX500Principal(), List.of());
+        }
+
+        boolean isSelfSigned(X509Certificate cert) {
+            return selfSigned.contains(cert);
+        }
+
+        int size() {
+            return bySubject.values().stream().mapToInt(List::size).sum();
+        }
+    }
 }
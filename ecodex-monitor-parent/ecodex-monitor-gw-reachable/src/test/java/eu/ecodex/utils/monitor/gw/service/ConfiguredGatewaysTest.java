@@ -1,21 +1,97 @@
 package eu.ecodex.utils.monitor.gw.service;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.config.GatewayRestInterfaceConfiguration;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.domain.AccessPointsConfiguration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
-@Disabled("unfinished")
-@SuppressWarnings("squid:S1135")
 class ConfiguredGatewaysTest {
     ConfiguredGatewaysService configuredGateways;
+    AtomicInteger downloads = new AtomicInteger();
+    RuntimeException downloadFailure;
 
     @BeforeEach
     public void beforeEach() {
+        var rest = new GatewayRestInterfaceConfiguration();
+        rest.setUrl("http://localhost:8080/domibus");
+        rest.setUsername("user");
+        rest.setPassword("password");
+        rest.setPmodeRefreshInterval(Duration.ofHours(1));
+        var config = new GatewayMonitorConfigurationProperties();
+        config.setRest(rest);
+
         configuredGateways = new ConfiguredGatewaysService();
+        configuredGateways.monitorConfigurationProperties = config;
+        configuredGateways.gatewaysCheckerService = new GatewaysCheckerService();
+        configuredGateways.gatewaysCheckerService.statusHistory = new GatewayStatusHistory();
+        configuredGateways.gatewaysCheckerService.probeMetrics = new GatewayProbeMetrics();
+        configuredGateways.gatewaysCheckerService.probeMetrics.meterRegistry =
+            new SimpleMeterRegistry();
+        configuredGateways.pModeDownloader = new PModeDownloader(rest) {
+            @Override
+            public AccessPointsConfiguration updateAccessPointsConfig(
+                AccessPointsConfiguration config) {
+                downloads.incrementAndGet();
+                if (downloadFailure != null) {
+                    throw downloadFailure;
+                }
+                config.setSelf(accessPoint("self"));
+                config.setRemoteAccessPoints(List.of(accessPoint("gw1"), accessPoint("gw2")));
+                return config;
+            }
+        };
+    }
+
+    @Test
+    void lookups_useLoadedAccessPointsUntilInvalidated() {
+        assertThat(configuredGateways.getSelf().getName()).isEqualTo("self");
+        assertThat(configuredGateways.getByName("gw2").getEndpoint())
+            .isEqualTo("https://gw2.example.com/");
+        assertThat(configuredGateways.getByName("self").getName()).isEqualTo("self");
+        assertThat(configuredGateways.getByName("unknown")).isNull();
+        assertThat(configuredGateways.getConfiguredGateways()).hasSize(2);
+        assertThat(configuredGateways.getConfiguredGatewaysWithSelf())
+            .extracting(AccessPoint::getName)
+            .containsExactly("self", "gw1", "gw2");
+        assertThat(downloads).hasValue(1);
+
+        configuredGateways.invalidate();
+        configuredGateways.getSelf();
+
+        assertThat(downloads).hasValue(2);
     }
 
     @Test
-    void testUpdate() {
-        // TODO check why this is empty
+    void failedReload_keepsPreviousAccessPoints() {
+        configuredGateways.getSelf();
+        configuredGateways.invalidate();
+        downloadFailure = new IllegalStateException("gateway not reachable");
+
+        assertThat(configuredGateways.getByName("gw1")).isNotNull();
+        assertThat(downloads).hasValue(2);
+    }
+
+    @Test
+    void failedInitialLoad_isThrown() {
+        downloadFailure = new IllegalStateException("gateway not reachable");
+
+        assertThatThrownBy(() -> configuredGateways.getSelf())
+            .isInstanceOf(IllegalStateException.class);
+    }
+
+    private AccessPoint accessPoint(String name) {
+        var accessPoint = new AccessPoint();
+        accessPoint.setName(name);
+        accessPoint.setEndpoint("https://" + name + ".example.com/");
+        return accessPoint;
     }
 }
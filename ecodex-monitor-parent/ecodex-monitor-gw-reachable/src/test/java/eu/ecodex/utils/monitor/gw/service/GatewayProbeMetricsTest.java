@@ -0,0 +1,66 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.domain.ProbeMode;
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import eu.ecodex.utils.monitor.gw.dto.CheckResultDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GatewayProbeMetricsTest {
+    GatewayProbeMetrics probeMetrics;
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    public void beforeEach() {
+        probeMetrics = new GatewayProbeMetrics();
+        probeMetrics.gatewayMonitorConfig = new GatewayMonitorConfigurationProperties();
+        probeMetrics.meterRegistry = meterRegistry;
+    }
+
+    @Test
+    void record_publishesNoHistogramByDefault() {
+        var gw1 = accessPoint("gw1");
+        probeMetrics.record(gw1, ProbeMode.GET, probeMetrics.startDetached(), status(gw1));
+
+        var timer = meterRegistry.find(GatewayProbeMetrics.METRIC_PREFIX + ".duration").timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.takeSnapshot().histogramCounts()).isEmpty();
+    }
+
+    @Test
+    void retainAccessPoints_removesMetersOfRemovedAccessPoints() {
+        var gw1 = accessPoint("gw1");
+        var gw2 = accessPoint("gw2");
+        probeMetrics.record(gw1, ProbeMode.GET, probeMetrics.startDetached(), status(gw1));
+        var failed = status(gw2);
+        var failure = new CheckResultDTO();
+        failure.setName("Connection Failure");
+        failed.getFailures().add(failure);
+        probeMetrics.record(gw2, ProbeMode.GET, probeMetrics.startDetached(), failed);
+
+        probeMetrics.retainAccessPoints(List.of(gw1));
+
+        assertThat(meterRegistry.getMeters())
+            .isNotEmpty()
+            .extracting(meter -> meter.getId().getTag(GatewayProbeMetrics.ACCESS_POINT_TAG))
+            .containsOnly("gw1");
+    }
+
+    private AccessPoint accessPoint(String name) {
+        var accessPoint = new AccessPoint();
+        accessPoint.setName(name);
+        return accessPoint;
+    }
+
+    private AccessPointStatusDTO status(AccessPoint ap) {
+        var status = new AccessPointStatusDTO();
+        status.setName(ap.getName());
+        return status;
+    }
+}
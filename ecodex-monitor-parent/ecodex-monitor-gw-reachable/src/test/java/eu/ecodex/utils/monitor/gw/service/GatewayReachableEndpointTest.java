@@ -0,0 +1,113 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import eu.ecodex.utils.monitor.gw.dto.CheckResultDTO;
+import java.io.InputStream;
+import java.security.KeyStore;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GatewayReachableEndpointTest {
+    GatewayReachableEndpoint endpoint;
+    AtomicInteger invalidations = new AtomicInteger();
+
+    @BeforeEach
+    public void beforeEach() {
+        endpoint = new GatewayReachableEndpoint();
+        endpoint.configuredGatewaysService = new ConfiguredGatewaysService() {
+            @Override
+            public Collection<AccessPoint> getConfiguredGatewaysWithSelf() {
+                return List.of(new AccessPoint(), new AccessPoint());
+            }
+
+            @Override
+            public void invalidate() {
+                invalidations.incrementAndGet();
+            }
+        };
+        endpoint.certificateCache = new CertificateCache();
+        endpoint.probeService = new GatewaysProbeService() {
+            @Override
+            public List<AccessPointStatusDTO> getGatewayStatuses(
+                Collection<AccessPoint> accessPoints) {
+                return List.of(status("gw1", 3), status("gw2", 7));
+            }
+        };
+    }
+
+    @Test
+    void accessPointStatusList_withoutParameters_returnsFullStatuses() {
+        var statuses = endpoint.accessPointStatusList(null, null);
+
+        assertThat(statuses).extracting(AccessPointStatusDTO::getName)
+                            .containsExactly("gw1", "gw2");
+        assertThat(statuses.getFirst().getServerCertificates()).containsExactly("crt");
+        assertThat(statuses.getFirst().getFailures().getFirst().getDetails()).isEqualTo("trace");
+    }
+
+    @Test
+    void reloadAccessPoints_invalidatesConfiguredAccessPoints() {
+        endpoint.reloadAccessPoints();
+
+        assertThat(invalidations).hasValue(1);
+    }
+
+    @Test
+    void accessPointStatusList_since_returnsOnlyNewerStatuses() {
+        assertThat(endpoint.accessPointStatusList(3L, null))
+            .extracting(AccessPointStatusDTO::getName)
+            .containsExactly("gw2");
+        assertThat(endpoint.accessPointStatusList(7L, null)).isEmpty();
+    }
+
+    @Test
+    void accessPointStatusList_compact_leavesOutCertificatesAndDetails() {
+        var statuses = endpoint.accessPointStatusList(null, GatewayReachableEndpoint.View.COMPACT);
+
+        assertThat(statuses.getFirst().getServerCertificates()).isNull();
+        assertThat(statuses.getFirst().getServerCertificateFingerprints()).containsExactly("fp");
+        assertThat(statuses.getFirst().getVersion()).isEqualTo(3);
+        assertThat(statuses.getFirst().getFailures())
+            .singleElement()
+            .satisfies(f -> {
+                assertThat(f.getName()).isEqualTo("TLS failure");
+                assertThat(f.getDetails()).isNull();
+            });
+    }
+
+    @Test
+    void getCertificate_returnsCachedCertificateByFingerprint() throws Exception {
+        var keyStore = KeyStore.getInstance("JKS");
+        try (InputStream is = getClass().getResourceAsStream("/keystores/truststore.jks")) {
+            keyStore.load(is, "12345".toCharArray());
+        }
+        var encoded = endpoint.certificateCache.encode(keyStore.getCertificate("ca1"));
+
+        var certificate = endpoint.getCertificate(
+            GatewayReachableEndpoint.CERTIFICATES, encoded.getFingerprint().toUpperCase());
+
+        assertThat(certificate).isSameAs(encoded);
+        assertThat(certificate.getSubject()).isEqualTo("CN=ca1,C=AT");
+        assertThat(endpoint.getCertificate("other", encoded.getFingerprint())).isNull();
+        assertThat(endpoint.getCertificate(GatewayReachableEndpoint.CERTIFICATES, "00")).isNull();
+    }
+
+    private AccessPointStatusDTO status(String name, long version) {
+        var status = new AccessPointStatusDTO();
+        status.setName(name);
+        status.setVersion(version);
+        status.setServerCertificates(new String[] {"crt"});
+        status.setServerCertificateFingerprints(new String[] {"fp"});
+        var failure = new CheckResultDTO();
+        failure.setName("TLS failure");
+        failure.setDetails("trace");
+        status.getFailures().add(failure);
+        return status;
+    }
+}
@@ -0,0 +1,104 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import eu.ecodex.utils.monitor.gw.dto.CheckResultDTO;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GatewayStatusHistoryTest {
+    static final Instant START = Instant.parse("2024-05-01T00:00:00Z");
+    GatewayStatusHistory history;
+    AccessPoint accessPoint = new AccessPoint();
+
+    @BeforeEach
+    public void beforeEach() {
+        var config = new GatewayMonitorConfigurationProperties();
+        config.getHistory().setSamples(10);
+        config.getHistory().setBucketDuration(Duration.ofHours(1));
+        config.getHistory().setBuckets(24);
+        history = new GatewayStatusHistory();
+        history.gatewayMonitorConfig = config;
+        accessPoint.setName("gw1");
+    }
+
+    @Test
+    void getAvailability_combinesSamplesAndOlderBuckets() {
+        // one check per minute for two hours, every tenth check fails
+        for (var i = 0; i < 120; i++) {
+            record(START.plus(Duration.ofMinutes(i)), i % 10 != 0, 100 + i);
+        }
+
+        var availability = history.getAvailability("gw1", START, START.plus(Duration.ofHours(2)));
+
+        assertThat(availability.getChecks()).isEqualTo(120);
+        assertThat(availability.getSuccessfulChecks()).isEqualTo(108);
+        assertThat(availability.getAvailability()).isEqualTo(90.0);
+        assertThat(availability.getLatencyP50()).isBetween(160L, 160L * 126 / 100);
+        assertThat(availability.getLatencyP99()).isBetween(218L, 218L * 126 / 100);
+
+        // the latest ten checks are still single samples, the bucket of the second hour starts
+        // before the window
+        var lastMinutes = history.getAvailability(
+            "gw1", START.plus(Duration.ofMinutes(110)), START.plus(Duration.ofHours(2)));
+        assertThat(lastMinutes.getChecks()).isEqualTo(10);
+        assertThat(lastMinutes.getSuccessfulChecks()).isEqualTo(9);
+    }
+
+    @Test
+    void getAvailability_withoutChecks_hasNoAvailability() {
+        record(START, true, 100);
+
+        var availability = history.getAvailability(
+            "gw1", START.plus(Duration.ofDays(1)), START.plus(Duration.ofDays(2)));
+        assertThat(availability.getChecks()).isZero();
+        assertThat(availability.getAvailability()).isNull();
+
+        history.retainAccessPoints(List.of());
+        assertThat(history.getAvailability("gw1", START, START.plusSeconds(1)).getChecks())
+            .isZero();
+    }
+
+    @Test
+    void getAvailability_skippedChecksCountAsFailedWithoutLatency() {
+        record(START, true, 100);
+        history.recordSkipped(accessPoint, START.plus(Duration.ofMinutes(1)));
+        history.recordSkipped(accessPoint, START.plus(Duration.ofMinutes(2)));
+
+        var availability = history.getAvailability("gw1", START, START.plus(Duration.ofHours(1)));
+        assertThat(availability.getChecks()).isEqualTo(3);
+        assertThat(availability.getSuccessfulChecks()).isEqualTo(1);
+        assertThat(availability.getLatencyP99()).isBetween(100L, 126L);
+
+        var skippedOnly = history.getAvailability(
+            "gw1", START.plus(Duration.ofMinutes(1)), START.plus(Duration.ofHours(1)));
+        assertThat(skippedOnly.getAvailability()).isZero();
+        assertThat(skippedOnly.getLatencyP50()).isNull();
+    }
+
+    @Test
+    void latencyBins_areAtMostOneThirdOfADoublingWide() {
+        for (long millis = 1; millis < 50_000; millis = millis * 11 / 10 + 1) {
+            var upperBound = GatewayStatusHistory.latencyBinUpperBound(
+                GatewayStatusHistory.latencyBin(millis));
+            assertThat(upperBound).as("%d ms", millis)
+                                  .isBetween(millis, Math.round(millis * 1.26) + 1);
+        }
+    }
+
+    private void record(Instant checkTime, boolean success, long latencyMillis) {
+        var status = new AccessPointStatusDTO();
+        status.setCheckTime(checkTime.atZone(ZoneOffset.UTC));
+        if (!success) {
+            status.getFailures().add(new CheckResultDTO());
+        }
+        history.record(accessPoint, status, Duration.ofMillis(latencyMillis));
+    }
+}
@@ -0,0 +1,83 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.domibus.connector.lib.spring.configuration.KeyConfigurationProperties;
+import eu.domibus.connector.lib.spring.configuration.StoreConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.FileSystemResource;
+
+class GatewayTlsClientProviderTest {
+    @TempDir
+    Path storeDir;
+    Path trustStore;
+    GatewayTlsClientProvider tlsClientProvider;
+
+    @BeforeEach
+    public void beforeEach() throws Exception {
+        var keyStore = copy("/keystores/keystore.jks", "keystore.jks");
+        trustStore = copy("/keystores/truststore.jks", "truststore.jks");
+
+        var config = new GatewayMonitorConfigurationProperties();
+        config.setTlsReloadCheckInterval(Duration.ZERO);
+        var tls = config.getTls();
+        tls.setMinTls("TLSv1");
+        tls.setKeyStore(new StoreConfigurationProperties(
+            new FileSystemResource(keyStore), "12345"));
+        tls.setTrustStore(new StoreConfigurationProperties(
+            new FileSystemResource(trustStore), "12345"));
+        tls.setPrivateKey(new KeyConfigurationProperties("key", "12345"));
+
+        tlsClientProvider = new GatewayTlsClientProvider();
+        tlsClientProvider.gatewayMonitorConfig = config;
+        tlsClientProvider.trustStoreCompleteChainTrustStrategy =
+            new TrustStoreCompleteChainTrustStrategy();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        tlsClientProvider.close();
+    }
+
+    @Test
+    void unchangedStores_reuseClient() {
+        var tlsClient = tlsClientProvider.getTlsClient();
+
+        assertThat(tlsClientProvider.getTlsClient()).isSameAs(tlsClient);
+        assertThat(tlsClient.isClosed()).isFalse();
+    }
+
+    @Test
+    void changedTrustStore_buildsNewClientAndClosesOldOneWhenReleased() throws Exception {
+        var tlsClient = tlsClientProvider.acquireTlsClient();
+
+        var modified = Files.getLastModifiedTime(trustStore).toMillis() + 2000;
+        Files.setLastModifiedTime(trustStore, FileTime.fromMillis(modified));
+        var rebuilt = tlsClientProvider.getTlsClient();
+
+        assertThat(rebuilt).isNotSameAs(tlsClient);
+        // the check using the old client may still finish
+        assertThat(tlsClient.isClosed()).isFalse();
+        tlsClient.release();
+        assertThat(tlsClient.isClosed()).isTrue();
+        assertThat(rebuilt.isClosed()).isFalse();
+    }
+
+    private Path copy(String resource, String fileName) throws Exception {
+        var target = storeDir.resolve(fileName);
+        try (InputStream is = getClass().getResourceAsStream(resource)) {
+            Files.copy(is, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return target;
+    }
+}
@@ -3,9 +3,15 @@ package eu.ecodex.utils.monitor.gw.service;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import eu.ecodex.utils.monitor.gw.GatewayMonitorAutoConfiguration;
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
 import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.domain.ProbeMode;
 import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.slf4j.Logger;
@@ -28,6 +34,12 @@ class GatewaysCheckerServiceITCase {
     public static final String GATEWAY_STATUS_IS = "Gateway status is: [{}]";
     @Autowired
     GatewaysCheckerService gatewaysCheckerService;
+    @Autowired
+    GatewayProbeMetrics probeMetrics;
+    @Autowired
+    GatewayMonitorConfigurationProperties gatewayMonitorConfig;
+    @Autowired
+    GatewayTlsClientProvider tlsClientProvider;
 
     @Test
     void getGatewayStatus_serverCrtDoesNotMatchName() {
@@ -75,6 +87,114 @@ class GatewaysCheckerServiceITCase {
         assertThat(gatewayStatus.getFailures()).isEmpty();
     }
 
+    @Test
+    void getGatewayStatus3_probeModes() {
+        var server3 = ServerStarter.startServer3();
+
+        for (ProbeMode mode : ProbeMode.values()) {
+            var accessPoint = new AccessPoint();
+            accessPoint.setName("gw3-" + mode);
+            accessPoint.setEndpoint(
+                "https://localhost:" + ServerStarter.getServerPort(server3) + "/");
+            accessPoint.setProbeMode(mode);
+
+            var gatewayStatus = gatewaysCheckerService.getGatewayStatus(accessPoint);
+            LOGGER.info(GATEWAY_STATUS_IS, gatewayStatus);
+
+            assertThat(gatewayStatus.getFailures()).as(mode.name()).isEmpty();
+            assertThat(gatewayStatus.getServerCertificates()).as(mode.name()).isNotEmpty();
+            assertThat(gatewayStatus.getServerCertificateFingerprints())
+                .as(mode.name())
+                .hasSameSizeAs(gatewayStatus.getServerCertificates());
+        }
+    }
+
+    @Test
+    void getGatewayStatus3_async() {
+        var server3 = ServerStarter.startServer3();
+        var server4 = ServerStarter.startServer4();
+        gatewayMonitorConfig.getProbe().setAsync(true);
+        tlsClientProvider.close();
+        try {
+            assertThat(tlsClientProvider.getTlsClient().asyncClient()).isNotNull();
+            for (ProbeMode mode : List.of(ProbeMode.HEAD, ProbeMode.GET)) {
+                var accessPoint = new AccessPoint();
+                accessPoint.setName("gw3-async-" + mode);
+                accessPoint.setEndpoint(
+                    "https://localhost:" + ServerStarter.getServerPort(server3) + "/");
+                accessPoint.setProbeMode(mode);
+
+                var gatewayStatus = gatewaysCheckerService.getGatewayStatus(accessPoint);
+                LOGGER.info(GATEWAY_STATUS_IS, gatewayStatus);
+
+                assertThat(gatewayStatus.getFailures()).as(mode.name()).isEmpty();
+                assertThat(gatewayStatus.getUsedTls()).as(mode.name()).isNotNull();
+                assertThat(gatewayStatus.getServerCertificates()).as(mode.name()).isNotEmpty();
+                assertThat(gatewayStatus.getTargetHost()).as(mode.name()).isNotNull();
+            }
+
+            var accessPoint = new AccessPoint();
+            accessPoint.setName("gw4-async");
+            accessPoint.setEndpoint(
+                "https://localhost:" + ServerStarter.getServerPort(server4) + "/");
+            var gatewayStatus = gatewaysCheckerService.getGatewayStatus(accessPoint);
+            LOGGER.info(GATEWAY_STATUS_IS, gatewayStatus);
+            assertThat(gatewayStatus.getFailures()).hasSize(1);
+        } finally {
+            gatewayMonitorConfig.getProbe().setAsync(false);
+            tlsClientProvider.close();
+        }
+    }
+
+    @Test
+    void getGatewayStatus3_recordsPhaseTimers() {
+        var server3 = ServerStarter.startServer3();
+
+        var accessPoint = new AccessPoint();
+        accessPoint.setName("gw3-metrics");
+        accessPoint.setEndpoint("https://localhost:" + ServerStarter.getServerPort(server3) + "/");
+
+        var gatewayStatus = gatewaysCheckerService.getGatewayStatus(accessPoint);
+        assertThat(gatewayStatus.getFailures()).isEmpty();
+
+        for (var phase : List.of("dns", "connect", "tls.handshake", "ttfb", "duration")) {
+            var timer = probeMetrics.meterRegistry
+                .find(GatewayProbeMetrics.METRIC_PREFIX + "." + phase)
+                .tag(GatewayProbeMetrics.ACCESS_POINT_TAG, "gw3-metrics")
+                .timer();
+            assertThat(timer).as(phase).isNotNull();
+            assertThat(timer.count()).as(phase).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void getGatewayStatus3_async_recordsPhaseTimers() {
+        var server3 = ServerStarter.startServer3();
+        gatewayMonitorConfig.getProbe().setAsync(true);
+        tlsClientProvider.close();
+        try {
+            var accessPoint = new AccessPoint();
+            accessPoint.setName("gw3-async-metrics");
+            accessPoint.setEndpoint(
+                "https://localhost:" + ServerStarter.getServerPort(server3) + "/");
+
+            var gatewayStatus = gatewaysCheckerService.getGatewayStatus(accessPoint);
+            assertThat(gatewayStatus.getFailures()).isEmpty();
+
+            for (var phase : List.of("dns", "connect", "tls.handshake", "ttfb", "duration")) {
+                var timer = probeMetrics.meterRegistry
+                    .find(GatewayProbeMetrics.METRIC_PREFIX + "." + phase)
+                    .tag(GatewayProbeMetrics.ACCESS_POINT_TAG, "gw3-async-metrics")
+                    .timer();
+                assertThat(timer).as(phase).isNotNull();
+                assertThat(timer.count()).as(phase).isEqualTo(1);
+            }
+        } finally {
+            gatewayMonitorConfig.getProbe().setAsync(false);
+            tlsClientProvider.close();
+        }
+    }
+
     @Test
     void getGatewayStatus_recheck() throws InterruptedException {
         var server3 = ServerStarter.startServer3();
@@ -90,11 +210,40 @@ class GatewaysCheckerServiceITCase {
         LOGGER.info("sleep 8s");
         Thread.sleep(Duration.ofSeconds(8).toMillis());
 
-        var gatewayStatus2 = gatewaysCheckerService.getGatewayStatus(accessPoint);
+        // the stale status is served while the access point is checked again
+        var staleGatewayStatus = gatewaysCheckerService.getGatewayStatus(accessPoint);
+        assertThat(staleGatewayStatus).isSameAs(gatewayStatus);
+
+        var gatewayStatus2 = staleGatewayStatus;
+        for (var i = 0; i < 50 && gatewayStatus2 == gatewayStatus; i++) {
+            Thread.sleep(Duration.ofMillis(200).toMillis());
+            gatewayStatus2 = gatewaysCheckerService.getGatewayStatus(accessPoint);
+        }
         LOGGER.info(GATEWAY_STATUS_IS, gatewayStatus2);
         assertThat(gatewayStatus).isNotEqualTo(gatewayStatus2);
     }
 
+    @Test
+    void getGatewayStatus_concurrentCallsShareOneCheck() throws Exception {
+        var server3 = ServerStarter.startServer3();
+
+        var accessPoint = new AccessPoint();
+        accessPoint.setName("gw3-concurrent");
+        accessPoint.setEndpoint("https://localhost:" + ServerStarter.getServerPort(server3) + "/");
+
+        try (var executor = Executors.newFixedThreadPool(8)) {
+            List<Future<AccessPointStatusDTO>> futures = new ArrayList<>();
+            for (var i = 0; i < 8; i++) {
+                futures.add(executor.submit(
+                    () -> gatewaysCheckerService.getGatewayStatus(accessPoint)));
+            }
+            var gatewayStatus = futures.getFirst().get();
+            for (Future<AccessPointStatusDTO> future : futures) {
+                assertThat(future.get()).isSameAs(gatewayStatus);
+            }
+        }
+    }
+
     @Test
     void getGatewayStatus4_illegalServerCrt() throws InterruptedException {
         var server4 = ServerStarter.startServer4();
@@ -0,0 +1,202 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.domain.ProbeMode;
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import eu.ecodex.utils.monitor.gw.dto.CheckResultDTO;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GatewaysCheckerServiceTest {
+    GatewaysCheckerService checkerService;
+    List<ProbeMode> checks = new CopyOnWriteArrayList<>();
+    volatile boolean down = true;
+    volatile CompletableFuture<Void> checkDone = CompletableFuture.completedFuture(null);
+
+    @BeforeEach
+    public void beforeEach() {
+        var config = new GatewayMonitorConfigurationProperties();
+        config.setCheckCacheTimeout(Duration.ZERO);
+        config.setCheckCacheMaxStale(Duration.ZERO);
+        var backoff = config.getProbe().getBackoff();
+        backoff.setFailureThreshold(2);
+        backoff.setInitialDelay(Duration.ofSeconds(1));
+        backoff.setJitter(0);
+
+        checkerService = new GatewaysCheckerService() {
+            @Override
+            CompletableFuture<AccessPointStatusDTO> checkGateway(AccessPoint ap, ProbeMode mode) {
+                checks.add(mode);
+                var status = new AccessPointStatusDTO();
+                status.setName(ap.getName());
+                status.setCheckTime(ZonedDateTime.now());
+                if (down) {
+                    var checkResultDTO = new CheckResultDTO();
+                    checkResultDTO.setName("Connection Failure");
+                    status.getFailures().add(checkResultDTO);
+                }
+                return checkDone.thenApply(done -> status);
+            }
+        };
+        checkerService.gatewayMonitorConfig = config;
+        checkerService.statusHistory = new GatewayStatusHistory();
+        checkerService.statusHistory.gatewayMonitorConfig = config;
+        checkerService.init();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        checkerService.shutdown();
+    }
+
+    @Test
+    void repeatedlyFailingAccessPoint_isBackedOffAndProbedWithHandshake() throws Exception {
+        var accessPoint = new AccessPoint();
+        accessPoint.setName("gw1");
+        accessPoint.setEndpoint("https://gw1.example.com/");
+
+        checkerService.refreshGatewayStatus(accessPoint).join();
+        var downStatus = checkerService.refreshGatewayStatus(accessPoint).join();
+        assertThat(downStatus.getWarnings())
+            .extracting(CheckResultDTO::getName)
+            .containsExactly(GatewaysCheckerService.BACKOFF_CHECK_NAME);
+
+        // while backing off neither callers nor refreshes check the access point
+        assertThat(checkerService.getGatewayStatus(accessPoint)).isSameAs(downStatus);
+        assertThat(checkerService.refreshGatewayStatus(accessPoint).join()).isSameAs(downStatus);
+        assertThat(checks).containsExactly(ProbeMode.GET, ProbeMode.GET);
+        // the skipped checks count as failed checks of the access point
+        var availability = checkerService.statusHistory.getAvailability(
+            "gw1", Instant.now().minusSeconds(60), Instant.now().plusSeconds(60));
+        assertThat(availability.getChecks()).isEqualTo(2);
+        assertThat(availability.getSuccessfulChecks()).isZero();
+
+        down = false;
+        Thread.sleep(Duration.ofMillis(1100).toMillis());
+        var upStatus = checkerService.refreshGatewayStatus(accessPoint).join();
+
+        assertThat(upStatus.getFailures()).isEmpty();
+        assertThat(upStatus.getWarnings()).isEmpty();
+        assertThat(upStatus.getVersion()).isGreaterThan(downStatus.getVersion());
+        assertThat(checks).containsExactly(
+            ProbeMode.GET, ProbeMode.GET, ProbeMode.HANDSHAKE, ProbeMode.GET);
+    }
+
+    @Test
+    void healthPollsWhileBackingOff_recordOneSkippedCheckPerCacheTimeout() throws Exception {
+        var config = checkerService.gatewayMonitorConfig;
+        config.setCheckCacheTimeout(Duration.ofMillis(300));
+        config.getProbe().getBackoff().setInitialDelay(Duration.ofMinutes(1));
+        config.getHealthCheck().setCheckNames(List.of("*"));
+        var accessPoint = new AccessPoint();
+        accessPoint.setName("gw1");
+        accessPoint.setEndpoint("https://gw1.example.com/");
+        var healthIndicator = new RemoteGatewaysHealthIndicator();
+        healthIndicator.gatewayMonitorConfig = config;
+        healthIndicator.gatewaysCheckerService = checkerService;
+        healthIndicator.configuredGatewaysService = new ConfiguredGatewaysService() {
+            @Override
+            public Optional<Collection<AccessPoint>> peekConfiguredGateways() {
+                return Optional.of(List.of(accessPoint));
+            }
+        };
+        checkerService.refreshGatewayStatus(accessPoint).join();
+        checkerService.refreshGatewayStatus(accessPoint).join();
+
+        for (var timeout = 1; timeout <= 2; timeout++) {
+            Thread.sleep(Duration.ofMillis(400).toMillis());
+            for (var i = 0; i < 20; i++) {
+                healthIndicator.health();
+            }
+            // waits for the refreshes started by the health indicator
+            checkerService.refreshGatewayStatus(accessPoint).join();
+
+            var availability = checkerService.statusHistory.getAvailability(
+                "gw1", Instant.now().minusSeconds(60), Instant.now().plusSeconds(60));
+            // the checks of the stubbed checker are not recorded, only the skipped ones
+            assertThat(availability.getChecks()).isEqualTo(timeout);
+        }
+        assertThat(checks).containsExactly(ProbeMode.GET, ProbeMode.GET);
+    }
+
+    @Test
+    void repeatedIdenticalCheck_keepsVersion() {
+        var accessPoint = new AccessPoint();
+        accessPoint.setName("gw1");
+        accessPoint.setEndpoint("https://gw1.example.com/");
+        down = false;
+
+        var first = checkerService.refreshGatewayStatus(accessPoint).join();
+        var second = checkerService.refreshGatewayStatus(accessPoint).join();
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getVersion()).isEqualTo(first.getVersion());
+
+        down = true;
+        var failed = checkerService.refreshGatewayStatus(accessPoint).join();
+        assertThat(failed.getVersion()).isGreaterThan(second.getVersion());
+    }
+
+    @Test
+    void concurrentCalls_shareOneCheck() throws Exception {
+        checkerService.gatewayMonitorConfig.setCheckCacheTimeout(Duration.ofMinutes(1));
+        var accessPoint = new AccessPoint();
+        accessPoint.setName("gw1");
+        accessPoint.setEndpoint("https://gw1.example.com/");
+        down = false;
+        checkDone = new CompletableFuture<>();
+
+        List<CompletableFuture<AccessPointStatusDTO>> callers = new ArrayList<>();
+        try (var executor = Executors.newFixedThreadPool(8)) {
+            for (var i = 0; i < 8; i++) {
+                callers.add(CompletableFuture.supplyAsync(
+                    () -> checkerService.getGatewayStatus(accessPoint), executor));
+            }
+            Thread.sleep(Duration.ofMillis(200).toMillis());
+            assertThat(callers).noneMatch(CompletableFuture::isDone);
+            checkDone.complete(null);
+
+            var status = callers.getFirst().get(5, TimeUnit.SECONDS);
+            for (var caller : callers) {
+                assertThat(caller.get(5, TimeUnit.SECONDS)).isSameAs(status);
+            }
+        }
+        assertThat(checks).containsExactly(ProbeMode.GET);
+    }
+
+    @Test
+    void expiredStatus_isServedStaleWhileCheckedAgain() {
+        checkerService.gatewayMonitorConfig.setCheckCacheMaxStale(Duration.ofMinutes(1));
+        var accessPoint = new AccessPoint();
+        accessPoint.setName("gw1");
+        accessPoint.setEndpoint("https://gw1.example.com/");
+        down = false;
+        var first = checkerService.getGatewayStatus(accessPoint);
+
+        checkDone = new CompletableFuture<>();
+        assertThat(checkerService.getGatewayStatus(accessPoint)).isSameAs(first);
+        // the running check is shared instead of starting another one
+        assertThat(checkerService.getGatewayStatus(accessPoint)).isSameAs(first);
+        var running = checkerService.refreshGatewayStatus(accessPoint);
+
+        checkDone.complete(null);
+        var second = running.join();
+        assertThat(checks).hasSize(2);
+        assertThat(second).isNotSameAs(first);
+        assertThat(checkerService.getCachedGatewayStatus(accessPoint)).containsSame(second);
+    }
+}
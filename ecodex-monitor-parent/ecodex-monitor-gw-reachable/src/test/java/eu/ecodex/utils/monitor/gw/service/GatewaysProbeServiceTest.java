@@ -0,0 +1,95 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GatewaysProbeServiceTest {
+    GatewaysProbeService probeService;
+
+    @BeforeEach
+    public void beforeEach() {
+        var config = new GatewayMonitorConfigurationProperties();
+        config.getProbe().setParallelism(4);
+        config.getProbe().setDeadline(Duration.ofMillis(500));
+
+        probeService = new GatewaysProbeService();
+        probeService.gatewayMonitorConfig = config;
+        probeService.gatewaysCheckerService = new GatewaysCheckerService() {
+            @Override
+            public CompletableFuture<AccessPointStatusDTO> getGatewayStatusAsync(AccessPoint ap) {
+                var status = new AccessPointStatusDTO();
+                status.setName(ap.getName());
+                if (ap.getName().startsWith("failing")) {
+                    return CompletableFuture.failedFuture(new IllegalStateException("failing"));
+                }
+                if (ap.getName().startsWith("slow")) {
+                    return CompletableFuture.supplyAsync(
+                        () -> status, CompletableFuture.delayedExecutor(5, TimeUnit.SECONDS));
+                }
+                return CompletableFuture.completedFuture(status);
+            }
+        };
+    }
+
+    @Test
+    void getGatewayStatuses_slowAccessPointsAreReportedAsTimedOut() {
+        var accessPoints = List.of(
+            accessPoint("fast1"), accessPoint("slow1"), accessPoint("fast2"),
+            accessPoint("slow2"), accessPoint("failing1")
+        );
+
+        long start = System.nanoTime();
+        var statuses = probeService.getGatewayStatuses(accessPoints);
+        var duration = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(duration).isLessThan(Duration.ofSeconds(2));
+        assertThat(statuses).extracting(AccessPointStatusDTO::getName)
+                            .containsExactly("fast1", "slow1", "fast2", "slow2", "failing1");
+        assertThat(statuses.get(0).getFailures()).isEmpty();
+        assertThat(statuses.get(2).getFailures()).isEmpty();
+        assertThat(statuses.get(1).getFailures())
+            .singleElement()
+            .satisfies(f -> assertThat(f.getName())
+                .isEqualTo(GatewaysProbeService.TIMEOUT_CHECK_NAME));
+        assertThat(statuses.get(3).getFailures()).hasSize(1);
+        assertThat(statuses.get(4).getFailures())
+            .singleElement()
+            .satisfies(f -> assertThat(f.getName()).isEqualTo("Check failure"));
+    }
+
+    @Test
+    void getGatewayStatuses_refreshEnabled_doesNotCheck() {
+        probeService.gatewayMonitorConfig.getRefresh().setEnabled(true);
+        var accessPoints = List.of(accessPoint("slow1"), accessPoint("slow2"));
+
+        long start = System.nanoTime();
+        var statuses = probeService.getGatewayStatuses(accessPoints);
+        var duration = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(duration).isLessThan(Duration.ofMillis(500));
+        assertThat(statuses).hasSize(2).allSatisfy(status -> {
+            assertThat(GatewaysProbeService.isNotCheckedYet(status)).isTrue();
+            assertThat(status.getFailures()).isEmpty();
+            assertThat(status.getWarnings())
+                .singleElement()
+                .satisfies(w -> assertThat(w.getName())
+                    .isEqualTo(GatewaysProbeService.NOT_CHECKED_CHECK_NAME));
+        });
+    }
+
+    private AccessPoint accessPoint(String name) {
+        var accessPoint = new AccessPoint();
+        accessPoint.setName(name);
+        accessPoint.setEndpoint("https://" + name + ".example.com/");
+        return accessPoint;
+    }
+}
@@ -0,0 +1,94 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+import eu.ecodex.configuration.pmode.Configuration;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import jakarta.xml.bind.JAXBContext;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import javax.xml.stream.XMLStreamException;
+import org.junit.jupiter.api.Test;
+
+class PModePartiesReaderTest {
+    private static final String PMODES = """
+        <?xml version="1.0" encoding="UTF-8"?>
+        <db:configuration xmlns:db="http://domibus.eu/configuration" party="gw1">
+            <mpcs>
+                <mpc name="defaultMpc" qualifiedName="http://example.com/mpc"/>
+            </mpcs>
+            <businessProcesses>
+                <roles>
+                    <role name="defaultInitiatorRole" value="initiator"/>
+                </roles>
+                <parties>
+                    <partyIdTypes>
+                        <partyIdType name="partyTypeUrn" value="urn:oasis:names:tc:ebcore"/>
+                    </partyIdTypes>
+                    <party name="gw1" endpoint="https://gw1.example.com/domibus/services/msh">
+                        <identifier partyId="gw1" partyIdType="partyTypeUrn"/>
+                    </party>
+                    <party name="gw2" endpoint="https://gw2.example.com/domibus/services/msh">
+                        <identifier partyId="gw2" partyIdType="partyTypeUrn"/>
+                    </party>
+                </parties>
+                <meps>
+                    <mep name="oneway" value="http://example.com/oneWay"/>
+                </meps>
+                <process name="tc1Process">
+                    <initiatorParties>
+                        <initiatorParty name="gw3"/>
+                    </initiatorParties>
+                </process>
+            </businessProcesses>
+        </db:configuration>
+        """;
+
+    @Test
+    void read_returnsPartiesOfPModes() throws Exception {
+        var parties = PModePartiesReader.read(stream(PMODES));
+
+        assertThat(parties.selfParty()).isEqualTo("gw1");
+        assertThat(parties.accessPoints())
+            .extracting(AccessPoint::getName, AccessPoint::getEndpoint)
+            .containsExactly(
+                tuple(
+                    "gw1", "https://gw1.example.com/domibus/services/msh"),
+                tuple(
+                    "gw2", "https://gw2.example.com/domibus/services/msh")
+            );
+    }
+
+    @Test
+    void read_matchesJaxbUnmarshalling() throws Exception {
+        var configuration = (Configuration) JAXBContext
+            .newInstance(Configuration.class)
+            .createUnmarshaller()
+            .unmarshal(stream(PMODES));
+
+        var parties = PModePartiesReader.read(stream(PMODES));
+
+        assertThat(parties.selfParty()).isEqualTo(configuration.getParty());
+        assertThat(parties.accessPoints())
+            .extracting(AccessPoint::getName)
+            .containsExactlyElementsOf(configuration.getBusinessProcesses()
+                                                    .getParties()
+                                                    .getParty()
+                                                    .stream()
+                                                    .map(p -> p.getName())
+                                                    .toList());
+    }
+
+    @Test
+    void read_withoutConfiguration_throws() {
+        assertThatThrownBy(() -> PModePartiesReader.read(stream("<other/>")))
+            .isInstanceOf(XMLStreamException.class);
+    }
+
+    private InputStream stream(String xml) {
+        return new ByteArrayInputStream(xml.strip().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,114 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.ecodex.utils.monitor.gw.config.GatewayMonitorConfigurationProperties;
+import eu.ecodex.utils.monitor.gw.domain.AccessPoint;
+import eu.ecodex.utils.monitor.gw.dto.AccessPointStatusDTO;
+import eu.ecodex.utils.monitor.gw.dto.CheckResultDTO;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+
+class RemoteGatewaysHealthIndicatorTest {
+    RemoteGatewaysHealthIndicator healthIndicator;
+    Map<String, AccessPointStatusDTO> cached = new ConcurrentHashMap<>();
+    List<String> refreshed = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    public void beforeEach() {
+        var config = new GatewayMonitorConfigurationProperties();
+        config.getHealthCheck().setCheckNames(List.of("*"));
+        config.getHealthCheck().setDownQuorum(0.5);
+
+        healthIndicator = new RemoteGatewaysHealthIndicator();
+        healthIndicator.gatewayMonitorConfig = config;
+        healthIndicator.configuredGatewaysService = new ConfiguredGatewaysService() {
+            @Override
+            public Optional<Collection<AccessPoint>> peekConfiguredGateways() {
+                return Optional.of(List.of(
+                    accessPoint("gw1"), accessPoint("gw2"), accessPoint("gw3"),
+                    accessPoint("gw4")
+                ));
+            }
+        };
+        healthIndicator.gatewaysCheckerService = new GatewaysCheckerService() {
+            @Override
+            public Optional<AccessPointStatusDTO> getCachedGatewayStatus(AccessPoint ap) {
+                return Optional.ofNullable(cached.get(ap.getName()));
+            }
+
+            @Override
+            public CompletableFuture<AccessPointStatusDTO> refreshGatewayStatus(AccessPoint ap) {
+                refreshed.add(ap.getName());
+                return new CompletableFuture<>();
+            }
+        };
+    }
+
+    @Test
+    void health_someGatewaysFailing_isDegraded() {
+        cached.put("gw1", status(true));
+        cached.put("gw2", status(true));
+        cached.put("gw3", status(false));
+
+        var health = healthIndicator.health();
+
+        assertThat(health.getStatus()).isEqualTo(RemoteGatewaysHealthIndicator.DEGRADED);
+        assertThat(health.getDetails())
+            .containsEntry("up", 2)
+            .containsEntry("failing", 1)
+            .containsEntry("unknown", 1);
+        // only the gateway without a result is checked, in the background
+        assertThat(refreshed).containsExactly("gw4");
+    }
+
+    @Test
+    void health_quorumOfGatewaysFailing_isDown() {
+        cached.put("gw1", status(true));
+        cached.put("gw2", status(false));
+
+        assertThat(healthIndicator.health().getStatus()).isEqualTo(Status.DOWN);
+    }
+
+    @Test
+    void health_namedGatewaysOnly() {
+        healthIndicator.gatewayMonitorConfig.getHealthCheck().setCheckNames(List.of("gw1"));
+        cached.put("gw1", status(true));
+        cached.put("gw2", status(false));
+
+        var health = healthIndicator.health();
+
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(health.getDetails().get("gateways"))
+            .asInstanceOf(InstanceOfAssertFactories.MAP)
+            .containsOnlyKeys("gw1");
+    }
+
+    private static AccessPoint accessPoint(String name) {
+        var accessPoint = new AccessPoint();
+        accessPoint.setName(name);
+        accessPoint.setEndpoint("https://" + name + ".example.com/");
+        return accessPoint;
+    }
+
+    private static AccessPointStatusDTO status(boolean up) {
+        var status = new AccessPointStatusDTO();
+        status.setCheckTime(ZonedDateTime.now());
+        if (!up) {
+            var checkResultDTO = new CheckResultDTO();
+            checkResultDTO.setName("Connection Failure");
+            status.getFailures().add(checkResultDTO);
+        }
+        return status;
+    }
+}
@@ -0,0 +1,80 @@
+package eu.ecodex.utils.monitor.gw.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.InputStream;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TrustStoreCompleteChainTrustStrategyTest {
+    TrustStoreCompleteChainTrustStrategy trustStrategy;
+    KeyStore trustStore;
+
+    @BeforeEach
+    public void beforeEach() throws Exception {
+        trustStore = loadKeyStore("/keystores/truststore.jks");
+        trustStrategy = new TrustStoreCompleteChainTrustStrategy();
+        trustStrategy.setTrustStore(trustStore);
+    }
+
+    @Test
+    void validateKeyChain_certificateIssuedByTrustedChain() throws Exception {
+        var server1 = (X509Certificate) loadKeyStore("/server1/keystore.jks")
+            .getCertificate("server1");
+
+        assertThat(trustStrategy.validateKeyChain(server1, trustStore)).isTrue();
+        var validations = trustStrategy.getChainValidations();
+        assertThat(validations).isPositive();
+
+        // the second validation is answered from the validated chains
+        assertThat(trustStrategy.validateKeyChain(server1, trustStore)).isTrue();
+        assertThat(trustStrategy.getChainValidations()).isEqualTo(validations);
+
+        // the remembered results are dropped with the trust store
+        trustStrategy.setTrustStore(trustStore);
+        assertThat(trustStrategy.validateKeyChain(server1, trustStore)).isTrue();
+        assertThat(trustStrategy.getChainValidations()).isGreaterThan(validations);
+    }
+
+    @Test
+    void validateKeyChain_reusesValidatorAcrossThreads() throws Exception {
+        var server1 = (X509Certificate) loadKeyStore("/server1/keystore.jks")
+            .getCertificate("server1");
+
+        for (var i = 0; i < 5; i++) {
+            // like the checks, each validation runs on a new virtual thread
+            var validation = new CompletableFuture<Boolean>();
+            Thread.ofVirtual().start(() -> {
+                try {
+                    trustStrategy.setTrustStore(trustStore);
+                    validation.complete(trustStrategy.validateKeyChain(server1, trustStore));
+                } catch (Exception e) {
+                    validation.completeExceptionally(e);
+                }
+            });
+            assertThat(validation.get(5, TimeUnit.SECONDS)).isTrue();
+        }
+        assertThat(trustStrategy.getCreatedValidators()).isOne();
+    }
+
+    @Test
+    void validateKeyChain_certificateWithUnknownIssuer() throws Exception {
+        var ca1 = (X509Certificate) loadKeyStore("/keystores/ca1.jks").getCertificate("ca1");
+        var server1 = (X509Certificate) loadKeyStore("/server1/keystore.jks")
+            .getCertificate("server1");
+
+        assertThat(trustStrategy.validateKeyChain(server1, ca1)).isFalse();
+    }
+
+    private KeyStore loadKeyStore(String path) throws Exception {
+        var keyStore = KeyStore.getInstance("JKS");
+        try (InputStream is = getClass().getResourceAsStream(path)) {
+            keyStore.load(is, "12345".toCharArray());
+        }
+        return keyStore;
+    }
+}